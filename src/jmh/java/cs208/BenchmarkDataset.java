@@ -0,0 +1,194 @@
+package cs208;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Generates the SQLite databases the benchmarks run against.
+ * <p>
+ * A dataset with N enrollments has N / 5 students taking 5 classes each, and N / 100 classes with 100 students each
+ * (and room for 100 more). Generated datasets are kept under {@code build/jmh-datasets} and reused by later runs,
+ * every trial works on its own copy so the write benchmarks do not change the next trial's data.
+ * Kept datasets are brought up to the latest schema version before they are copied.
+ */
+public class BenchmarkDataset
+{
+    static final int CLASSES_PER_STUDENT = 5;
+    static final int STUDENTS_PER_CLASS = 100;
+    static final int MAX_STUDENTS_PER_CLASS = 2 * STUDENTS_PER_CLASS;
+
+    private static final Path DATASETS_DIRECTORY = Paths.get("build", "jmh-datasets");
+    private static final int BATCH_SIZE = 10_000;
+
+    static int numberOfClasses(int numberOfEnrollments)
+    {
+        return Math.max(numberOfEnrollments / STUDENTS_PER_CLASS, CLASSES_PER_STUDENT);
+    }
+
+    static int numberOfStudents(int numberOfEnrollments)
+    {
+        return numberOfEnrollments / CLASSES_PER_STUDENT;
+    }
+
+    /**
+     * @return a fresh copy of the dataset with the given number of enrollments, generating the dataset first if needed
+     */
+    static Path copyOf(int numberOfEnrollments) throws IOException, SQLException
+    {
+        Path dataset = DATASETS_DIRECTORY.resolve("enrollments-" + numberOfEnrollments + ".sqlite");
+        if (!Files.exists(dataset))
+        {
+            generate(dataset, numberOfEnrollments);
+        }
+        else
+        {
+            // a dataset kept from an earlier run may predate the latest migrations
+            migrate(dataset);
+        }
+
+        Path copy = Files.createTempFile(DATASETS_DIRECTORY, "trial-enrollments-" + numberOfEnrollments + "-", ".sqlite");
+        Files.copy(dataset, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    /**
+     * Deletes a copy returned by {@link #copyOf(int)}, together with its WAL files
+     */
+    static void delete(Path copy) throws IOException
+    {
+        Files.deleteIfExists(copy);
+        Files.deleteIfExists(Paths.get(copy + "-wal"));
+        Files.deleteIfExists(Paths.get(copy + "-shm"));
+    }
+
+    /**
+     * Switches the database file to the given journal mode, which must be done while no other connection is open
+     */
+    static void setJournalMode(Path databaseFile, String journalMode) throws SQLException
+    {
+        try
+        (
+            Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile);
+            Statement statement = connection.createStatement();
+        )
+        {
+            statement.execute("PRAGMA journal_mode = " + journalMode + ";");
+        }
+    }
+
+    private static void migrate(Path databaseFile) throws SQLException
+    {
+        Database database = new Database(databaseFile.toString());
+        try
+        {
+            database.applyPendingMigrations();
+        }
+        finally
+        {
+            database.close();
+        }
+    }
+
+    private static void generate(Path dataset, int numberOfEnrollments) throws IOException, SQLException
+    {
+        Files.createDirectories(DATASETS_DIRECTORY);
+        Path partialDataset = DATASETS_DIRECTORY.resolve(dataset.getFileName() + ".partial");
+        delete(partialDataset);
+
+        int numberOfClasses = numberOfClasses(numberOfEnrollments);
+        int numberOfStudents = numberOfStudents(numberOfEnrollments);
+        System.out.println("Generating " + dataset + ": " + numberOfClasses + " classes, " + numberOfStudents + " students, " + numberOfEnrollments + " enrollments");
+
+        migrate(partialDataset);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + partialDataset))
+        {
+            try (Statement statement = connection.createStatement())
+            {
+                statement.execute("PRAGMA journal_mode = OFF;");
+                statement.execute("PRAGMA synchronous = OFF;");
+            }
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement insertClass = connection.prepareStatement(
+                    "INSERT INTO classes (id, code, title, description, max_students) VALUES (?, ?, ?, ?, ?);"))
+            {
+                for (int id = 1; id <= numberOfClasses; id++)
+                {
+                    insertClass.setInt(1, id);
+                    insertClass.setString(2, classCode(id));
+                    insertClass.setString(3, "Benchmark class " + id);
+                    insertClass.setString(4, "Generated for the JMH benchmarks");
+                    insertClass.setInt(5, MAX_STUDENTS_PER_CLASS);
+                    addToBatch(insertClass, id);
+                }
+                insertClass.executeBatch();
+            }
+
+            try (PreparedStatement insertStudent = connection.prepareStatement(
+                    "INSERT INTO students (id, first_name, last_name, birth_date) VALUES (?, ?, ?, ?);"))
+            {
+                for (int id = 1; id <= numberOfStudents; id++)
+                {
+                    insertStudent.setInt(1, id);
+                    insertStudent.setString(2, "First" + id);
+                    insertStudent.setString(3, "Last" + (id % 1000));
+                    insertStudent.setString(4, String.format("%04d-%02d-%02d", 1990 + id % 20, 1 + id % 12, 1 + id % 28));
+                    addToBatch(insertStudent, id);
+                }
+                insertStudent.executeBatch();
+            }
+
+            try (PreparedStatement insertEnrollment = connection.prepareStatement(
+                    "INSERT INTO registered_students (class_id, student_id) VALUES (?, ?);"))
+            {
+                int classStride = numberOfClasses / CLASSES_PER_STUDENT;
+                int numberOfRows = 0;
+                for (int studentId = 1; studentId <= numberOfStudents; studentId++)
+                {
+                    for (int i = 0; i < CLASSES_PER_STUDENT; i++)
+                    {
+                        // spreads each student's classes evenly, so every class gets the same number of students
+                        insertEnrollment.setInt(1, 1 + (studentId + i * classStride) % numberOfClasses);
+                        insertEnrollment.setInt(2, studentId);
+                        addToBatch(insertEnrollment, ++numberOfRows);
+                    }
+                }
+                insertEnrollment.executeBatch();
+            }
+
+            connection.commit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement())
+            {
+                statement.execute("ANALYZE;");
+                statement.execute("PRAGMA journal_mode = DELETE;");
+            }
+        }
+
+        // renamed only once complete, so an interrupted generation is not mistaken for a dataset
+        Files.move(partialDataset, dataset, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void addToBatch(PreparedStatement statement, int numberOfRows) throws SQLException
+    {
+        statement.addBatch();
+        if (numberOfRows % BATCH_SIZE == 0)
+        {
+            statement.executeBatch();
+        }
+    }
+
+    static String classCode(int classId)
+    {
+        return "C" + classId;
+    }
+}
@@ -0,0 +1,39 @@
+package cs208;
+
+/**
+ * How the benchmarked {@link Database} manages its connections
+ */
+public enum ConnectionStrategy
+{
+    /**
+     * The default pool settings: several connections, each with a prepared statement cache
+     */
+    POOLED(new ConnectionPoolSettings().getMaxPoolSize(), new ConnectionPoolSettings().getStatementCacheSize()),
+
+    /**
+     * A single connection shared by every thread, as the application used before the pool existed
+     */
+    SINGLE_CONNECTION(1, new ConnectionPoolSettings().getStatementCacheSize()),
+
+    /**
+     * The default number of connections, but every statement is prepared again on each call
+     */
+    NO_STATEMENT_CACHE(new ConnectionPoolSettings().getMaxPoolSize(), 0);
+
+    private final int maxPoolSize;
+    private final int statementCacheSize;
+
+    ConnectionStrategy(int maxPoolSize, int statementCacheSize)
+    {
+        this.maxPoolSize = maxPoolSize;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    ConnectionPoolSettings toConnectionPoolSettings()
+    {
+        ConnectionPoolSettings settings = new ConnectionPoolSettings();
+        settings.setMaxPoolSize(maxPoolSize);
+        settings.setStatementCacheSize(statementCacheSize);
+        return settings;
+    }
+}
@@ -0,0 +1,45 @@
+package cs208;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the {@link Database} methods that look up a single class or student
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseReadBenchmark
+{
+    /**
+     * The lookup and query behind the "show all students that are taking a class" menu option
+     */
+    @Benchmark
+    public List<Enrollment> getStudentsInClass(DatabaseState state) throws SQLException
+    {
+        return state.database.getStudentsInClass(state.database.findClassIdByCode(BenchmarkDataset.classCode(state.randomClassId())));
+    }
+
+    @Benchmark
+    public List<Enrollment> getStudentSchedule(DatabaseState state) throws SQLException
+    {
+        return state.database.getStudentSchedule(state.randomStudentId());
+    }
+
+    @Benchmark
+    public int classSearch(DatabaseState state)
+    {
+        return state.database.classSearch(BenchmarkDataset.classCode(state.randomClassId()));
+    }
+}
@@ -0,0 +1,59 @@
+package cs208;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken by the {@link Database} methods that go through whole tables, one call per iteration
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DatabaseReportBenchmark
+{
+    @Benchmark
+    public List<Class> listAllClasses(DatabaseState state) throws SQLException
+    {
+        return state.database.listAllClasses();
+    }
+
+    @Benchmark
+    public List<Student> listAllStudents(DatabaseState state) throws SQLException
+    {
+        return state.database.listAllStudents();
+    }
+
+    @Benchmark
+    public List<Enrollment> listAllRegisteredStudents(DatabaseState state) throws SQLException
+    {
+        return state.database.listAllRegisteredStudents();
+    }
+
+    @Benchmark
+    public long exportAllRegisteredStudents(DatabaseState state) throws SQLException, IOException
+    {
+        Path exportFile = Files.createTempFile("registered-students-", ".jsonl");
+        try
+        {
+            return state.database.exportAllRegisteredStudents(exportFile, ExportFormat.JSON_LINES);
+        }
+        finally
+        {
+            Files.delete(exportFile);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package cs208;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Database} opened on a fresh copy of a generated dataset for every trial.
+ * <p>
+ * The {@code profile} parameter also selects the journal mode: DEFAULT runs with the rollback journal
+ * and PERFORMANCE with WAL. Standard output is discarded while the benchmarks run, so the methods that print
+ * their results are measured without the cost of a terminal.
+ */
+@State(Scope.Benchmark)
+public class DatabaseState
+{
+    @Param({"10000", "1000000", "10000000"})
+    public int enrollments;
+
+    @Param({"DEFAULT", "PERFORMANCE"})
+    public DatabaseProfile profile;
+
+    @Param({"POOLED", "SINGLE_CONNECTION", "NO_STATEMENT_CACHE"})
+    public ConnectionStrategy connectionStrategy;
+
+    Database database;
+    int numberOfClasses;
+    int numberOfStudents;
+    // makes the codes of the classes added by the benchmarks unique across threads and iterations
+    final AtomicInteger sequence = new AtomicInteger();
+
+    private Path databaseFile;
+    private PrintStream standardOutput;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        numberOfClasses = BenchmarkDataset.numberOfClasses(enrollments);
+        numberOfStudents = BenchmarkDataset.numberOfStudents(enrollments);
+        databaseFile = BenchmarkDataset.copyOf(enrollments);
+        // DEFAULT leaves the journal mode untouched, PERFORMANCE switches the file to WAL when it connects
+        BenchmarkDataset.setJournalMode(databaseFile, "DELETE");
+
+        standardOutput = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        database = new Database(databaseFile.toString(), connectionStrategy.toConnectionPoolSettings(), profile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        database.close();
+        System.setOut(standardOutput);
+        BenchmarkDataset.delete(databaseFile);
+    }
+
+    int randomClassId()
+    {
+        return 1 + ThreadLocalRandom.current().nextInt(numberOfClasses);
+    }
+
+    int randomStudentId()
+    {
+        return 1 + ThreadLocalRandom.current().nextInt(numberOfStudents);
+    }
+}
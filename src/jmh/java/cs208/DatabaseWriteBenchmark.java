@@ -0,0 +1,78 @@
+package cs208;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link Database} methods that insert, update or delete rows
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseWriteBenchmark
+{
+    private static final int ENROLLMENT_BATCH_SIZE = 100;
+    private static final Date BIRTH_DATE = Date.valueOf("2000-01-01");
+
+    @Benchmark
+    public void addNewClass(DatabaseState state)
+    {
+        int sequence = state.sequence.incrementAndGet();
+        state.database.addNewClass(new Class("B" + sequence, "Benchmark class", "Added by addNewClass", 30));
+    }
+
+    @Benchmark
+    public void addNewStudent(DatabaseState state)
+    {
+        state.database.addNewStudent(new Student("Benchmark", "Student", BIRTH_DATE));
+    }
+
+    @Benchmark
+    public void updateExistingClassInformation(DatabaseState state)
+    {
+        int classId = state.randomClassId();
+        state.database.updateExistingClassInformation(new Class(classId, BenchmarkDataset.classCode(classId),
+                "Updated class " + classId, "Updated by updateExistingClassInformation", BenchmarkDataset.MAX_STUDENTS_PER_CLASS));
+    }
+
+    /**
+     * The insert behind {@link Database#AddStudentToClass(int, int)}, which prompts for new ids when the enrollment fails
+     */
+    @Benchmark
+    public EnrollmentStatus enrollStudent(DatabaseState state) throws SQLException
+    {
+        return state.database.enrollStudent(state.randomStudentId(), state.randomClassId());
+    }
+
+    @Benchmark
+    public void removeStudentFromClass(DatabaseState state)
+    {
+        state.database.RemoveStudentFromClass(state.randomStudentId(), state.randomClassId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public EnrollmentBatchResult enrollBatch(DatabaseState state) throws SQLException
+    {
+        List<Enrollment> enrollments = new ArrayList<>(ENROLLMENT_BATCH_SIZE);
+        for (int i = 0; i < ENROLLMENT_BATCH_SIZE; i++)
+        {
+            enrollments.add(new Enrollment(state.randomClassId(), state.randomStudentId()));
+        }
+        return state.database.enrollBatch(enrollments);
+    }
+}
@@ -0,0 +1,158 @@
+package cs208;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives concurrent registrations through the {@link HttpApiServer} and checks that no class ends up over capacity.
+ * <p>
+ * Starts the server in this process on a copy of a generated {@link BenchmarkDataset}, sends {@code requests}
+ * POST /enrollments requests for random (class, student) pairs with up to {@code concurrency} of them in flight,
+ * then prints the throughput, the latency percentiles and the response codes. Exits with status 1 if a class has
+ * more students than its max_students or if the number of 201 responses differs from the number of rows inserted.
+ * <p>
+ * Run with {@code gradle loadTest -Pload.args="<enrollments> <requests> <concurrency> <profile>"},
+ * every argument being optional (defaults: 10000 20000 1000 PERFORMANCE).
+ */
+public class RegistrationLoadGenerator
+{
+    public static void main(String[] args) throws Exception
+    {
+        int enrollments = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        DatabaseProfile profile = args.length > 3 ? DatabaseProfile.valueOf(args[3]) : DatabaseProfile.PERFORMANCE;
+
+        Path databaseFile = BenchmarkDataset.copyOf(enrollments);
+        Database database = new Database(databaseFile.toString(), ConnectionPoolSettings.fromSystemProperties(), profile);
+        HttpApiServer server = new HttpApiServer(database, 0);
+        server.start();
+        System.out.println("Server on port " + server.getPort() + (server.usesVirtualThreads() ? " with virtual threads" : " with a thread pool") +
+                ", sending " + requests + " registrations with " + concurrency + " in flight");
+
+        int numberOfClasses = BenchmarkDataset.numberOfClasses(enrollments);
+        int numberOfStudents = BenchmarkDataset.numberOfStudents(enrollments);
+        long enrollmentsBefore = countEnrollments(database);
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        URI enrollmentsUri = URI.create("http://localhost:" + server.getPort() + "/enrollments");
+
+        long[] latenciesNanos = new long[requests];
+        Map<Integer, LongAdder> responseCodes = new ConcurrentHashMap<>();
+        LongAdder failedRequests = new LongAdder();
+        Semaphore inFlight = new Semaphore(concurrency);
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < requests; i++)
+        {
+            int classId = 1 + ThreadLocalRandom.current().nextInt(numberOfClasses);
+            int studentId = 1 + ThreadLocalRandom.current().nextInt(numberOfStudents);
+            HttpRequest request = HttpRequest.newBuilder(enrollmentsUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"class_id\":" + classId + ",\"student_id\":" + studentId + "}"))
+                    .build();
+
+            inFlight.acquire();
+            int requestIndex = i;
+            long requestStartNanos = System.nanoTime();
+            responses[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, exception) -> {
+                        latenciesNanos[requestIndex] = System.nanoTime() - requestStartNanos;
+                        if (exception != null)
+                        {
+                            failedRequests.increment();
+                        }
+                        else
+                        {
+                            responseCodes.computeIfAbsent(response.statusCode(), statusCode -> new LongAdder()).increment();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(exception -> null).join();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+
+        Arrays.sort(latenciesNanos);
+        System.out.printf("%d requests in %.2f s (%.0f requests/s)%n", requests, elapsedSeconds, requests / elapsedSeconds);
+        System.out.printf("latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentileMillis(latenciesNanos, 0.50), percentileMillis(latenciesNanos, 0.90),
+                percentileMillis(latenciesNanos, 0.99), latenciesNanos[latenciesNanos.length - 1] / 1_000_000.0);
+        Map<Integer, Long> sortedResponseCodes = new TreeMap<>();
+        responseCodes.forEach((statusCode, count) -> sortedResponseCodes.put(statusCode, count.sum()));
+        System.out.println("responses by status code " + sortedResponseCodes + ", failed requests " + failedRequests.sum());
+        System.out.println(database.getConnectionPoolStatistics());
+        System.out.println(database.getWriteStatistics());
+
+        long enrolledResponses = sortedResponseCodes.getOrDefault(201, 0L);
+        long rowsInserted = countEnrollments(database) - enrollmentsBefore;
+        long overfilledClasses = countOverfilledClasses(database);
+        server.stop(1);
+        database.close();
+        BenchmarkDataset.delete(databaseFile);
+
+        boolean passed = failedRequests.sum() == 0 && enrolledResponses == rowsInserted && overfilledClasses == 0;
+        System.out.println((passed ? "PASSED" : "FAILED") + ": " + enrolledResponses + " enrolled responses, " + rowsInserted +
+                " rows inserted, " + overfilledClasses + " classes over max_students");
+        if (!passed)
+        {
+            System.exit(1);
+        }
+        // the HTTP client's selector thread is not a daemon thread
+        System.exit(0);
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile)
+    {
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static long countEnrollments(Database database) throws SQLException
+    {
+        return queryLong(database, "SELECT COUNT(*) FROM registered_students;");
+    }
+
+    private static long countOverfilledClasses(Database database) throws SQLException
+    {
+        return queryLong(database,
+                "SELECT COUNT(*)\n" +
+                "FROM classes\n" +
+                "WHERE max_students < (SELECT COUNT(*) FROM registered_students WHERE registered_students.class_id = classes.id);");
+    }
+
+    private static long queryLong(Database database, String sql) throws SQLException
+    {
+        try
+        (
+            Connection connection = database.getDatabaseConnection();
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(sql);
+        )
+        {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cs208;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to remap the ids of up to 100k students (all of them on the smaller datasets) with
+ * {@link Database#remapStudentIds(Map)}, rewriting their enrollments as well.
+ * <p>
+ * {@code REVERSE} reverses the order of the ids, so every new id belongs to another remapped student
+ * and applying it again restores the original ids. {@code SHIFT} moves the students to free ids above the existing ones
+ * and back again on the next invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StudentIdRemapBenchmark
+{
+    private static final int MAX_REMAPPED_STUDENTS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Mapping
+    {
+        @Param({"REVERSE", "SHIFT"})
+        public String kind;
+
+        Map<Integer, Integer> newIdsByOldId;
+        Map<Integer, Integer> inverse;
+
+        @Setup(Level.Trial)
+        public void setUp(DatabaseState state)
+        {
+            int numberOfRemappedStudents = Math.min(MAX_REMAPPED_STUDENTS, state.numberOfStudents);
+            newIdsByOldId = new HashMap<>(numberOfRemappedStudents * 2);
+            inverse = new HashMap<>(numberOfRemappedStudents * 2);
+            for (int id = 1; id <= numberOfRemappedStudents; id++)
+            {
+                int newId = kind.equals("REVERSE") ? numberOfRemappedStudents + 1 - id : state.numberOfStudents + id;
+                newIdsByOldId.put(id, newId);
+                inverse.put(newId, id);
+            }
+        }
+
+        Map<Integer, Integer> next()
+        {
+            Map<Integer, Integer> mapping = newIdsByOldId;
+            newIdsByOldId = inverse;
+            inverse = mapping;
+            return mapping;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public StudentIdRemapResult remapStudentIds(DatabaseState state, Mapping mapping) throws SQLException
+    {
+        return state.database.remapStudentIds(mapping.next());
+    }
+}
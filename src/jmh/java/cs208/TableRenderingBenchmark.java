@@ -0,0 +1,80 @@
+package cs208;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to print a list of enrollments, with one printf per row as the menus used to, and with {@link TableRenderer}.
+ * <p>
+ * Both write to a discarding PrintStream with auto-flush enabled, like System.out, so the numbers compare the cost of
+ * formatting and of the number of flushes, not the speed of a terminal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableRenderingBenchmark
+{
+    @Param({"1000", "1000000"})
+    public int rows;
+
+    private List<Enrollment> enrollments;
+    private PrintStream output;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        enrollments = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++)
+        {
+            enrollments.add(new Enrollment(i % 100, i, "First" + i + " Last" + i % 1000, "C" + i % 100, "Benchmark class " + i % 100));
+        }
+        output = new PrintStream(OutputStream.nullOutputStream(), true);
+    }
+
+    @Benchmark
+    public void printfPerRow()
+    {
+        output.print("| ");
+        for (String columnName : new String[]{"students.id", "student_full_name", "classes.code", "classes.title"})
+        {
+            output.print(columnName + " | ");
+        }
+        output.println();
+        output.println(Utils.characterRepeat('-', 80));
+
+        for (Enrollment enrollment : enrollments)
+        {
+            output.printf("| %d | %s | %s | %s |%n", enrollment.getStudentId(), enrollment.getStudentFullName(), enrollment.getClassCode(), enrollment.getClassTitle());
+        }
+    }
+
+    @Benchmark
+    public long tableRenderer()
+    {
+        TableRenderer table = TableRenderer.forStream(output, "students.id", "student_full_name", "classes.code", "classes.title");
+        for (Enrollment enrollment : enrollments)
+        {
+            table.addRow(enrollment.getStudentId(), enrollment.getStudentFullName(), enrollment.getClassCode(), enrollment.getClassTitle());
+        }
+        return table.finish();
+    }
+}
@@ -0,0 +1,167 @@
+package cs208;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of the classes table, by id and by code.
+ * <p>
+ * Lookups that miss are loaded from the database and remembered; classes that do not exist are not cached,
+ * so a class added later is found on the next lookup. {@link Database} invalidates the affected entries
+ * whenever it inserts, updates or deletes classes. Changes made to the database file by other programs
+ * are only seen after {@link #invalidateAll()}.
+ */
+public class ClassCatalogCache
+{
+    /**
+     * Loads a class from the database, returning null if it does not exist
+     */
+    public interface Loader<K>
+    {
+        Class load(K key) throws SQLException;
+    }
+
+    private final Map<Integer, Class> classesById = new ConcurrentHashMap<>();
+    private final Map<String, Integer> classIdsByCode = new ConcurrentHashMap<>();
+    // incremented on every invalidation, so a load that raced with a write does not cache what it read before the write
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @return the class with that id, from the cache or else from the loader, or null if there is no such class
+     */
+    public Class findById(int classId, Loader<Integer> loader) throws SQLException
+    {
+        Class cachedClass = classesById.get(classId);
+        if (cachedClass != null)
+        {
+            hits.increment();
+            return copyOf(cachedClass);
+        }
+
+        misses.increment();
+        long generationBeforeLoad = generation.get();
+        Class loadedClass = loader.load(classId);
+        cache(loadedClass, generationBeforeLoad);
+        return loadedClass;
+    }
+
+    /**
+     * @return the class with that code, from the cache or else from the loader, or null if there is no such class
+     */
+    public Class findByCode(String classCode, Loader<String> loader) throws SQLException
+    {
+        Integer classId = classIdsByCode.get(classCode);
+        Class cachedClass = classId == null ? null : classesById.get(classId);
+        if (cachedClass != null)
+        {
+            hits.increment();
+            return copyOf(cachedClass);
+        }
+
+        misses.increment();
+        long generationBeforeLoad = generation.get();
+        Class loadedClass = loader.load(classCode);
+        cache(loadedClass, generationBeforeLoad);
+        return loadedClass;
+    }
+
+    /**
+     * Forgets the class with that id, to be called after the class was updated or deleted
+     */
+    public void invalidate(int classId)
+    {
+        generation.incrementAndGet();
+        invalidations.increment();
+        Class removedClass = classesById.remove(classId);
+        if (removedClass != null && removedClass.getCode() != null)
+        {
+            classIdsByCode.remove(removedClass.getCode(), classId);
+        }
+    }
+
+    /**
+     * Forgets every class, e.g. after classes were imported in bulk
+     */
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        invalidations.increment();
+        classesById.clear();
+        classIdsByCode.clear();
+    }
+
+    private void cache(Class loadedClass, long generationBeforeLoad)
+    {
+        if (loadedClass == null || generation.get() != generationBeforeLoad)
+        {
+            return;
+        }
+
+        // the caller keeps the loaded object, the cache keeps its own copy
+        loadedClass = copyOf(loadedClass);
+        classesById.put(loadedClass.getId(), loadedClass);
+        if (loadedClass.getCode() != null)
+        {
+            classIdsByCode.put(loadedClass.getCode(), loadedClass.getId());
+        }
+
+        // an invalidation may have run between the check above and the puts, in which case drop what we just cached
+        if (generation.get() != generationBeforeLoad)
+        {
+            classesById.remove(loadedClass.getId(), loadedClass);
+            if (loadedClass.getCode() != null)
+            {
+                classIdsByCode.remove(loadedClass.getCode(), loadedClass.getId());
+            }
+        }
+    }
+
+    /**
+     * Class has setters, so callers get a copy they can change without changing the cached class
+     */
+    private static Class copyOf(Class aClass)
+    {
+        return new Class(aClass.getId(), aClass.getCode(), aClass.getTitle(), aClass.getDescription(), aClass.getMaxStudents());
+    }
+
+    public int size()
+    {
+        return classesById.size();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public long getInvalidations()
+    {
+        return invalidations.sum();
+    }
+
+    public double getHitRatio()
+    {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("Class catalog cache: %d classes cached, %d hits, %d misses (%.1f%% hit ratio), %d invalidations",
+                size(), getHits(), getMisses(), getHitRatio() * 100, getInvalidations());
+    }
+}
@@ -0,0 +1,70 @@
+package cs208;
+
+/**
+ * How full a class is: the students enrolled in it against its max_students, see {@link Database#getClassFillRates()}
+ */
+public class ClassFillRate
+{
+    private final int classId;
+    private final String code;
+    private final String title;
+    private final int enrolledCount;
+    private final Integer maxStudents;
+
+    public ClassFillRate(int classId, String code, String title, int enrolledCount, Integer maxStudents)
+    {
+        this.classId = classId;
+        this.code = code;
+        this.title = title;
+        this.enrolledCount = enrolledCount;
+        this.maxStudents = maxStudents;
+    }
+
+    public int getClassId()
+    {
+        return classId;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    public String getTitle()
+    {
+        return title;
+    }
+
+    public int getEnrolledCount()
+    {
+        return enrolledCount;
+    }
+
+    /**
+     * @return the most students the class takes, or null if it takes any number of them
+     */
+    public Integer getMaxStudents()
+    {
+        return maxStudents;
+    }
+
+    /**
+     * @return the enrolled students as a fraction of max_students, or NaN if the class has no (or a zero) max_students
+     */
+    public double getFillRate()
+    {
+        return maxStudents == null || maxStudents == 0 ? Double.NaN : (double) enrolledCount / maxStudents;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ClassFillRate{" +
+                "classId=" + classId +
+                ", code='" + code + '\'' +
+                ", title='" + title + '\'' +
+                ", enrolledCount=" + enrolledCount +
+                ", maxStudents=" + maxStudents +
+                '}';
+    }
+}
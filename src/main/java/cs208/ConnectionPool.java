@@ -0,0 +1,637 @@
+package cs208;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of long-lived SQLite connections.
+ * <p>
+ * Callers borrow a connection with {@link #borrow()} and give it back by calling {@code close()} on it,
+ * so the usual try-with-resources blocks keep working unchanged.
+ * Statements left open by the caller are closed when the connection is given back,
+ * and any transaction left open is rolled back.
+ * <p>
+ * Temporary tables are not reset: they are private to the physical connection and live as long as it does,
+ * across any number of borrows. A temporary table created during one borrow can therefore still hold the rows
+ * of a previous borrower, see {@link #resetTemporaryTable(Connection, String, String)}.
+ */
+public class ConnectionPool implements AutoCloseable
+{
+    private final String databaseConnectionURL;
+    private final Properties connectionProperties;
+    private final ConnectionPoolSettings settings;
+    private final QueryMetrics queryMetrics;
+
+    // one permit per connection that may be handed out, which bounds both the idle and the borrowed connections
+    private final Semaphore permits;
+    // most recently returned connections sit at the front, so the ones at the back are the first to go idle
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalBorrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder connectionsEvicted = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+    private final AtomicInteger peakBorrowed = new AtomicInteger();
+
+    public ConnectionPool(String databaseConnectionURL, Properties connectionProperties, ConnectionPoolSettings settings)
+    {
+        this(databaseConnectionURL, connectionProperties, settings, null);
+    }
+
+    /**
+     * @param queryMetrics where the executions of the statements created on the pooled connections are recorded,
+     *                     or null to hand out the statements without instrumentation
+     */
+    public ConnectionPool(String databaseConnectionURL, Properties connectionProperties, ConnectionPoolSettings settings,
+                          QueryMetrics queryMetrics)
+    {
+        this.databaseConnectionURL = databaseConnectionURL;
+        this.connectionProperties = connectionProperties;
+        this.settings = settings;
+        this.queryMetrics = queryMetrics;
+        this.permits = new Semaphore(settings.getMaxPoolSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cs208-connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long housekeepingPeriodMillis = Math.max(1_000, Math.min(30_000, settings.getIdleTimeoutMillis() / 2));
+        housekeeper.scheduleWithFixedDelay(this::runHousekeeping, housekeepingPeriodMillis, housekeepingPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured borrow timeout for one to become available
+     *
+     * @return a connection that goes back to the pool when {@code close()} is called on it
+     * @throws SQLException if the pool is closed, the wait times out or a new connection cannot be opened
+     */
+    public Connection borrow() throws SQLException
+    {
+        if (closed)
+        {
+            throw new SQLException("The connection pool for '" + databaseConnectionURL + "' has been closed");
+        }
+
+        long startNanos = System.nanoTime();
+        try
+        {
+            if (!permits.tryAcquire(settings.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS))
+            {
+                borrowTimeouts.increment();
+                throw new SQLException("Timed out after " + settings.getBorrowTimeoutMillis() + " ms waiting for a connection, all " +
+                        settings.getMaxPoolSize() + " connections are in use");
+            }
+        }
+        catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", interruptedException);
+        }
+
+        PooledConnection pooledConnection;
+        try
+        {
+            pooledConnection = takeIdleOrCreate();
+        }
+        catch (SQLException | RuntimeException exception)
+        {
+            permits.release();
+            throw exception;
+        }
+
+        long waitedNanos = System.nanoTime() - startNanos;
+        borrowCount.increment();
+        totalBorrowWaitNanos.add(waitedNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitedNanos, Math::max);
+
+        pooledConnection.borrowedAtMillis = System.currentTimeMillis();
+        pooledConnection.leakReported = false;
+        pooledConnection.borrowedFrom = settings.getLeakDetectionThresholdMillis() > 0
+                ? new Exception("Connection borrowed here by thread '" + Thread.currentThread().getName() + "'")
+                : null;
+        borrowedConnections.add(pooledConnection);
+        peakBorrowed.accumulateAndGet(borrowedConnections.size(), Math::max);
+
+        return pooledConnection.newLogicalConnection();
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException
+    {
+        long now = System.currentTimeMillis();
+        PooledConnection candidate;
+        while ((candidate = idleConnections.pollFirst()) != null)
+        {
+            if (now - candidate.lastReturnedAtMillis > settings.getIdleTimeoutMillis())
+            {
+                connectionsEvicted.increment();
+                candidate.closePhysicalQuietly();
+                continue;
+            }
+            if (now - candidate.lastReturnedAtMillis > settings.getValidationIntervalMillis() && !candidate.isValid())
+            {
+                connectionsEvicted.increment();
+                candidate.closePhysicalQuietly();
+                continue;
+            }
+            return candidate;
+        }
+
+        Connection physicalConnection = DriverManager.getConnection(databaseConnectionURL, connectionProperties);
+        connectionsCreated.increment();
+        return new PooledConnection(physicalConnection);
+    }
+
+    private void giveBack(PooledConnection pooledConnection)
+    {
+        borrowedConnections.remove(pooledConnection);
+
+        boolean reusable = pooledConnection.resetForReuse();
+        if (closed || !reusable)
+        {
+            pooledConnection.closePhysicalQuietly();
+        }
+        else
+        {
+            pooledConnection.lastReturnedAtMillis = System.currentTimeMillis();
+            idleConnections.offerFirst(pooledConnection);
+        }
+        permits.release();
+    }
+
+    private void runHousekeeping()
+    {
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> idleIterator = idleConnections.descendingIterator();
+        while (idleIterator.hasNext())
+        {
+            PooledConnection idleConnection = idleIterator.next();
+            if (now - idleConnection.lastReturnedAtMillis > settings.getIdleTimeoutMillis() && idleConnections.remove(idleConnection))
+            {
+                connectionsEvicted.increment();
+                idleConnection.closePhysicalQuietly();
+            }
+        }
+
+        long leakThresholdMillis = settings.getLeakDetectionThresholdMillis();
+        if (leakThresholdMillis > 0)
+        {
+            for (PooledConnection borrowedConnection : borrowedConnections)
+            {
+                if (!borrowedConnection.leakReported && now - borrowedConnection.borrowedAtMillis > leakThresholdMillis)
+                {
+                    borrowedConnection.leakReported = true;
+                    leaksDetected.increment();
+                    System.err.println("!!! WARNING: possible connection leak, a connection has been borrowed for " +
+                            (now - borrowedConnection.borrowedAtMillis) + " ms without being closed");
+                    if (borrowedConnection.borrowedFrom != null)
+                    {
+                        borrowedConnection.borrowedFrom.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a point-in-time snapshot of the pool usage and borrow wait times
+     */
+    public Statistics getStatistics()
+    {
+        return new Statistics(
+                settings.getMaxPoolSize(),
+                borrowedConnections.size(),
+                idleConnections.size(),
+                peakBorrowed.get(),
+                permits.getQueueLength(),
+                borrowCount.sum(),
+                totalBorrowWaitNanos.sum(),
+                maxBorrowWaitNanos.get(),
+                borrowTimeouts.sum(),
+                connectionsCreated.sum(),
+                connectionsEvicted.sum(),
+                leaksDetected.sum(),
+                statementCacheHits.sum(),
+                statementCacheMisses.sum(),
+                statementCacheEvictions.sum()
+        );
+    }
+
+    public ConnectionPoolSettings getSettings()
+    {
+        return settings;
+    }
+
+    /**
+     * Creates the temporary table {@code temp.<tableName>} on first use of the connection,
+     * or empties it if an earlier borrow of the same physical connection already created it
+     *
+     * @param columnDefinitions the column definitions of the table, as in {@code CREATE TABLE name (columnDefinitions)}
+     */
+    static void resetTemporaryTable(Connection connection, String tableName, String columnDefinitions) throws SQLException
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            statement.executeUpdate("CREATE TEMP TABLE IF NOT EXISTS " + tableName + " (" + columnDefinitions + ");");
+            statement.executeUpdate("DELETE FROM temp." + tableName + ";");
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops handing out new ones.
+     * Connections that are still borrowed are closed as soon as they are given back.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null)
+        {
+            idleConnection.closePhysicalQuietly();
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, together with the bookkeeping needed to lend it out
+     */
+    private class PooledConnection
+    {
+        private final Connection physicalConnection;
+        private final PreparedStatementCache statementCache;
+        private final List<Statement> openStatements = new ArrayList<>();
+        // the QueryMetrics wrappers handed out during the current borrow
+        private final List<Statement> instrumentedStatements = new ArrayList<>();
+        private volatile long lastReturnedAtMillis = System.currentTimeMillis();
+        private volatile long borrowedAtMillis;
+        private volatile boolean leakReported;
+        private volatile Exception borrowedFrom;
+
+        private PooledConnection(Connection physicalConnection)
+        {
+            this.physicalConnection = physicalConnection;
+            this.statementCache = new PreparedStatementCache(physicalConnection, settings.getStatementCacheSize(),
+                    statementCacheHits, statementCacheMisses, statementCacheEvictions);
+        }
+
+        private Connection newLogicalConnection()
+        {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new java.lang.Class<?>[]{Connection.class},
+                    new LogicalConnectionHandler(this)
+            );
+        }
+
+        private boolean isValid()
+        {
+            try
+            {
+                return physicalConnection.isValid(settings.getValidationTimeoutSeconds());
+            }
+            catch (SQLException sqlException)
+            {
+                return false;
+            }
+        }
+
+        /**
+         * Closes the statements the borrower left open and rolls back any unfinished transaction
+         *
+         * @return false if the connection is in an unknown state and should be discarded instead of reused
+         */
+        private boolean resetForReuse()
+        {
+            // closing the wrappers first records the queries whose statement or result set the borrower never closed
+            for (Statement instrumentedStatement : instrumentedStatements)
+            {
+                try
+                {
+                    instrumentedStatement.close();
+                }
+                catch (SQLException ignored)
+                {
+                    // the statement is unusable either way
+                }
+            }
+            instrumentedStatements.clear();
+            statementCache.checkInAll();
+            for (Statement openStatement : openStatements)
+            {
+                try
+                {
+                    openStatement.close();
+                }
+                catch (SQLException ignored)
+                {
+                    // the statement is unusable either way
+                }
+            }
+            openStatements.clear();
+
+            try
+            {
+                if (physicalConnection.isClosed())
+                {
+                    return false;
+                }
+                if (!physicalConnection.getAutoCommit())
+                {
+                    physicalConnection.rollback();
+                    physicalConnection.setAutoCommit(true);
+                }
+                return true;
+            }
+            catch (SQLException sqlException)
+            {
+                System.err.println("!!! WARNING: discarding a pooled connection that could not be reset: " + sqlException.getMessage());
+                return false;
+            }
+        }
+
+        private void closePhysicalQuietly()
+        {
+            statementCache.closeAll();
+            try
+            {
+                physicalConnection.close();
+            }
+            catch (SQLException sqlException)
+            {
+                System.err.println("SQLException: failed to close a pooled connection");
+                System.err.println(sqlException.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hands calls through to the physical connection until the borrower closes it, at which point
+     * the physical connection goes back to the pool and this handle becomes unusable
+     */
+    private class LogicalConnectionHandler implements InvocationHandler
+    {
+        private final PooledConnection pooledConnection;
+        private boolean logicallyClosed;
+
+        private LogicalConnectionHandler(PooledConnection pooledConnection)
+        {
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    if (!logicallyClosed)
+                    {
+                        logicallyClosed = true;
+                        giveBack(pooledConnection);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooledConnection.physicalConnection + (logicallyClosed ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (logicallyClosed)
+            {
+                throw new SQLException("The connection has already been returned to the pool");
+            }
+
+            if (method.getName().equals("prepareStatement") && (args.length == 1 || isAutoGeneratedKeysOverload(method)))
+            {
+                int autoGeneratedKeys = args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1];
+                PreparedStatement preparedStatement = pooledConnection.statementCache.checkOut((String) args[0], autoGeneratedKeys);
+                if (!Proxy.isProxyClass(preparedStatement.getClass()))
+                {
+                    // not cached, so it has to be closed for real when the connection is given back
+                    pooledConnection.openStatements.add(preparedStatement);
+                }
+                return queryMetrics == null ? preparedStatement : instrument(queryMetrics.instrument(preparedStatement, (String) args[0]));
+            }
+
+            try
+            {
+                Object result = method.invoke(pooledConnection.physicalConnection, args);
+                if (result instanceof Statement)
+                {
+                    pooledConnection.openStatements.add((Statement) result);
+                    if (queryMetrics != null)
+                    {
+                        return instrument(result instanceof PreparedStatement
+                                ? queryMetrics.instrument((PreparedStatement) result, (String) args[0])
+                                : queryMetrics.instrument((Statement) result));
+                    }
+                }
+                return result;
+            }
+            catch (InvocationTargetException invocationTargetException)
+            {
+                throw invocationTargetException.getCause();
+            }
+        }
+
+        private <T extends Statement> T instrument(T instrumentedStatement)
+        {
+            pooledConnection.instrumentedStatements.add(instrumentedStatement);
+            return instrumentedStatement;
+        }
+    }
+
+    private static boolean isAutoGeneratedKeysOverload(Method method)
+    {
+        return method.getParameterCount() == 2 && method.getParameterTypes()[1] == int.class;
+    }
+
+    /**
+     * Snapshot of the pool metrics returned by {@link #getStatistics()}
+     */
+    public static class Statistics
+    {
+        private final int maxPoolSize;
+        private final int borrowedConnections;
+        private final int idleConnections;
+        private final int peakBorrowedConnections;
+        private final int threadsAwaitingConnection;
+        private final long borrowCount;
+        private final long totalBorrowWaitNanos;
+        private final long maxBorrowWaitNanos;
+        private final long borrowTimeouts;
+        private final long connectionsCreated;
+        private final long connectionsEvicted;
+        private final long leaksDetected;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+
+        public Statistics(int maxPoolSize, int borrowedConnections, int idleConnections, int peakBorrowedConnections,
+                          int threadsAwaitingConnection, long borrowCount, long totalBorrowWaitNanos, long maxBorrowWaitNanos,
+                          long borrowTimeouts, long connectionsCreated, long connectionsEvicted, long leaksDetected,
+                          long statementCacheHits, long statementCacheMisses, long statementCacheEvictions)
+        {
+            this.maxPoolSize = maxPoolSize;
+            this.borrowedConnections = borrowedConnections;
+            this.idleConnections = idleConnections;
+            this.peakBorrowedConnections = peakBorrowedConnections;
+            this.threadsAwaitingConnection = threadsAwaitingConnection;
+            this.borrowCount = borrowCount;
+            this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+            this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+            this.borrowTimeouts = borrowTimeouts;
+            this.connectionsCreated = connectionsCreated;
+            this.connectionsEvicted = connectionsEvicted;
+            this.leaksDetected = leaksDetected;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.statementCacheEvictions = statementCacheEvictions;
+        }
+
+        public int getMaxPoolSize()
+        {
+            return maxPoolSize;
+        }
+
+        public int getBorrowedConnections()
+        {
+            return borrowedConnections;
+        }
+
+        public int getIdleConnections()
+        {
+            return idleConnections;
+        }
+
+        public int getPeakBorrowedConnections()
+        {
+            return peakBorrowedConnections;
+        }
+
+        public int getThreadsAwaitingConnection()
+        {
+            return threadsAwaitingConnection;
+        }
+
+        public long getBorrowCount()
+        {
+            return borrowCount;
+        }
+
+        public double getAverageBorrowWaitMillis()
+        {
+            return borrowCount == 0 ? 0.0 : totalBorrowWaitNanos / 1_000_000.0 / borrowCount;
+        }
+
+        public double getMaxBorrowWaitMillis()
+        {
+            return maxBorrowWaitNanos / 1_000_000.0;
+        }
+
+        public long getBorrowTimeouts()
+        {
+            return borrowTimeouts;
+        }
+
+        public long getConnectionsCreated()
+        {
+            return connectionsCreated;
+        }
+
+        public long getConnectionsEvicted()
+        {
+            return connectionsEvicted;
+        }
+
+        public long getLeaksDetected()
+        {
+            return leaksDetected;
+        }
+
+        public long getStatementCacheHits()
+        {
+            return statementCacheHits;
+        }
+
+        public long getStatementCacheMisses()
+        {
+            return statementCacheMisses;
+        }
+
+        public long getStatementCacheEvictions()
+        {
+            return statementCacheEvictions;
+        }
+
+        /**
+         * @return the fraction of prepareStatement calls served from the statement caches
+         */
+        public double getStatementCacheHitRatio()
+        {
+            long lookups = statementCacheHits + statementCacheMisses;
+            return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+        }
+
+        /**
+         * @return the fraction of the pool that is currently borrowed, from 0.0 (all idle) to 1.0 (saturated)
+         */
+        public double getSaturation()
+        {
+            return (double) borrowedConnections / maxPoolSize;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(
+                    "borrowed = %d / %d (saturation %.0f%%, peak %d), idle = %d, waiting threads = %d%n" +
+                    "borrows = %d, avg wait = %.3f ms, max wait = %.3f ms, timeouts = %d%n" +
+                    "connections created = %d, evicted = %d, possible leaks = %d%n" +
+                    "statement cache hits = %d, misses = %d (hit ratio %.0f%%), evictions = %d",
+                    borrowedConnections, maxPoolSize, getSaturation() * 100, peakBorrowedConnections, idleConnections, threadsAwaitingConnection,
+                    borrowCount, getAverageBorrowWaitMillis(), getMaxBorrowWaitMillis(), borrowTimeouts,
+                    connectionsCreated, connectionsEvicted, leaksDetected,
+                    statementCacheHits, statementCacheMisses, getStatementCacheHitRatio() * 100, statementCacheEvictions
+            );
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cs208;
+
+/**
+ * Tunable settings for the {@link ConnectionPool} used by {@link Database}.
+ * <p>
+ * Every setting can be overridden at startup with a system property, e.g.
+ * {@code -Dcs208.pool.maxSize=16 -Dcs208.pool.leakDetectionThresholdMillis=60000}
+ */
+public class ConnectionPoolSettings
+{
+    private int maxPoolSize = 8;
+    private long borrowTimeoutMillis = 30_000;
+    private long idleTimeoutMillis = 600_000;
+    private long validationIntervalMillis = 5_000;
+    private int validationTimeoutSeconds = 2;
+    // 0 disables leak detection, since the interactive menus legitimately hold a connection while waiting for input
+    private long leakDetectionThresholdMillis = 0;
+    private int statementCacheSize = 64;
+
+    /**
+     * @return the default settings, overridden by any {@code cs208.pool.*} system properties that are set
+     */
+    public static ConnectionPoolSettings fromSystemProperties()
+    {
+        ConnectionPoolSettings settings = new ConnectionPoolSettings();
+        settings.setMaxPoolSize(Integer.getInteger("cs208.pool.maxSize", settings.getMaxPoolSize()));
+        settings.setBorrowTimeoutMillis(Long.getLong("cs208.pool.borrowTimeoutMillis", settings.getBorrowTimeoutMillis()));
+        settings.setIdleTimeoutMillis(Long.getLong("cs208.pool.idleTimeoutMillis", settings.getIdleTimeoutMillis()));
+        settings.setValidationIntervalMillis(Long.getLong("cs208.pool.validationIntervalMillis", settings.getValidationIntervalMillis()));
+        settings.setValidationTimeoutSeconds(Integer.getInteger("cs208.pool.validationTimeoutSeconds", settings.getValidationTimeoutSeconds()));
+        settings.setLeakDetectionThresholdMillis(Long.getLong("cs208.pool.leakDetectionThresholdMillis", settings.getLeakDetectionThresholdMillis()));
+        settings.setStatementCacheSize(Integer.getInteger("cs208.pool.statementCacheSize", settings.getStatementCacheSize()));
+        return settings;
+    }
+
+    public int getMaxPoolSize()
+    {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize)
+    {
+        if (maxPoolSize < 1)
+        {
+            throw new IllegalArgumentException("maxPoolSize must be at least 1, got " + maxPoolSize);
+        }
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public long getBorrowTimeoutMillis()
+    {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis)
+    {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis()
+    {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis)
+    {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getValidationIntervalMillis()
+    {
+        return validationIntervalMillis;
+    }
+
+    public void setValidationIntervalMillis(long validationIntervalMillis)
+    {
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    public int getValidationTimeoutSeconds()
+    {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds)
+    {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getLeakDetectionThresholdMillis()
+    {
+        return leakDetectionThresholdMillis;
+    }
+
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis)
+    {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+
+    public int getStatementCacheSize()
+    {
+        return statementCacheSize;
+    }
+
+    /**
+     * @param statementCacheSize the number of prepared statements cached per connection, 0 disables the cache
+     */
+    public void setStatementCacheSize(int statementCacheSize)
+    {
+        if (statementCacheSize < 0)
+        {
+            throw new IllegalArgumentException("statementCacheSize must not be negative, got " + statementCacheSize);
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConnectionPoolSettings{" +
+                "maxPoolSize=" + maxPoolSize +
+                ", borrowTimeoutMillis=" + borrowTimeoutMillis +
+                ", idleTimeoutMillis=" + idleTimeoutMillis +
+                ", validationIntervalMillis=" + validationIntervalMillis +
+                ", validationTimeoutSeconds=" + validationTimeoutSeconds +
+                ", leakDetectionThresholdMillis=" + leakDetectionThresholdMillis +
+                ", statementCacheSize=" + statementCacheSize +
+                '}';
+    }
+}
@@ -0,0 +1,414 @@
+package cs208;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streams CSV files of classes, students or enrollments into the database.
+ * <p>
+ * Records are read one at a time, so memory use does not depend on the size of the file.
+ * Rows are inserted with JDBC batching on the database's writer thread, {@code batchSize} rows per write,
+ * leaving the journal mode and synchronous setting to the {@link DatabaseProfile}.
+ * A file may start with a header row naming its columns (in any order), otherwise the columns are expected
+ * in the order documented on each import method.
+ * Rows that cannot be parsed or violate a constraint are skipped and counted as rejected.
+ */
+public class CsvImporter
+{
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private static final String[] CLASS_COLUMNS = {"code", "title", "description", "max_students"};
+    private static final String[] STUDENT_COLUMNS = {"first_name", "last_name", "birth_date"};
+    private static final String[] ENROLLMENT_COLUMNS = {"class_id", "student_id"};
+
+    private final Database database;
+    private final int batchSize;
+
+    public CsvImporter(Database database, int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("batchSize must be at least 1, got " + batchSize);
+        }
+        this.database = database;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports classes from a CSV file with the columns {@code [id,]code,title,description,max_students}.
+     * Classes whose id or code already exists are rejected.
+     */
+    public Result importClasses(Path csvFile) throws IOException, SQLException
+    {
+        String sql =
+                "INSERT OR IGNORE INTO classes (id, code, title, description, max_students)\n" +
+                "VALUES (?, ?, ?, ?, ?);";
+
+        try
+        {
+            return importRows(csvFile, CLASS_COLUMNS, sql, (record, columns, statement) -> {
+                Class newClass = new Class(
+                        columns.required(record, "code"),
+                        columns.required(record, "title"),
+                        columns.optional(record, "description"),
+                        Integer.parseInt(columns.required(record, "max_students"))
+                );
+                bindOptionalId(statement, columns.optional(record, "id"));
+                statement.setString(2, newClass.getCode());
+                statement.setString(3, newClass.getTitle());
+                statement.setString(4, newClass.getDescription());
+                statement.setInt(5, newClass.getMaxStudents());
+            });
+        }
+        finally
+        {
+            // also after a failed import, whose earlier chunks stay committed
+            database.discardCachedClasses();
+        }
+    }
+
+    /**
+     * Imports students from a CSV file with the columns {@code [id,]first_name,last_name,birth_date},
+     * birth dates in the ISO format (yyyy-mm-dd).
+     * Students whose id already exists are rejected.
+     */
+    public Result importStudents(Path csvFile) throws IOException, SQLException
+    {
+        String sql =
+                "INSERT OR IGNORE INTO students (id, first_name, last_name, birth_date)\n" +
+                "VALUES (?, ?, ?, ?);";
+
+        try
+        {
+            return importRows(csvFile, STUDENT_COLUMNS, sql, (record, columns, statement) -> {
+                Student newStudent = new Student(
+                        columns.required(record, "first_name"),
+                        columns.required(record, "last_name"),
+                        Date.valueOf(columns.required(record, "birth_date"))
+                );
+                bindOptionalId(statement, columns.optional(record, "id"));
+                statement.setString(2, newStudent.getFirstName());
+                statement.setString(3, newStudent.getLastName());
+                statement.setString(4, newStudent.getBirthDate().toString());
+            });
+        }
+        finally
+        {
+            // the rows were inserted without going through addNewStudent, so the name index is rebuilt on its next use,
+            // also after a failed import, whose earlier chunks stay committed
+            database.discardStudentNameIndex();
+        }
+    }
+
+    /**
+     * Imports enrollments from a CSV file with the columns {@code class_id,student_id}.
+     * Every chunk of {@code batchSize} rows goes through {@link Database#enrollBatch(java.util.Collection)},
+     * so missing ids, existing enrollments and full classes are rejected the same way as for any batch enrollment.
+     */
+    public Result importEnrollments(Path csvFile) throws IOException, SQLException
+    {
+        Result result = new Result();
+        long startNanos = System.nanoTime();
+
+        try (CsvReader csvReader = new CsvReader(Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)))
+        {
+            List<String> firstRecord = csvReader.readRecord();
+            ColumnMapping columns = ColumnMapping.of(firstRecord, ENROLLMENT_COLUMNS);
+            List<String> record = columns.hasHeader() ? csvReader.readRecord() : firstRecord;
+
+            List<Enrollment> chunk = new ArrayList<>(batchSize);
+            for (; record != null; record = csvReader.readRecord())
+            {
+                if (isBlank(record))
+                {
+                    continue;
+                }
+
+                try
+                {
+                    chunk.add(new Enrollment(
+                            Integer.parseInt(columns.required(record, "class_id")),
+                            Integer.parseInt(columns.required(record, "student_id"))
+                    ));
+                }
+                catch (RuntimeException exception)
+                {
+                    result.reject("record " + csvReader.getRecordNumber() + ": " + describe(exception));
+                    continue;
+                }
+
+                if (chunk.size() == batchSize)
+                {
+                    enrollChunk(chunk, result);
+                }
+            }
+            if (!chunk.isEmpty())
+            {
+                enrollChunk(chunk, result);
+            }
+        }
+
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    private void enrollChunk(List<Enrollment> chunk, Result result) throws SQLException
+    {
+        EnrollmentBatchResult batchResult = database.enrollBatch(chunk);
+        result.rowsImported += batchResult.getNumberOfEnrollmentsInserted();
+        for (EnrollmentBatchResult.Failure failure : batchResult.getFailures())
+        {
+            result.reject(failure.toString());
+        }
+        chunk.clear();
+    }
+
+    private Result importRows(Path csvFile, String[] expectedColumns, String sql, RowBinder rowBinder) throws IOException, SQLException
+    {
+        Result result = new Result();
+        long startNanos = System.nanoTime();
+
+        try (CsvReader csvReader = new CsvReader(Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)))
+        {
+            List<String> firstRecord = csvReader.readRecord();
+            ColumnMapping columns = ColumnMapping.of(firstRecord, expectedColumns);
+            List<String> record = columns.hasHeader() ? csvReader.readRecord() : firstRecord;
+
+            List<List<String>> chunk = new ArrayList<>(batchSize);
+            List<Long> recordNumbers = new ArrayList<>(batchSize);
+            for (; record != null; record = csvReader.readRecord())
+            {
+                if (isBlank(record))
+                {
+                    continue;
+                }
+                chunk.add(record);
+                recordNumbers.add(csvReader.getRecordNumber());
+
+                if (chunk.size() == batchSize)
+                {
+                    insertChunk(sql, rowBinder, columns, chunk, recordNumbers, result);
+                }
+            }
+            if (!chunk.isEmpty())
+            {
+                insertChunk(sql, rowBinder, columns, chunk, recordNumbers, result);
+            }
+        }
+
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    /**
+     * Inserts a chunk of records through the database's writer thread, in one transaction
+     * (shared with any other writes queued at the same time), so the import never competes for SQLite's write lock
+     */
+    private void insertChunk(String sql, RowBinder rowBinder, ColumnMapping columns,
+                             List<List<String>> chunk, List<Long> recordNumbers, Result result) throws SQLException
+    {
+        Result chunkResult = database.write(connection -> {
+            Result insertedRows = new Result();
+            try (PreparedStatement insertStatement = connection.prepareStatement(sql))
+            {
+                for (int i = 0; i < chunk.size(); i++)
+                {
+                    try
+                    {
+                        rowBinder.bind(chunk.get(i), columns, insertStatement);
+                    }
+                    catch (RuntimeException exception)
+                    {
+                        insertedRows.reject("record " + recordNumbers.get(i) + ": " + describe(exception));
+                        continue;
+                    }
+                    insertStatement.addBatch();
+                }
+
+                for (int updateCount : insertStatement.executeBatch())
+                {
+                    // INSERT OR IGNORE reports 0 rows for a row skipped because of a duplicate id or code
+                    if (updateCount == 0)
+                    {
+                        insertedRows.reject("a row was skipped because its id or code already exists");
+                    }
+                    else
+                    {
+                        insertedRows.rowsImported++;
+                    }
+                }
+            }
+            return insertedRows;
+        });
+        result.add(chunkResult);
+        chunk.clear();
+        recordNumbers.clear();
+    }
+
+    private static void bindOptionalId(PreparedStatement statement, String id) throws SQLException
+    {
+        if (id == null || id.isEmpty())
+        {
+            // a NULL INTEGER PRIMARY KEY makes SQLite assign the next id
+            statement.setNull(1, Types.INTEGER);
+        }
+        else
+        {
+            statement.setInt(1, Integer.parseInt(id));
+        }
+    }
+
+    private static String describe(RuntimeException exception)
+    {
+        // e.g. Date.valueOf() throws an IllegalArgumentException without a message
+        return exception.getMessage() != null ? exception.getMessage() : exception.toString();
+    }
+
+    private static boolean isBlank(List<String> record)
+    {
+        return record.size() == 1 && record.get(0).isEmpty();
+    }
+
+    /**
+     * Parses one CSV record and binds it to the insert statement,
+     * throwing a RuntimeException (e.g. NumberFormatException) if the record is invalid
+     */
+    private interface RowBinder
+    {
+        void bind(List<String> record, ColumnMapping columns, PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Where each named column is found in a record, taken from the header row when there is one
+     */
+    private static class ColumnMapping
+    {
+        private final List<String> columnNames;
+        private final boolean header;
+
+        private ColumnMapping(List<String> columnNames, boolean header)
+        {
+            this.columnNames = columnNames;
+            this.header = header;
+        }
+
+        private static ColumnMapping of(List<String> firstRecord, String[] expectedColumns)
+        {
+            if (firstRecord != null)
+            {
+                List<String> normalizedNames = new ArrayList<>(firstRecord.size());
+                for (String name : firstRecord)
+                {
+                    normalizedNames.add(name.trim().toLowerCase());
+                }
+                if (normalizedNames.contains(expectedColumns[0]))
+                {
+                    return new ColumnMapping(normalizedNames, true);
+                }
+            }
+            return new ColumnMapping(List.of(expectedColumns), false);
+        }
+
+        private boolean hasHeader()
+        {
+            return header;
+        }
+
+        private String optional(List<String> record, String columnName)
+        {
+            int index = columnNames.indexOf(columnName);
+            if (index < 0 || index >= record.size())
+            {
+                return null;
+            }
+            return record.get(index);
+        }
+
+        private String required(List<String> record, String columnName)
+        {
+            String value = optional(record, columnName);
+            if (value == null || value.isEmpty())
+            {
+                throw new IllegalArgumentException("missing value for column " + columnName);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * The number of rows imported and rejected by one import, and how long it took
+     */
+    public static class Result
+    {
+        private long rowsImported;
+        private long rowsRejected;
+        private long elapsedNanos;
+        private final List<String> errors = new ArrayList<>();
+
+        private void reject(String error)
+        {
+            rowsRejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS)
+            {
+                errors.add(error);
+            }
+        }
+
+        private void add(Result chunkResult)
+        {
+            rowsImported += chunkResult.rowsImported;
+            rowsRejected += chunkResult.rowsRejected;
+            for (String error : chunkResult.errors)
+            {
+                if (errors.size() < MAX_REPORTED_ERRORS)
+                {
+                    errors.add(error);
+                }
+            }
+        }
+
+        public long getRowsImported()
+        {
+            return rowsImported;
+        }
+
+        public long getRowsRejected()
+        {
+            return rowsRejected;
+        }
+
+        public double getElapsedSeconds()
+        {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+
+        public double getRowsPerSecond()
+        {
+            return elapsedNanos == 0 ? 0.0 : rowsImported / getElapsedSeconds();
+        }
+
+        /**
+         * @return the reasons of the first few rejected rows
+         */
+        public List<String> getErrors()
+        {
+            return Collections.unmodifiableList(errors);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("imported %d rows, rejected %d rows in %.2f s (%.0f rows/s)",
+                    rowsImported, rowsRejected, getElapsedSeconds(), getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cs208;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 style CSV records one at a time, so files of any size can be processed in constant memory.
+ * <p>
+ * Fields may be quoted with double quotes, in which case they can contain commas, line breaks
+ * and doubled double quotes ({@code ""}) standing for a literal double quote.
+ */
+public class CsvReader implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLength;
+    private final StringBuilder field = new StringBuilder();
+    private long recordNumber;
+
+    public CsvReader(Reader reader)
+    {
+        // the reader is consumed through our own char[] buffer, so it does not need to be a BufferedReader
+        this.reader = reader;
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the input
+     * @throws IOException if the input cannot be read or a quoted field is never closed
+     */
+    public List<String> readRecord() throws IOException
+    {
+        int character = read();
+        if (character == -1)
+        {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldWasQuoted = false;
+        while (true)
+        {
+            if (quoted)
+            {
+                if (character == -1)
+                {
+                    throw new IOException("unterminated quoted field in CSV record " + (recordNumber + 1));
+                }
+                if (character == '"')
+                {
+                    int next = read();
+                    if (next == '"')
+                    {
+                        field.append('"');
+                    }
+                    else
+                    {
+                        quoted = false;
+                        character = next;
+                        continue;
+                    }
+                }
+                else
+                {
+                    field.append((char) character);
+                }
+            }
+            else if (character == ',')
+            {
+                fields.add(finishField(fieldWasQuoted));
+                fieldWasQuoted = false;
+            }
+            else if (character == '\n' || character == -1)
+            {
+                break;
+            }
+            else if (character == '\r')
+            {
+                int next = read();
+                if (next != '\n' && next != -1)
+                {
+                    unread();
+                }
+                break;
+            }
+            else if (character == '"' && field.length() == 0 && !fieldWasQuoted)
+            {
+                quoted = true;
+                fieldWasQuoted = true;
+            }
+            else
+            {
+                field.append((char) character);
+            }
+            character = read();
+        }
+
+        fields.add(finishField(fieldWasQuoted));
+        recordNumber++;
+        return fields;
+    }
+
+    /**
+     * @return the number of records read so far
+     */
+    public long getRecordNumber()
+    {
+        return recordNumber;
+    }
+
+    private String finishField(boolean fieldWasQuoted)
+    {
+        String value = fieldWasQuoted ? field.toString() : field.toString().trim();
+        field.setLength(0);
+        return value;
+    }
+
+    private int read() throws IOException
+    {
+        if (bufferPosition == bufferLength)
+        {
+            bufferLength = reader.read(buffer, 0, buffer.length);
+            bufferPosition = 0;
+            if (bufferLength <= 0)
+            {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+        return buffer[bufferPosition++];
+    }
+
+    private void unread()
+    {
+        bufferPosition--;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -1,10 +1,36 @@
 package cs208;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.Locale;
 import java.util.Scanner;
 
 import org.sqlite.SQLiteConfig;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 import javax.print.attribute.standard.DateTimeAtCreation;
 import java.sql.Date;
 
@@ -17,45 +43,428 @@ import java.sql.Date;
  */
 public class Database
 {
+    // number of rows sent to SQLite per executeBatch() call by the bulk operations
+    private static final int ENROLLMENT_BATCH_SIZE = 1000;
+
+    // the most invalid ids reported by a rejected remapStudentIds()
+    private static final int MAX_REPORTED_INVALID_IDS = 100;
+
+    // the most students suggested when a name typed on the console matches nobody
+    private static final int NAME_SUGGESTIONS = 5;
+
+    // size of the output buffer used by the export methods, independent of the number of rows exported
+    private static final int EXPORT_BUFFER_SIZE = 1 << 16;
+
+    // the queries behind the list methods, shared with the matching export methods
+    private static final String LIST_ALL_CLASSES_SQL =
+            "SELECT id, code, title, description, max_students\n" +
+            "FROM classes;";
+    private static final String LIST_ALL_STUDENTS_SQL =
+            "SELECT id, first_name, last_name, birth_date\n" +
+            "FROM students;";
+    private static final String LIST_ALL_REGISTERED_STUDENTS_SQL =
+            "SELECT registered_students.class_id, students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
+            "FROM students\n" +
+            "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
+            "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
+            "ORDER BY students.last_name, students.first_name, classes.code;";
+
+    // the most rows returned in one page by the paginated list methods
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // the queries behind the paginated list methods, each page sorted by key columns ending with a unique id,
+    // so that no two rows share a key
+    private static final PagedQuery CLASSES_PAGE_QUERY = new PagedQuery("classes",
+            "id, code, title, description, max_students",
+            "FROM classes",
+            "id");
+    private static final PagedQuery STUDENTS_PAGE_QUERY = new PagedQuery("students",
+            "id, first_name, last_name, birth_date",
+            "FROM students",
+            "id");
+    // same order as listAllRegisteredStudents(); a NULL class code would never compare, so it is keyed as ''
+    private static final PagedQuery REGISTERED_STUDENTS_PAGE_QUERY = new PagedQuery("registered_students",
+            "registered_students.class_id, students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title",
+            "FROM students\n" +
+            "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
+            "INNER JOIN classes ON classes.id = registered_students.class_id",
+            "students.last_name", "students.first_name", "students.id", "COALESCE(classes.code, '')", "classes.id");
+
+    // changes only the columns whose parameter is not NULL, see updateStudent()
+    private static final String UPDATE_STUDENT_SQL =
+            "UPDATE students\n" +
+            "SET first_name = COALESCE(?, first_name), last_name = COALESCE(?, last_name), birth_date = COALESCE(?, birth_date)\n" +
+            "WHERE id = ?;";
+
     private final String sqliteFileName;
+    private final DatabaseProfile databaseProfile;
+    private final ConnectionPool connectionPool;
+    private final QueryMetrics queryMetrics = QueryMetrics.fromSystemProperties();
+    private final ObjectName queryMetricsName;
+    private final GroupCommitWriter groupCommitWriter;
+    private final ClassCatalogCache classCatalogCache = new ClassCatalogCache();
+    // null until loadEnrollmentGraph(), then only replaced and updated on the writer thread
+    private volatile EnrollmentGraph enrollmentGraph;
+    // null until first used by getWaitlist(), then only replaced and updated on the writer thread
+    private volatile Waitlist waitlist;
+    // null until first used by getStudentNameIndex(), then only replaced and updated on the writer thread
+    private volatile StudentNameIndex studentNameIndex;
     public Class oldClassInfo;
 
     public Database(String sqliteFileName) {
+        this(sqliteFileName, ConnectionPoolSettings.fromSystemProperties());
+    }
+
+    public Database(String sqliteFileName, ConnectionPoolSettings connectionPoolSettings) {
+        this(sqliteFileName, connectionPoolSettings, DatabaseProfile.fromSystemProperties());
+    }
+
+    public Database(String sqliteFileName, ConnectionPoolSettings connectionPoolSettings, DatabaseProfile databaseProfile) {
+        this(sqliteFileName, connectionPoolSettings, databaseProfile, GroupCommitSettings.fromSystemProperties());
+    }
+
+    public Database(String sqliteFileName, ConnectionPoolSettings connectionPoolSettings, DatabaseProfile databaseProfile,
+                    GroupCommitSettings groupCommitSettings) {
         this.sqliteFileName = sqliteFileName;
+        this.databaseProfile = databaseProfile;
+
+        // NOTE:
+        // 'jdbc' is the protocol or API for connecting from a Java application to a database (SQLite, PostgreSQL, etc.)
+        // 'sqlite' is the format of the database (for PostgreSQL, we would use the 'postgresql' format)
+        String databaseConnectionURL = "jdbc:sqlite:" + sqliteFileName;
+        System.out.println("databaseConnectionURL = " + databaseConnectionURL);
+
+        SQLiteConfig sqLiteConfig = new SQLiteConfig();
+        // Enables enforcement of foreign keys constraints in the SQLite database every time we start the application
+        sqLiteConfig.enforceForeignKeys(true);
+        databaseProfile.applyTo(sqLiteConfig);
+        System.out.println("databaseProfile = " + databaseProfile);
+
+        this.connectionPool = new ConnectionPool(databaseConnectionURL, sqLiteConfig.toProperties(), connectionPoolSettings, queryMetrics);
+        this.queryMetricsName = registerQueryMetricsMBean();
+        this.groupCommitWriter = new GroupCommitWriter(this, groupCommitSettings);
     }
 
     /**
-     * Creates a connection to the SQLite database file specified in the {@link #Database(String) constructor}
+     * Borrows a connection to the SQLite database file specified in the {@link #Database(String) constructor}
+     * from the connection pool.
+     * Calling {@code close()} on the returned connection gives it back to the pool instead of closing it.
      *
      * @return a connection to the database, which can be used to execute SQL statements against in the database
-     * @throws SQLException if we cannot connect to the database (e.g., missing driver)
+     * @throws SQLException if we cannot connect to the database (e.g., missing driver) or the pool stays exhausted
      */
     public Connection getDatabaseConnection() throws SQLException
     {
-        // NOTE:
-        // 'jdbc' is the protocol or API for connecting from a Java application to a database (SQLite, PostgreSQL, etc.)
-        // 'sqlite' is the format of the database (for PostgreSQL, we would use the 'postgresql' format)
-        String databaseConnectionURL = "jdbc:sqlite:" + sqliteFileName;
-        System.out.println("databaseConnectionURL = " + databaseConnectionURL);
-
-        Connection connection;
         try
         {
-            SQLiteConfig sqLiteConfig = new SQLiteConfig();
-            // Enables enforcement of foreign keys constraints in the SQLite database every time we start the application
-            sqLiteConfig.enforceForeignKeys(true);
-
-            connection = DriverManager.getConnection(databaseConnectionURL, sqLiteConfig.toProperties());
-            return connection;
+            return connectionPool.borrow();
         }
         catch (SQLException sqlException)
         {
-            System.err.println("SQLException was thrown while trying to connect using the '" + databaseConnectionURL + "' connection URL");
+            System.err.println("SQLException was thrown while trying to connect to the '" + sqliteFileName + "' database");
             System.err.println(sqlException.getMessage());
             throw sqlException;
         }
     }
 
+    /**
+     * @return the profile whose pragmas are applied to every connection
+     */
+    public DatabaseProfile getDatabaseProfile()
+    {
+        return databaseProfile;
+    }
+
+    /**
+     * @return the cache behind the class lookups, e.g. to read its hit ratio
+     */
+    public ClassCatalogCache getClassCatalogCache()
+    {
+        return classCatalogCache;
+    }
+
+    /**
+     * @return a snapshot of the connection pool usage, including borrow wait times and saturation
+     */
+    public ConnectionPool.Statistics getConnectionPoolStatistics()
+    {
+        return connectionPool.getStatistics();
+    }
+
+    /**
+     * @return the latency, row and error counts of every SQL statement run so far, and the recent slow queries
+     */
+    public QueryMetrics getQueryMetrics()
+    {
+        return queryMetrics;
+    }
+
+    /**
+     * Makes the query metrics readable over JMX, e.g. with JConsole
+     *
+     * @return the name the metrics were registered under, or null if they could not be registered
+     */
+    private ObjectName registerQueryMetricsMBean()
+    {
+        try
+        {
+            ObjectName name = new ObjectName("cs208:type=QueryMetrics,database=" + ObjectName.quote(sqliteFileName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(queryMetrics, name);
+            return name;
+        }
+        catch (JMException jmException)
+        {
+            // e.g. a second Database opened on the same file, its metrics are still available through getQueryMetrics()
+            System.err.println("!!! WARNING: the query metrics of '" + sqliteFileName + "' are not available over JMX: " + jmException.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return a snapshot of the write queue depth and of the size of the groups committed by the writer thread
+     */
+    public GroupCommitWriter.Statistics getWriteStatistics()
+    {
+        return groupCommitWriter.getStatistics();
+    }
+
+    /**
+     * Queues a write for the single writer thread, which commits it together with the other writes queued at the same time
+     *
+     * @return a future completed with the result of the operation once it has been committed
+     */
+    public <T> CompletableFuture<T> submitWrite(WriteOperation<T> operation)
+    {
+        return groupCommitWriter.submit(operation);
+    }
+
+    /**
+     * Runs a write on the writer thread and waits until it has been committed
+     */
+    <T> T write(WriteOperation<T> operation) throws SQLException
+    {
+        return write(operation, null);
+    }
+
+    /**
+     * Runs a write on the writer thread and waits until it has been committed and {@code afterCommit} has run,
+     * see {@link GroupCommitWriter#submit(WriteOperation, Consumer)}
+     */
+    private <T> T write(WriteOperation<T> operation, Consumer<? super T> afterCommit) throws SQLException
+    {
+        try
+        {
+            return groupCommitWriter.submit(operation, afterCommit).get();
+        }
+        catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a write to be committed", interruptedException);
+        }
+        catch (ExecutionException executionException)
+        {
+            Throwable cause = executionException.getCause();
+            if (cause instanceof SQLException)
+            {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Loads every enrollment into an {@link EnrollmentGraph}, which from then on answers
+     * {@link #getStudentsInClass(int)}, {@link #getStudentSchedule(int)} and {@link #getClassesSharedBy(int, int)}
+     * and is kept in sync with every enrollment change made through this Database.
+     * The load runs on the writer thread, so no write can slip in between the snapshot and the first update.
+     *
+     * @throws SQLException if the enrollments cannot be read
+     */
+    public void loadEnrollmentGraph() throws SQLException
+    {
+        write(EnrollmentGraph::load, graph -> enrollmentGraph = graph);
+    }
+
+    /**
+     * @return the in-memory enrollment graph, or null if {@link #loadEnrollmentGraph()} was not called
+     */
+    public EnrollmentGraph getEnrollmentGraph()
+    {
+        return enrollmentGraph;
+    }
+
+    /**
+     * Returns the in-memory copy of the waitlist table, loading it on first use.
+     * Like the enrollment graph, it is loaded on the writer thread and kept in sync after every commit.
+     *
+     * @throws SQLException if the waitlist has to be loaded and cannot be read
+     */
+    public Waitlist getWaitlist() throws SQLException
+    {
+        if (waitlist == null)
+        {
+            write(Waitlist::load, loadedWaitlist -> {
+                if (waitlist == null)
+                {
+                    waitlist = loadedWaitlist;
+                }
+            });
+        }
+        return waitlist;
+    }
+
+    /**
+     * Returns the in-memory index of the student names, loading it on first use.
+     * Like the enrollment graph, it is loaded on the writer thread and kept in sync after every commit.
+     *
+     * @throws SQLException if the index has to be loaded and the students cannot be read
+     */
+    public StudentNameIndex getStudentNameIndex() throws SQLException
+    {
+        if (studentNameIndex == null)
+        {
+            write(StudentNameIndex::load, loadedIndex -> {
+                if (studentNameIndex == null)
+                {
+                    studentNameIndex = loadedIndex;
+                }
+            });
+        }
+        return studentNameIndex;
+    }
+
+    /**
+     * Drops the student name index after students were written around this Database (e.g. by a {@link CsvImporter}),
+     * so the next search loads it again
+     */
+    void discardStudentNameIndex() throws SQLException
+    {
+        write(connection -> null, ignored -> studentNameIndex = null);
+    }
+
+    /**
+     * Forgets every cached class after classes were written around this Database's class methods (e.g. by a {@link CsvImporter})
+     */
+    void discardCachedClasses()
+    {
+        classCatalogCache.invalidateAll();
+    }
+
+    /**
+     * Finds students by a partial or mistyped name, see {@link StudentNameIndex#search(String, int)}
+     *
+     * @return the best matching students, best first
+     * @throws SQLException if the index cannot be loaded or the students cannot be read
+     */
+    public List<Student> searchStudentsByName(String query, int limit) throws SQLException
+    {
+        int[] studentIds = getStudentNameIndex().search(query, limit);
+        if (studentIds.length == 0)
+        {
+            return List.of();
+        }
+
+        String sql =
+                "SELECT id, first_name, last_name, birth_date\n" +
+                "FROM students\n" +
+                "WHERE id IN (" + String.join(", ", Collections.nCopies(studentIds.length, "?")) + ");";
+        Map<Integer, Student> studentsById = new HashMap<>();
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        )
+        {
+            for (int i = 0; i < studentIds.length; i++)
+            {
+                preparedStatement.setInt(i + 1, studentIds[i]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                while (resultSet.next())
+                {
+                    Student student = readStudent(resultSet);
+                    studentsById.put(student.getId(), student);
+                }
+            }
+        }
+
+        List<Student> students = new ArrayList<>(studentIds.length);
+        for (int studentId : studentIds)
+        {
+            Student student = studentsById.get(studentId);
+            if (student != null)
+            {
+                students.add(student);
+            }
+        }
+        return students;
+    }
+
+    /**
+     * Applies committed enrollment changes to the in-memory enrollment graph and waitlist, if they are loaded;
+     * only called after a commit on the writer thread, see {@link #write(WriteOperation, Consumer)}.
+     * A student who got enrolled leaves the waitlist of that class.
+     */
+    private void applyEnrollmentChanges(Collection<Enrollment> enrolled, Collection<Enrollment> dropped)
+    {
+        EnrollmentGraph graph = enrollmentGraph;
+        Waitlist loadedWaitlist = waitlist;
+        for (Enrollment enrollment : dropped)
+        {
+            if (graph != null)
+            {
+                graph.remove(enrollment.getClassId(), enrollment.getStudentId());
+            }
+        }
+        for (Enrollment enrollment : enrolled)
+        {
+            if (graph != null)
+            {
+                graph.add(enrollment.getClassId(), enrollment.getStudentId());
+            }
+            if (loadedWaitlist != null)
+            {
+                loadedWaitlist.remove(enrollment.getClassId(), enrollment.getStudentId());
+            }
+        }
+    }
+
+    /**
+     * Applies the schema migrations under {@code src/main/resources/sql/migrations} that have not been applied yet
+     *
+     * @return the number of migrations that were applied
+     * @throws SQLException if a migration fails
+     */
+    public int applyPendingMigrations() throws SQLException
+    {
+        return new SchemaMigrator(this).applyPendingMigrations();
+    }
+
+    /**
+     * Commits the writes still queued and closes every pooled connection, should be called once when the application exits
+     */
+    public void close()
+    {
+        groupCommitWriter.close();
+        connectionPool.close();
+        if (queryMetricsName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(queryMetricsName);
+            }
+            catch (JMException ignored)
+            {
+                // already unregistered
+            }
+        }
+    }
+
     /**
      * Tests the connection to the database by running a simple SQL SELECT statement
      * to return the driver version used to connect to the database
@@ -179,97 +588,119 @@ public class Database
         }
     }
 
-    public void listAllClasses() {
-        String sql =
-                "SELECT id, code, title, description, max_students\n" +
-                        "FROM classes;";
-
+    /**
+     * @return every class, in the order they are stored
+     * @throws SQLException if the classes table cannot be queried
+     */
+    public List<Class> listAllClasses() throws SQLException
+    {
         try
-                (
-                        Connection connection = getDatabaseConnection();
-                        Statement sqlStatement = connection.createStatement();
-                        ResultSet resultSet = sqlStatement.executeQuery(sql);
-                ) {
-            //print table header
-            printTableHeader(new String[]{"id", "code", "title", "description", "max_students"});
-
+        (
+            Connection connection = getDatabaseConnection();
+            Statement sqlStatement = connection.createStatement();
+            ResultSet resultSet = sqlStatement.executeQuery(LIST_ALL_CLASSES_SQL);
+        )
+        {
+            List<Class> classes = new ArrayList<>();
             // resultSet.next() either
             // advances to the next returned record (row)
             // or
             // returns false if there are no more records
-            while (resultSet.next()) {
-                // extract the values from the current row
-                int id = resultSet.getInt("id");
-                String code = resultSet.getString("code");
-                String title = resultSet.getString("title");
-                String description = resultSet.getString("description");
-                int maxStudents = resultSet.getInt("max_students");
+            while (resultSet.next())
+            {
+                classes.add(readClass(resultSet));
+            }
+            return classes;
+        }
+    }
+
+    /**
+     * Lists the classes one page at a time, in id order
+     *
+     * @param cursor   null for the first page, otherwise the next or previous cursor of a page returned by this method
+     * @param pageSize the most classes in the page
+     * @throws IllegalArgumentException if the cursor was not returned by this method or the page size is out of range
+     */
+    public Page<Class> listClasses(String cursor, int pageSize) throws SQLException
+    {
+        return listPage(CLASSES_PAGE_QUERY, cursor, pageSize, Database::readClass);
+    }
+
+    private static Class readClass(ResultSet resultSet) throws SQLException
+    {
+        return new Class(
+                resultSet.getInt("id"),
+                resultSet.getString("code"),
+                resultSet.getString("title"),
+                resultSet.getString("description"),
+                resultSet.getInt("max_students")
+        );
+    }
+
+    public void addNewClass(Class newClass)
+    {
+        try
+        {
+            int generatedIdForTheNewlyInsertedClass = insertClass(newClass);
+            System.out.println("numberOfRowsAffected = " + (generatedIdForTheNewlyInsertedClass > 0 ? 1 : 0));
 
-                // print the results of the current row
-                System.out.printf("| %d | %s | %s | %s | %d |%n", id, code, title, description, maxStudents);
+            if (generatedIdForTheNewlyInsertedClass > 0)
+            {
+                System.out.println("SUCCESSFULLY inserted a new class with id = " + generatedIdForTheNewlyInsertedClass);
             }
-        } catch (SQLException sqlException) {
-            System.out.println("!!! SQLException: failed to query the classes table. Make sure you executed the schema.sql and seeds.sql scripts");
+        }
+        catch (SQLException sqlException)
+        {
+            System.out.println("!!! SQLException: failed to insert into the classes table");
             System.out.println(sqlException.getMessage());
         }
     }
 
-    public void addNewClass(Class newClass)
+    /**
+     * Inserts a new class and sets its generated id on {@code newClass}.
+     *
+     * @return the generated id, or 0 if no row was inserted
+     * @throws SQLException if the insert fails, e.g. when a class with the same code already exists
+     */
+    public int insertClass(Class newClass) throws SQLException
     {
         String sql =
                 "INSERT INTO classes (code, title, description, max_students)\n" +
                 "VALUES (?, ?, ?, ?);";
 
-        try
-        (
-            Connection connection = getDatabaseConnection();
-            PreparedStatement sqlStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-        )
-        {
-            sqlStatement.setString(1, newClass.getCode());
-            sqlStatement.setString(2, newClass.getTitle());
-            sqlStatement.setString(3, newClass.getDescription());
-            sqlStatement.setInt(4, newClass.getMaxStudents());
-
-            int numberOfRowsAffected = sqlStatement.executeUpdate();
-            System.out.println("numberOfRowsAffected = " + numberOfRowsAffected);
-
-            if (numberOfRowsAffected > 0)
+        // the generated id, or 0 if no row was inserted
+        int generatedIdForTheNewlyInsertedClass = write(connection -> {
+            try (PreparedStatement sqlStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
             {
-                ResultSet resultSet = sqlStatement.getGeneratedKeys();
+                sqlStatement.setString(1, newClass.getCode());
+                sqlStatement.setString(2, newClass.getTitle());
+                sqlStatement.setString(3, newClass.getDescription());
+                sqlStatement.setInt(4, newClass.getMaxStudents());
 
-                while (resultSet.next())
+                if (sqlStatement.executeUpdate() == 0)
+                {
+                    return 0;
+                }
+                try (ResultSet resultSet = sqlStatement.getGeneratedKeys())
                 {
                     // "last_insert_rowid()" is the column name that contains the id of the last inserted row
                     // alternatively, we could have used resultSet.getInt(1); to get the id of the first column returned
-                    int generatedIdForTheNewlyInsertedClass = resultSet.getInt("last_insert_rowid()");
-                    System.out.println("SUCCESSFULLY inserted a new class with id = " + generatedIdForTheNewlyInsertedClass);
-
-                    // this can be useful if we need to make additional processing on the newClass object
-                    newClass.setId(generatedIdForTheNewlyInsertedClass);
+                    return resultSet.next() ? resultSet.getInt("last_insert_rowid()") : 0;
                 }
-
-                resultSet.close();
             }
-        }
-        catch (SQLException sqlException)
+        });
+
+        if (generatedIdForTheNewlyInsertedClass > 0)
         {
-            System.out.println("!!! SQLException: failed to insert into the classes table");
-            System.out.println(sqlException.getMessage());
+            // this can be useful if we need to make additional processing on the newClass object
+            newClass.setId(generatedIdForTheNewlyInsertedClass);
+            classCatalogCache.invalidate(generatedIdForTheNewlyInsertedClass);
         }
+        return generatedIdForTheNewlyInsertedClass;
     }
     public Class getOldClassInfo(int classID){
-        String retVal = "SELECT *\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement ret = connection.prepareStatement(retVal);
-            ret.setInt(1, classID);
-            ResultSet resultSet = ret.executeQuery();
-            oldClassInfo = new Class(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4), resultSet.getInt(5));
-            connection.close();
-
+            oldClassInfo = findClassById(classID);
         }
         catch(SQLException sqlException){
             System.out.println("!!! SQLException: failed to update the class with id = " + classID);
@@ -286,15 +717,18 @@ public class Database
                 "WHERE id = ?;";
 
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement sqlStatement = connection.prepareStatement(sql);
-            sqlStatement.setString(1, classToUpdate.getCode());
-            sqlStatement.setString(2, classToUpdate.getTitle());
-            sqlStatement.setString(3, classToUpdate.getDescription());
-            sqlStatement.setInt(4, classToUpdate.getMaxStudents());
-            sqlStatement.setInt(5, classToUpdate.getId());
-
-            int numberOfRowsAffected = sqlStatement.executeUpdate();
+            int numberOfRowsAffected = write(connection -> {
+                try (PreparedStatement sqlStatement = connection.prepareStatement(sql))
+                {
+                    sqlStatement.setString(1, classToUpdate.getCode());
+                    sqlStatement.setString(2, classToUpdate.getTitle());
+                    sqlStatement.setString(3, classToUpdate.getDescription());
+                    sqlStatement.setInt(4, classToUpdate.getMaxStudents());
+                    sqlStatement.setInt(5, classToUpdate.getId());
+                    return sqlStatement.executeUpdate();
+                }
+            });
+            classCatalogCache.invalidate(classToUpdate.getId());
             System.out.println("numberOfRowsAffected = " + numberOfRowsAffected);
 
             if (numberOfRowsAffected > 0)
@@ -320,14 +754,15 @@ public class Database
                 "WHERE id = ?;";
 
         try
-        (
-            Connection connection = getDatabaseConnection();
-            PreparedStatement sqlStatement = connection.prepareStatement(sql);
-        )
         {
-            sqlStatement.setInt(1, idOfClassToDelete);
-
-            int numberOfRowsAffected = sqlStatement.executeUpdate();
+            int numberOfRowsAffected = write(connection -> {
+                try (PreparedStatement sqlStatement = connection.prepareStatement(sql))
+                {
+                    sqlStatement.setInt(1, idOfClassToDelete);
+                    return sqlStatement.executeUpdate();
+                }
+            });
+            classCatalogCache.invalidate(idOfClassToDelete);
             System.out.println("numberOfRowsAffected = " + numberOfRowsAffected);
 
             if (numberOfRowsAffected > 0)
@@ -346,39 +781,51 @@ public class Database
         }
     }
 
-    public void listAllStudents()
+    /**
+     * @return every student, in the order they are stored
+     * @throws SQLException if the students table cannot be queried
+     */
+    public List<Student> listAllStudents() throws SQLException
     {
-        String sql =
-                "SELECT id, first_name, last_name, birth_date\n" +
-                "FROM students;";
-
         try
         (
             Connection connection = getDatabaseConnection();
             Statement sqlStatement = connection.createStatement();
-            ResultSet resultSet = sqlStatement.executeQuery(sql);
+            ResultSet resultSet = sqlStatement.executeQuery(LIST_ALL_STUDENTS_SQL);
         )
         {
-            printTableHeader(new String[]{"id", "first_name", "last_name", "birth_date"});
-
+            List<Student> students = new ArrayList<>();
             while (resultSet.next())
             {
-                int id = resultSet.getInt("id");
-                String firstName = resultSet.getString("first_name");
-                String lastName = resultSet.getString("last_name");
-
-                // the resultSet.getDate() does not work in this case, so we're using the getString() method instead
-                String birthDate = resultSet.getString("birth_date");
-
-                // TODO: add your code here
-                System.out.printf("| %d | %s | %s | %s |%n", id, firstName, lastName, birthDate);
+                students.add(readStudent(resultSet));
             }
+            return students;
         }
-        catch (SQLException sqlException)
-        {
-            System.out.println("!!! SQLException: failed to query the students table. Make sure you executed the schema.sql and seeds.sql scripts");
-            System.out.println(sqlException.getMessage());
-        }
+    }
+
+    /**
+     * Lists the students one page at a time, in id order
+     *
+     * @param cursor   null for the first page, otherwise the next or previous cursor of a page returned by this method
+     * @param pageSize the most students in the page
+     * @throws IllegalArgumentException if the cursor was not returned by this method or the page size is out of range
+     */
+    public Page<Student> listStudents(String cursor, int pageSize) throws SQLException
+    {
+        return listPage(STUDENTS_PAGE_QUERY, cursor, pageSize, Database::readStudent);
+    }
+
+    private static Student readStudent(ResultSet resultSet) throws SQLException
+    {
+        // the resultSet.getDate() does not work in this case, so we're using the getString() method instead
+        String birthDate = resultSet.getString("birth_date");
+
+        return new Student(
+                resultSet.getInt("id"),
+                resultSet.getString("first_name"),
+                resultSet.getString("last_name"),
+                birthDate == null ? null : Date.valueOf(birthDate)
+        );
     }
 
     public void addNewStudent(Student newStudent)
@@ -399,301 +846,113 @@ public class Database
                         "FROM students;\n";
 
         try
+        {
+            // reading max(id) and inserting happen on the writer thread, so two new students can never get the same id
+            int generatedIdForTheNewlyInsertedStudent = write(connection -> {
+                try
                 (
-                        Connection connection = getDatabaseConnection();
-                        PreparedStatement sqlStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-                        Statement res = connection.createStatement();
-                        ResultSet resultSet = res.executeQuery(sql1);
+                    PreparedStatement sqlStatement = connection.prepareStatement(sql);
+                    Statement res = connection.createStatement();
+                    ResultSet resultSet = res.executeQuery(sql1);
                 )
-        {
-            int id = resultSet.getInt(1)+1;
-            newStudent.setId(id);
-            sqlStatement.setInt(1, newStudent.getId());
-            sqlStatement.setString(2, newStudent.getFirstName());
-            sqlStatement.setString(3, newStudent.getLastName());
-            sqlStatement.setString(4, newStudent.getBirthDate().toString());
-
-            int numberOfRowsAffected = sqlStatement.executeUpdate();
-            System.out.println("numberOfRowsAffected = " + numberOfRowsAffected);
+                {
+                    int id = resultSet.getInt(1)+1;
+                    sqlStatement.setInt(1, id);
+                    sqlStatement.setString(2, newStudent.getFirstName());
+                    sqlStatement.setString(3, newStudent.getLastName());
+                    if (newStudent.getBirthDate() == null)
+                    {
+                        sqlStatement.setNull(4, Types.VARCHAR);
+                    }
+                    else
+                    {
+                        sqlStatement.setString(4, newStudent.getBirthDate().toString());
+                    }
+                    return sqlStatement.executeUpdate() > 0 ? id : 0;
+                }
+            }, insertedId -> {
+                StudentNameIndex index = studentNameIndex;
+                if (insertedId > 0 && index != null)
+                {
+                    index.add(insertedId, newStudent.getFirstName(), newStudent.getLastName());
+                }
+            });
+            // the id is only set once the row has been committed, so a failed insert leaves it unset
+            newStudent.setId(generatedIdForTheNewlyInsertedStudent);
+            System.out.println("numberOfRowsAffected = " + (generatedIdForTheNewlyInsertedStudent > 0 ? 1 : 0));
         }
         catch (SQLException sqlException)
         {
-            System.out.println("!!! SQLException: failed to insert into the classes table");
+            System.out.println("!!! SQLException: failed to insert into the students table");
             System.out.println(sqlException.getMessage());
         }
     }
     public void UpdateExistingStudentInformation(int studentID){
-        int studentIDretry = 0;
-        int newid = 0;
-        String newname = null;
-        Date birthdate = null;
-        boolean working = false;
-        boolean uniqueid = false;
-        int choice;
-        boolean shouldexit = false;
         Scanner inputScannersub = new Scanner(System.in);
-        String sql =
-                "SELECT *\n" +
-                        "FROM students\n" +
-                        "WHERE students.id";
         try {
-            Connection connection = getDatabaseConnection();
-            Statement res = connection.createStatement();
-            ResultSet ResultSet0 = res.executeQuery(sql + "=" + studentID + ";");
-            if (!ResultSet0.next()) {
+            while (!studentExists(studentID)) {
                 System.out.println("Invalid ID number, try entering a valid student ID here: ");
-                studentIDretry = inputScannersub.nextInt();
-                connection.close();
-                UpdateExistingStudentInformation(studentIDretry);
+                studentID = Integer.parseInt(inputScannersub.nextLine().trim());
             }
-                while (!shouldexit) {
-                    System.out.println("What would you like to alter?");
-                    System.out.println(" 0 - Student ID (note: must be unique within the table).");
-                    System.out.println(" 1 - Student First Name");
-                    System.out.println(" 2 - Student Last Name");
-                    System.out.println(" 3 - Student Date of Birth");
 
-                        try {
-                            choice = Integer.parseInt(inputScannersub.nextLine());
-                        } catch (Exception e) {
-                            System.out.println("Invalid choice, expected an integer value. Please enter a number such as 0, 1, 2, or 3.");
-                            continue;
-                        }
-                        shouldexit = true;
-                        switch (choice) {
-                            case 0:
-                                while (!uniqueid) {
-                                    try {
-                                        System.out.println("Enter a new, unique integer student ID.");
-                                        newid = inputScannersub.nextInt();
-                                        String sql1 = "SELECT students.id\n" +
-                                                "FROM students\n" +
-                                                "WHERE students.id";
-                                        Statement sqlStatement = connection.createStatement();
-                                        ResultSet resultSet2 = sqlStatement.executeQuery(sql1 + "=" + newid);
-                                        if (!resultSet2.next()) {
-                                            uniqueid = true;
-                                            String sql2 = "UPDATE students\n" +
-                                                    "SET id = ?\n" +
-                                                    "WHERE id = ?";
-                                            PreparedStatement sqlStatement2 = connection.prepareStatement(sql2);
-                                            sqlStatement2.setInt(1,newid);
-                                            sqlStatement2.setInt(2,studentID);
-                                            sqlStatement2.execute();
-                                        }
-                                    } catch (Exception e) {
-                                        System.out.println("Invalid input, please try again.");
-                                        System.out.println(e.getMessage());
-                                    }
-                                }
-                                break;
-                            case 1:
-                                while(!working){
-                                    try{
-                                        System.out.println("Please enter the student's new first name: ");
-                                        newname = inputScannersub.next();
-                                        String sql3 = "UPDATE students\n" +
-                                                "SET first_name = ?\n" +
-                                                "WHERE id = ?";
-                                        PreparedStatement sqlStatement2 = connection.prepareStatement(sql3);
-                                        sqlStatement2.setString(1,newname);
-                                        sqlStatement2.setInt(2,studentID);
-                                        sqlStatement2.execute();
-                                        working = true;
-                                        connection.close();
-                                    }
-                                    catch(Exception e){
-                                        System.out.println("Invalid input, please try again.");
-                                        System.out.println(e.getMessage());
-                                    }
-                                }
-                                break;
-                            case 2:
-                                while(!working){
-                                    try{
-                                        System.out.println("Please enter the student's new last name: ");
-                                        newname = inputScannersub.nextLine();
-
-                                        String sql4 = "UPDATE students\n" +
-                                                "SET last_name = ?\n" +
-                                                "WHERE id = ?";
-                                        PreparedStatement sqlStatement2 = connection.prepareStatement(sql4);
-                                        sqlStatement2.setString(1,newname);
-                                        sqlStatement2.setInt(2,studentID);
-                                        sqlStatement2.execute();
-                                        working = true;
-                                        connection.close();
-                                    }
-                                    catch(Exception e){
-                                        System.out.println("Invalid input, please try again.");
-                                        System.out.println(e.getMessage());
-                                    }
-                                }
-                                break;
-                            case 3:
-                                while(!working){
-                                    try{
-                                        System.out.println("Please enter the student's new Date of Birth in YYYY-MM-DD format: ");
-                                        birthdate = Date.valueOf(inputScannersub.nextLine());
-                                        String sql5 = "UPDATE students\n" +
-                                                "SET birth_date = ?\n" +
-                                                "WHERE id = ?";
-                                        PreparedStatement sqlStatement2 = connection.prepareStatement(sql5);
-                                        sqlStatement2.setString(1,birthdate.toString());
-                                        sqlStatement2.setInt(2,studentID);
-                                        sqlStatement2.execute();
-                                        working = true;
-                                        connection.close();
-                                    }
-                                    catch(Exception e){
-                                        System.out.println("Invalid input, please try again.");
-                                        System.out.println(e.getMessage());
-                                    }
-                                }
-                                break;
-                            default:
-                                System.out.println("Invalid input, please try again.");
-                        }
-                    }
-            }
-            catch (SQLException sqlException)
-            {
-                System.out.println("!!! SQLException: failed to alter Students table");
-                System.out.println(sqlException.getMessage());
-            }
-    }
-    public void UpdateExistingStudentInformation(String DOB){
-        boolean shouldexit = false;
-        int choice;
-        boolean uniqueid = false;
-        int newid;
-        boolean working = false;
-        Date birthdate = null;
-        String newname = null;
-        String studentDOBretry = null;
-        Scanner inputScannersub = new Scanner(System.in);
-        String sql =
-                "SELECT *\n" +
-                        "FROM students\n" +
-                        "WHERE students.birth_date = ?";
-        try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement res = connection.prepareStatement(sql);
-            res.setString(1,DOB);
-            if (!res.executeQuery().next()) {
-                System.out.println("Invalid Date of Birth, try entering a valid student Date of Birth here: ");
-                studentDOBretry = inputScannersub.next();
-                connection.close();
-                UpdateExistingStudentInformation(studentDOBretry);
-            }
-            while (!shouldexit) {
+            int choice;
+            while (true) {
                 System.out.println("What would you like to alter?");
                 System.out.println(" 0 - Student ID (note: must be unique within the table).");
                 System.out.println(" 1 - Student First Name");
                 System.out.println(" 2 - Student Last Name");
                 System.out.println(" 3 - Student Date of Birth");
-
                 try {
                     choice = Integer.parseInt(inputScannersub.nextLine());
+                    break;
                 } catch (Exception e) {
                     System.out.println("Invalid choice, expected an integer value. Please enter a number such as 0, 1, 2, or 3.");
-                    continue;
                 }
-                shouldexit = true;
-                switch (choice) {
-                    case 0:
-                        while (!uniqueid) {
-                            try {
-                                System.out.println("Enter a new, unique integer student ID.");
-                                newid = inputScannersub.nextInt();
-                                String sql1 = "SELECT students.id\n" +
-                                        "FROM students\n" +
-                                        "WHERE students.id";
-                                Statement sqlStatement = connection.createStatement();
-                                ResultSet resultSet2 = sqlStatement.executeQuery(sql1 + "=" + newid);
-                                if (!resultSet2.next()) {
-                                    uniqueid = true;
-                                    String sql2 = "UPDATE students\n" +
-                                            "SET id = ?\n" +
-                                            "WHERE birth_date = ?";
-                                    PreparedStatement sqlStatement2 = connection.prepareStatement(sql2);
-                                    sqlStatement2.setInt(1,newid);
-                                    sqlStatement2.setString(2,DOB);
-                                    sqlStatement2.execute();
-                                }
-                            } catch (Exception e) {
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        break;
-                    case 1:
-                        while(!working){
-                            try{
-                                System.out.println("Please enter the student's new first name: ");
-                                newname = inputScannersub.next();
-                                String sql3 = "UPDATE students\n" +
-                                        "SET first_name = ?\n" +
-                                        "WHERE birth_date = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql3);
-                                sqlStatement2.setString(1,newname);
-                                sqlStatement2.setString(2,DOB);
-                                sqlStatement2.execute();
-                                working = true;
-                                connection.close();
-                            }
-                            catch(Exception e){
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        break;
-                    case 2:
-                        while(!working){
-                            try{
-                                System.out.println("Please enter the student's new last name: ");
-                                newname = inputScannersub.nextLine();
-
-                                String sql4 = "UPDATE students\n" +
-                                        "SET last_name = ?\n" +
-                                        "WHERE birth_date = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql4);
-                                sqlStatement2.setString(1,newname);
-                                sqlStatement2.setString(2,DOB);
-                                sqlStatement2.execute();
-                                working = true;
-                                connection.close();
-                            }
-                            catch(Exception e){
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
+            }
+
+            StudentPatch patch = new StudentPatch();
+            switch (choice) {
+                case 0:
+                    while (true) {
+                        System.out.println("Enter a new, unique integer student ID.");
+                        try {
+                            int newid = Integer.parseInt(inputScannersub.nextLine().trim());
+                            if (remapStudentIds(Map.of(studentID, newid)).isApplied()) {
+                                System.out.println("SUCCESSFULLY changed the student id from " + studentID + " to " + newid);
+                                return;
                             }
+                            System.out.println("The student ID " + newid + " is already taken, please try again.");
+                        } catch (NumberFormatException e) {
+                            System.out.println("Invalid input, please try again.");
                         }
-                        break;
-                    case 3:
-                        while(!working){
-                            try{
-                                System.out.println("Please enter the student's new Date of Birth in YYYY-MM-DD format: ");
-                                birthdate = Date.valueOf(inputScannersub.nextLine());
-                                String sql5 = "UPDATE students\n" +
-                                        "SET birth_date = ?\n" +
-                                        "WHERE birth_date = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql5);
-                                sqlStatement2.setString(1,birthdate.toString());
-                                sqlStatement2.setString(2,DOB);
-                                sqlStatement2.execute();
-                                working = true;
-                                connection.close();
-                            }
-                            catch(Exception e){
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
+                    }
+                case 1:
+                    System.out.println("Please enter the student's new first name: ");
+                    patch.setFirstName(inputScannersub.nextLine().trim());
+                    break;
+                case 2:
+                    System.out.println("Please enter the student's new last name: ");
+                    patch.setLastName(inputScannersub.nextLine().trim());
+                    break;
+                case 3:
+                    while (patch.getBirthDate() == null) {
+                        System.out.println("Please enter the student's new Date of Birth in YYYY-MM-DD format: ");
+                        try {
+                            patch.setBirthDate(Date.valueOf(inputScannersub.nextLine().trim()));
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("Invalid input, please try again.");
                         }
-                        break;
-                    default:
-                        System.out.println("Invalid input, please try again.");
-                }
+                    }
+                    break;
+                default:
+                    System.out.println("Invalid input, please try again.");
+                    return;
+            }
+
+            if (updateStudent(studentID, patch)) {
+                System.out.println("SUCCESSFULLY updated the student with id = " + studentID);
+            } else {
+                System.out.println("!!! WARNING: failed to update the student with id = " + studentID);
             }
         }
         catch (SQLException sqlException)
@@ -702,833 +961,1895 @@ public class Database
             System.out.println(sqlException.getMessage());
         }
     }
+    public void UpdateExistingStudentInformation(String DOB){
+        try {
+            int studentID;
+            while ((studentID = findStudentIdByBirthDate(DOB)) == 0) {
+                System.out.println("Invalid Date of Birth, try entering a valid student Date of Birth here: ");
+                DOB = new Scanner(System.in).nextLine().trim();
+            }
+            UpdateExistingStudentInformation(studentID);
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to alter Students table");
+            System.out.println(sqlException.getMessage());
+        }
+    }
     public void UpdateExistingStudentInformation(String First, String Last){
-        boolean shouldexit = false;
-        int choice;
-        boolean uniqueid = false;
-        int newid;
-        boolean working = false;
-        Date birthdate = null;
-        String newname = null;
-        String studentNameretry = null;
-        Scanner inputScannersub = new Scanner(System.in);
-        String sql =
-                "SELECT *\n" +
-                        "FROM students\n" +
-                        "WHERE students.first_name = ? and students.last_name = ?";
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement res = connection.prepareStatement(sql);
-            res.setString(1,First);
-            res.setString(2, Last);
-            if (!res.executeQuery().next()) {
-                System.out.println("Invalid name, try entering a valid student name here: ");
-                String fix = inputScannersub.nextLine();
-                String[] fixsplit = fix.split(" ");
-                First = fixsplit[0];
-                First = First.replace(" ", "");
-                Last = fixsplit[1];
-                Last = Last.replace(" ", "");
-                connection.close();
-                UpdateExistingStudentInformation(First, Last);
-            }
-            while (!shouldexit) {
-                System.out.println("What would you like to alter?");
-                System.out.println(" 0 - Student ID (note: must be unique within the table).");
-                System.out.println(" 1 - Student First Name");
-                System.out.println(" 2 - Student Last Name");
-                System.out.println(" 3 - Student Date of Birth");
+            UpdateExistingStudentInformation(promptForStudent(First, Last, new Scanner(System.in)));
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to alter Students table");
+            System.out.println(sqlException.getMessage());
+        } catch (Exception e) {
+            System.out.println("Invalid input, please try again.");
+            System.out.println(e.getMessage());
+        }
+    }
 
-                try {
-                    choice = Integer.parseInt(inputScannersub.nextLine());
-                } catch (Exception e) {
-                    System.out.println("Invalid choice, expected an integer value. Please enter a number such as 0, 1, 2, or 3.");
-                    continue;
+    /**
+     * Changes the fields set in the patch with a single UPDATE, leaving the other fields as they are
+     *
+     * @return true if the student exists (and was updated, unless the patch is empty)
+     * @throws SQLException if the update fails
+     */
+    public boolean updateStudent(int studentId, StudentPatch patch) throws SQLException
+    {
+        if (patch.isEmpty())
+        {
+            return studentExists(studentId);
+        }
+        return write(connection -> {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_STUDENT_SQL))
+            {
+                bindStudentPatch(preparedStatement, studentId, patch);
+                return preparedStatement.executeUpdate() > 0;
+            }
+        }, updated -> renameInStudentNameIndex(Map.of(studentId, patch)));
+    }
+
+    /**
+     * Applies many patches in a single transaction, as one JDBC batch of the {@link #updateStudent(int, StudentPatch)} UPDATE
+     *
+     * @param patchesByStudentId the patch to apply to each student id
+     * @return the number of students that exist and were updated, ids that do not exist are skipped
+     * @throws SQLException if the update fails, in which case no student is updated
+     */
+    public int updateStudents(Map<Integer, StudentPatch> patchesByStudentId) throws SQLException
+    {
+        if (patchesByStudentId.isEmpty())
+        {
+            return 0;
+        }
+        return write(connection -> {
+            int numberOfStudentsUpdated = 0;
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_STUDENT_SQL))
+            {
+                int pendingUpdates = 0;
+                for (Map.Entry<Integer, StudentPatch> entry : patchesByStudentId.entrySet())
+                {
+                    bindStudentPatch(preparedStatement, entry.getKey(), entry.getValue());
+                    preparedStatement.addBatch();
+                    if (++pendingUpdates == ENROLLMENT_BATCH_SIZE)
+                    {
+                        numberOfStudentsUpdated += countUpdatedRows(preparedStatement.executeBatch());
+                        pendingUpdates = 0;
+                    }
                 }
-                shouldexit = true;
-                switch (choice) {
-                    case 0:
-                        while (!uniqueid) {
-                            try {
-                                System.out.println("Enter a new, unique integer student ID.");
-                                newid = inputScannersub.nextInt();
-                                uniqueid = true;
-                                String sql2 = "UPDATE students\n" +
-                                        "SET id = ?\n" +
-                                        "WHERE first_name = ? and last_name = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql2);
-                                sqlStatement2.setInt(1,newid);
-                                sqlStatement2.setString(2,First);
-                                sqlStatement2.setString(3,Last);
-                                sqlStatement2.execute();
-                                connection.close();
-                            } catch (Exception e) {
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        break;
-                    case 1:
-                        while(!working){
-                            try{
-                                System.out.println("Please enter the student's new first name: ");
-                                newname = inputScannersub.next();
-                                String sql3 = "UPDATE students\n" +
-                                        "SET first_name = ?\n" +
-                                        "WHERE first_name = ? and last_name = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql3);
-                                sqlStatement2.setString(1,newname);
-                                sqlStatement2.setString(2,First);
-                                sqlStatement2.setString(3,Last);
-                                sqlStatement2.execute();
-                                working = true;
-                                connection.close();
-                            }
-                            catch(Exception e){
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        break;
-                    case 2:
-                        while(!working){
-                            try{
-                                System.out.println("Please enter the student's new last name: ");
-                                newname = inputScannersub.nextLine();
-                                String sql4 = "UPDATE students\n" +
-                                        "SET last_name = ?\n" +
-                                        "WHERE first_name = ? and last_name = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql4);
-                                sqlStatement2.setString(1,newname);
-                                sqlStatement2.setString(2,First);
-                                sqlStatement2.setString(3,Last);
-                                sqlStatement2.execute();
-                                working = true;
-                                connection.close();
-                            }
-                            catch(Exception e){
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        break;
-                    case 3:
-                        while(!working){
-                            try{
-                                System.out.println("Please enter the student's new Date of Birth in YYYY-MM-DD format: ");
-                                birthdate = Date.valueOf(inputScannersub.nextLine());
-                                String sql5 = "UPDATE students\n" +
-                                        "SET birth_date = ?\n" +
-                                        "WHERE first_name = ? and last_name = ?";
-                                PreparedStatement sqlStatement2 = connection.prepareStatement(sql5);
-                                sqlStatement2.setString(1,birthdate.toString());
-                                sqlStatement2.setString(2,First);
-                                sqlStatement2.setString(3,Last);
-                                sqlStatement2.execute();
-                                working = true;
-                                connection.close();
-                            }
-                            catch(Exception e){
-                                System.out.println("Invalid input, please try again.");
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        break;
-                    default:
-                        System.out.println("Invalid input, please try again.");
+                if (pendingUpdates > 0)
+                {
+                    numberOfStudentsUpdated += countUpdatedRows(preparedStatement.executeBatch());
                 }
             }
+            return numberOfStudentsUpdated;
+        }, numberOfStudentsUpdated -> renameInStudentNameIndex(patchesByStudentId));
+    }
+
+    /**
+     * Moves the patched students to their new names in the student name index, after the commit;
+     * ids of students that do not exist are not in the index and are skipped
+     */
+    private void renameInStudentNameIndex(Map<Integer, StudentPatch> patchesByStudentId)
+    {
+        StudentNameIndex index = studentNameIndex;
+        if (index == null)
+        {
+            return;
         }
-        catch (SQLException sqlException)
+        for (Map.Entry<Integer, StudentPatch> entry : patchesByStudentId.entrySet())
         {
-            System.out.println("!!! SQLException: failed to alter Students table");
-            System.out.println(sqlException.getMessage());
+            StudentPatch patch = entry.getValue();
+            if (patch.getFirstName() != null || patch.getLastName() != null)
+            {
+                index.rename(entry.getKey(), patch.getFirstName(), patch.getLastName());
+            }
         }
     }
-    public void DeleteExistingStudent(int studentID){
-            int studentIDretry = 0;
-            Scanner inputScannersub = new Scanner(System.in);
-            String sql =
-                    "SELECT *\n" +
-                            "FROM students\n" +
-                            "WHERE students.id";
-            try {
-                Connection connection = getDatabaseConnection();
-                Statement res = connection.createStatement();
-                ResultSet ResultSet0 = res.executeQuery(sql + "=" + studentID + ";");
-                if (!ResultSet0.next()) {
-                    System.out.println("Invalid ID number, try entering a valid student ID here: ");
-                    studentIDretry = inputScannersub.nextInt();
-                    DeleteExistingStudent(studentIDretry);
-                }
-                    String sql1 = "DELETE\n" +
-                            "FROM students\n" +
-                            "WHERE students.id = ?";
-                    String sql2 = "DELETE\n" +
-                            " FROM registered_students\n" +
-                            "WHERE student_id = ?";
-                    try {
-                        PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-                        preparedStatement2.setInt(1, studentID);
-                        preparedStatement2.execute();
-                        PreparedStatement preparedStatement = connection.prepareStatement(sql1);
-                        preparedStatement.setInt(1, studentID);
-                        preparedStatement.execute();
-                        connection.close();
-                    } catch (SQLException sqlException) {
-                        System.out.println("!!! SQLException: failed to alter Students table");
-                        System.out.println(sqlException.getMessage());
-                    }
-            } catch (Exception e) {
-                System.out.println("Invalid input, try again.");
+
+    private static void bindStudentPatch(PreparedStatement preparedStatement, int studentId, StudentPatch patch) throws SQLException
+    {
+        // a NULL parameter makes COALESCE keep the current value of the column
+        preparedStatement.setString(1, patch.getFirstName());
+        preparedStatement.setString(2, patch.getLastName());
+        preparedStatement.setString(3, patch.getBirthDate() == null ? null : patch.getBirthDate().toString());
+        preparedStatement.setInt(4, studentId);
+    }
+
+    private static int countUpdatedRows(int[] updateCounts)
+    {
+        int numberOfRowsUpdated = 0;
+        for (int updateCount : updateCounts)
+        {
+            if (updateCount > 0)
+            {
+                numberOfRowsUpdated++;
             }
         }
-    public void DeleteExistingStudent(String First, String Last) {
-        String studentNameretry = null;
-        Scanner inputScannersub = new Scanner(System.in);
-        String sql =
-                "SELECT *\n" +
-                        "FROM students\n" +
-                        "WHERE students.first_name = ? and students.last_name = ?";
-        try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement res = connection.prepareStatement(sql);
-            res.setString(1, First);
-            res.setString(2, Last);
-            if (!res.executeQuery().next()) {
-                System.out.println("Invalid name, try entering a valid student name here: ");
-                studentNameretry = inputScannersub.next("First Last");
-                connection.close();
-                UpdateExistingStudentInformation(studentNameretry);
-            }
-            String sql1 = "DELETE\n" +
-                    "FROM students\n" +
-                    "WHERE students.first_name = ?  and students.last_name = ?";
-            String sql2 = "SELECT id" +
-                    " FROM students\n" +
-                    "WHERE first_name = ? and last_name = ?";
-            String sql3 = "DELETE\n" +
-                    "FROM registered_students\n" +
-                    " WHERE registered_students.student_id = ?";
-                try {
-                    PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-                    preparedStatement2.setString(1, First);
-                    preparedStatement2.setString(2, Last);
-                    ResultSet res2 = preparedStatement2.executeQuery();
-                    PreparedStatement preparedStatement3 = connection.prepareStatement(sql3);
-                    System.out.println(res2.getString(1));
-                    preparedStatement3.setInt(1,res2.getInt(1));
-                    preparedStatement3.execute();
-                    PreparedStatement preparedStatement = connection.prepareStatement(sql1);
-                    preparedStatement.setString(1, First);
-                    preparedStatement.setString(2, Last);
-                    preparedStatement.execute();
-                    connection.close();
-                } catch (SQLException sqlException) {
-                    System.out.println("!!! SQLException: failed to alter Students table");
-                    System.out.println(sqlException.getMessage());
+        return numberOfRowsUpdated;
+    }
+
+    /**
+     * Gives students new ids, rewriting {@code students.id} and every {@code registered_students.student_id}
+     * and {@code waitlist.student_id} that references them in a single transaction.
+     * <p>
+     * The mapping is loaded into a temporary table and validated with one query: every old id must exist and every
+     * new id must be free, or belong to a student who is remapped too, so ids can be swapped or shifted.
+     * The rows are then rewritten set-wise: students moving to a free id in one pass, students moving to the id of
+     * another remapped student in two passes, first to ids above every existing one and then down to their new ids,
+     * so no intermediate state collides with a row that has not moved yet.
+     * The foreign keys are only checked once every table has been rewritten.
+     *
+     * @param newIdsByOldId the new id of each remapped student
+     * @return the number of remapped rows, or the invalid ids if the mapping was rejected without changing anything
+     * @throws IllegalArgumentException if two students would get the same new id
+     * @throws SQLException if the remap fails, in which case nothing is changed
+     */
+    public StudentIdRemapResult remapStudentIds(Map<Integer, Integer> newIdsByOldId) throws SQLException
+    {
+        if (new HashSet<>(newIdsByOldId.values()).size() != newIdsByOldId.size())
+        {
+            throw new IllegalArgumentException("two students cannot be remapped to the same new id");
+        }
+        if (newIdsByOldId.isEmpty())
+        {
+            return new StudentIdRemapResult(0, 0, List.of(), List.of());
+        }
+
+        String sqlInvalidIds =
+                "SELECT 0, old_id FROM temp.student_id_map WHERE old_id NOT IN (SELECT id FROM students)\n" +
+                "UNION ALL\n" +
+                "SELECT 1, new_id FROM temp.student_id_map\n" +
+                "WHERE new_id IN (SELECT id FROM students) AND new_id NOT IN (SELECT old_id FROM temp.student_id_map)\n" +
+                "LIMIT " + MAX_REPORTED_INVALID_IDS + ";";
+        String sqlOffset =
+                "SELECT MAX((SELECT COALESCE(MAX(id), 0) FROM students), (SELECT MAX(new_id) FROM temp.student_id_map)) + 1;";
+        String sqlMarkChainedIds =
+                "UPDATE temp.student_id_map\n" +
+                "SET chained = new_id IN (SELECT old_id FROM temp.student_id_map);";
+        String sqlMoveEnrollments =
+                "UPDATE registered_students\n" +
+                "SET student_id = ? + (SELECT new_id FROM temp.student_id_map WHERE old_id = registered_students.student_id)\n" +
+                "WHERE student_id IN (SELECT old_id FROM temp.student_id_map WHERE chained = ?);";
+        String sqlMoveStudents =
+                "UPDATE students\n" +
+                "SET id = ? + (SELECT new_id FROM temp.student_id_map WHERE old_id = students.id)\n" +
+                "WHERE id IN (SELECT old_id FROM temp.student_id_map WHERE chained = ?);";
+        String sqlMoveEnrollmentsDown =
+                "UPDATE registered_students\n" +
+                "SET student_id = student_id - ?\n" +
+                "WHERE student_id >= ?;";
+        String sqlMoveStudentsDown =
+                "UPDATE students\n" +
+                "SET id = id - ?\n" +
+                "WHERE id >= ?;";
+        String sqlMoveWaitlistEntries =
+                "UPDATE waitlist\n" +
+                "SET student_id = ? + (SELECT new_id FROM temp.student_id_map WHERE old_id = waitlist.student_id)\n" +
+                "WHERE student_id IN (SELECT old_id FROM temp.student_id_map WHERE chained = ?);";
+        String sqlMoveWaitlistEntriesDown =
+                "UPDATE waitlist\n" +
+                "SET student_id = student_id - ?\n" +
+                "WHERE student_id >= ?;";
+
+        return write(connection -> {
+            loadStudentIdMap(connection, newIdsByOldId);
+
+            List<Integer> missingStudentIds = new ArrayList<>();
+            List<Integer> takenStudentIds = new ArrayList<>();
+            try
+            (
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sqlInvalidIds);
+            )
+            {
+                while (resultSet.next())
+                {
+                    (resultSet.getInt(1) == 0 ? missingStudentIds : takenStudentIds).add(resultSet.getInt(2));
                 }
-        } catch (Exception e) {
-            System.out.println("Invalid input, please try again");
-            System.out.println(e.getMessage());
+            }
+            if (!missingStudentIds.isEmpty() || !takenStudentIds.isEmpty())
+            {
+                return new StudentIdRemapResult(0, 0, missingStudentIds, takenStudentIds);
+            }
+
+            // ids whose new id is the old id of another remapped student have to wait until that student has moved
+            executeUpdate(connection, "DELETE FROM temp.student_id_map WHERE old_id = new_id;");
+            executeUpdate(connection, sqlMarkChainedIds);
+
+            long offset;
+            try
+            (
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sqlOffset);
+            )
+            {
+                resultSet.next();
+                offset = resultSet.getLong(1);
+            }
+
+            try (Statement statement = connection.createStatement())
+            {
+                // until the transaction ends, enrollments may point to the moved ids of the students
+                statement.execute("PRAGMA defer_foreign_keys = ON;");
+            }
+            try
+            {
+                // ids moving to a free id go there directly
+                int numberOfEnrollmentsRemapped = executeUpdate(connection, sqlMoveEnrollments, 0, 0);
+                executeUpdate(connection, sqlMoveWaitlistEntries, 0, 0);
+                int numberOfStudentsRemapped = executeUpdate(connection, sqlMoveStudents, 0, 0);
+                // chained ids (e.g. swaps) are parked above every existing id first, then moved down to their new id
+                numberOfEnrollmentsRemapped += executeUpdate(connection, sqlMoveEnrollments, offset, 1);
+                executeUpdate(connection, sqlMoveWaitlistEntries, offset, 1);
+                numberOfStudentsRemapped += executeUpdate(connection, sqlMoveStudents, offset, 1);
+                executeUpdate(connection, sqlMoveEnrollmentsDown, offset, offset);
+                executeUpdate(connection, sqlMoveWaitlistEntriesDown, offset, offset);
+                executeUpdate(connection, sqlMoveStudentsDown, offset, offset);
+                return new StudentIdRemapResult(numberOfStudentsRemapped, numberOfEnrollmentsRemapped, List.of(), List.of());
+            }
+            finally
+            {
+                try (Statement statement = connection.createStatement())
+                {
+                    statement.execute("PRAGMA defer_foreign_keys = OFF;");
+                }
+            }
+        }, result -> {
+            EnrollmentGraph graph = enrollmentGraph;
+            Waitlist loadedWaitlist = waitlist;
+            if (result.isApplied() && graph != null)
+            {
+                graph.remapStudents(newIdsByOldId);
+            }
+            if (result.isApplied() && loadedWaitlist != null)
+            {
+                loadedWaitlist.remapStudents(newIdsByOldId);
+            }
+            StudentNameIndex index = studentNameIndex;
+            if (result.isApplied() && index != null)
+            {
+                index.remapStudents(newIdsByOldId);
+            }
+        });
+    }
+
+    private static int executeUpdate(Connection connection, String sql, long... parameters) throws SQLException
+    {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            for (int i = 0; i < parameters.length; i++)
+            {
+                preparedStatement.setLong(i + 1, parameters[i]);
+            }
+            return preparedStatement.executeUpdate();
         }
     }
-    public void DeleteExistingStudent(String DOB) {
-        String studentDOBretry = null;
-        Scanner inputScannersub = new Scanner(System.in);
+
+    private void loadStudentIdMap(Connection connection, Map<Integer, Integer> newIdsByOldId) throws SQLException
+    {
+        ConnectionPool.resetTemporaryTable(connection, "student_id_map",
+                "old_id INTEGER PRIMARY KEY, new_id INTEGER NOT NULL UNIQUE, chained INTEGER NOT NULL DEFAULT 0");
+
         String sql =
-                "SELECT *\n" +
-                        "FROM students\n" +
-                        "WHERE students.birth_date = ?";
-        try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement res = connection.prepareStatement(sql);
-            res.setString(1, DOB);
-            if (!res.executeQuery().next()) {
-                System.out.println("Invalid Date of Birth, try entering a valid student Date of Birth here: ");
-                studentDOBretry = inputScannersub.next();
-                connection.close();
-                UpdateExistingStudentInformation(studentDOBretry);
-            }
-            String sql1 = "DELETE\n" +
-                    "FROM students\n" +
-                    "WHERE students.birth_date = ?";
-            String sql2 = "SELECT id" +
-                    " FROM students\n" +
-                    "WHERE birth_date = ?";
-            String sql3 = "DELETE\n" +
-                    "FROM registered_students\n" +
-                    " WHERE registered_students.student_id = ?";
-            try {
-                PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-                preparedStatement2.setString(1, DOB);
-                ResultSet res2 = preparedStatement2.executeQuery();
-                PreparedStatement preparedStatement3 = connection.prepareStatement(sql3);
-                System.out.println(res2.getString(1));
-                preparedStatement3.setInt(1,res2.getInt(1));
-                preparedStatement3.execute();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql1);
-                preparedStatement.setString(1, DOB);
-                preparedStatement.execute();
-                connection.close();
-            } catch (SQLException sqlException) {
-                System.out.println("!!! SQLException: failed to alter Students table");
-                System.out.println(sqlException.getMessage());
-            }
-        }
-            catch(Exception e){
-            System.out.println("Invalid input, please try again.");
-                System.out.println(e.getMessage());
+                "INSERT INTO temp.student_id_map (old_id, new_id)\n" +
+                "VALUES (?, ?);";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            int pendingInserts = 0;
+            for (Map.Entry<Integer, Integer> entry : newIdsByOldId.entrySet())
+            {
+                preparedStatement.setInt(1, entry.getKey());
+                preparedStatement.setInt(2, entry.getValue());
+                preparedStatement.addBatch();
+                if (++pendingInserts == ENROLLMENT_BATCH_SIZE)
+                {
+                    preparedStatement.executeBatch();
+                    pendingInserts = 0;
+                }
             }
+            if (pendingInserts > 0)
+            {
+                preparedStatement.executeBatch();
+            }
+        }
     }
 
-    public int classSearch(String classCode) {
-        int classid = 0;
-        String classCodeRetry = null;
-        Scanner inputScannersub = new Scanner(System.in);
-        String sql = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE code = ?";
+    public void DeleteExistingStudent(int studentID){
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setString(1, classCode);
-            ResultSet resultSet = statement.executeQuery();
-            if (!resultSet.next()) {
-                System.out.println("No such class, please enter a valid class code here: \n");
-                classCodeRetry = inputScannersub.nextLine();
-                connection.close();
-                classSearch(classCodeRetry);
+            while (!studentExists(studentID)) {
+                System.out.println("Invalid ID number, try entering a valid student ID here: ");
+                studentID = new Scanner(System.in).nextInt();
             }
-            classid = resultSet.getInt(1);
-            connection.close();
+            printDeletionResult(deleteStudents(StudentSelection.byIds(List.of(studentID))));
         } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to alter Students table");
             System.out.println(sqlException.getMessage());
+        } catch (Exception e) {
+            System.out.println("Invalid input, try again.");
         }
-        return classid;
     }
-    public String classSearch(int classID) {
-        String classCode = null;
-        int classIDretry = 0;
-        Scanner inputScannersub = new Scanner(System.in);
-        String sql = "SELECT code\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
+    public void DeleteExistingStudent(String First, String Last) {
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, classID);
-            ResultSet resultSet = statement.executeQuery();
-            if (!resultSet.next()) {
-                System.out.println("No such class, please enter a valid class code here: \n");
-                classIDretry = inputScannersub.nextInt();
-                classSearch(classIDretry);
+            if (findStudentIdByName(First, Last) == 0) {
+                DeleteExistingStudent(promptForStudent(First, Last, new Scanner(System.in)));
+                return;
             }
-            classCode = resultSet.getString(1);
-            connection.close();
+            // every student with that name is deleted, together with all of their enrollments
+            printDeletionResult(deleteStudents(StudentSelection.byName(First, Last)));
         } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to alter Students table");
             System.out.println(sqlException.getMessage());
+        } catch (Exception e) {
+            System.out.println("Invalid input, please try again");
+            System.out.println(e.getMessage());
         }
-        return classCode;
     }
-    public void AddStudentToClass(int StudentID, int classID) {
-        Scanner scannerSub = new Scanner(System.in);
-        String sql = "INSERT INTO registered_students (class_id, student_id, signup_date)\n" +
-                "VALUES (?,?,?)";
-        String sql1 = "SELECT id\n" +
-                "FROM students\n" +
-                "WHERE id = ?";
-        String sql2 = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
+    public void DeleteExistingStudent(String DOB) {
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-            preparedStatement1.setInt(1, StudentID);
-            ResultSet res = preparedStatement1.executeQuery();
-            if (!res.next()) {
-                System.out.println("No such Student ID, please try again here: \n");
-                StudentID = scannerSub.nextInt();
-                connection.close();
-                AddStudentToClass(StudentID, classID);
-            }
-            PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-            preparedStatement2.setInt(1, classID);
-            ResultSet res2 = preparedStatement2.executeQuery();
-            if (!res2.next()) {
-                System.out.println("No such class ID, please try again here: \n");
-                classID = scannerSub.nextInt();
-                connection.close();
-                AddStudentToClass(StudentID, classID);
+            while (findStudentIdByBirthDate(DOB) == 0) {
+                System.out.println("Invalid Date of Birth, try entering a valid student Date of Birth here: ");
+                DOB = new Scanner(System.in).next();
             }
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setInt(1, classID);
-            preparedStatement.setInt(2, StudentID);
-            java.util.Date utilDate = new java.util.Date();
-            java.sql.Date timestamp = new java.sql.Date(utilDate.getTime());
-            preparedStatement.setDate(3, timestamp);
-            preparedStatement.execute();
-            connection.close();
+            Date birthDate = Date.valueOf(DOB);
+            printDeletionResult(deleteStudents(StudentSelection.byBirthDateBetween(birthDate, birthDate)));
         } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to alter Students table");
             System.out.println(sqlException.getMessage());
+        } catch (Exception e) {
+            System.out.println("Invalid input, please try again.");
+            System.out.println(e.getMessage());
         }
     }
-    public void AddStudentToClass(String First, String Last, int classID) {
-        Scanner scannerSub = new Scanner(System.in);
-        int StudentID;
-        String sql1 = "SELECT id\n" +
-                "FROM students\n" +
-                "WHERE first_name = ? and last_name = ?";
-        String sql2 = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
-        try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-            preparedStatement1.setString(1, First);
-            preparedStatement1.setString(2, Last);
-            ResultSet res = preparedStatement1.executeQuery();
-            if (!res.next()) {
-                System.out.println("Invalid name, try entering a valid student name here: ");
-                String fix = scannerSub.nextLine();
-                String[] fixsplit = fix.split(" ");
-                First = fixsplit[0];
-                First = First.replace(" ", "");
-                Last = fixsplit[1];
-                Last = Last.replace(" ", "");
-                connection.close();
-                AddStudentToClass(First, Last, classID);
-            }
-            StudentID = res.getInt(1);
-            PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-            preparedStatement2.setInt(1, classID);
-            ResultSet res2 = preparedStatement2.executeQuery();
-            if (!res2.next()) {
-                System.out.println("No such class ID, please try again here: \n");
-                classID = scannerSub.nextInt();
-                connection.close();
-                AddStudentToClass(StudentID, classID);
-            }
-            classID = res2.getInt(1);
-            connection.close();
-            AddStudentToClass(StudentID, classID);
-        } catch (SQLException sqlException) {
-            System.out.println(sqlException.getMessage());
+
+    private static void printDeletionResult(StudentDeletionResult result)
+    {
+        System.out.println("SUCCESSFULLY deleted " + result.getNumberOfStudentsDeleted() + " student(s) and " +
+                result.getNumberOfEnrollmentsDeleted() + " of their enrollment(s)");
+        if (result.getNumberOfStudentsPromoted() > 0)
+        {
+            System.out.println(result.getNumberOfStudentsPromoted() + " waitlisted student(s) were promoted into the freed seats");
         }
     }
-    public void AddStudentToClass(String DOB, int classID) {
-        Scanner scannerSub = new Scanner(System.in);
-        int StudentID;
-        String sql1 = "SELECT id\n" +
-                "FROM students\n" +
-                "WHERE birth_date = ?";
-        String sql2 = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
-        try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-            preparedStatement1.setString(1, DOB);
-            ResultSet res = preparedStatement1.executeQuery();
-            if (!res.next()) {
-                System.out.println("Invalid date of birth, try entering a valid student name here: ");
-                DOB = scannerSub.nextLine();
-                connection.close();
-                AddStudentToClass(DOB, classID);
-            }
-            StudentID = res.getInt(1);
-            PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-            preparedStatement2.setInt(1, classID);
-            ResultSet res2 = preparedStatement2.executeQuery();
-            if (!res2.next()) {
-                System.out.println("No such class ID, please try again here: \n");
-                classID = scannerSub.nextInt();
-                connection.close();
-                AddStudentToClass(StudentID, classID);
+
+    /**
+     * Deletes the selected students together with all of their enrollments and waitlist entries, in a single transaction
+     * that also gives the seats they free to the students waiting for them.
+     * <p>
+     * The ids of the selected students are collected once into a temporary table,
+     * then the enrollments and the students are deleted with one set-wise statement each,
+     * so purging thousands of students costs two DELETEs instead of a few statements per student.
+     *
+     * @param selection which students to delete
+     * @return how many students and enrollments were deleted and how many waitlisted students were promoted
+     * @throws SQLException if the delete fails, in which case nothing is deleted
+     */
+    public StudentDeletionResult deleteStudents(StudentSelection selection) throws SQLException
+    {
+        String sqlFreedClasses =
+                "INSERT INTO temp.freed_classes (id)\n" +
+                "SELECT DISTINCT class_id FROM registered_students\n" +
+                "WHERE student_id IN (SELECT id FROM temp.selected_students);";
+        String sqlDeleteWaitlistEntries =
+                "DELETE FROM waitlist\n" +
+                "WHERE student_id IN (SELECT id FROM temp.selected_students);";
+        String sqlDeleteEnrollments =
+                "DELETE FROM registered_students\n" +
+                "WHERE student_id IN (SELECT id FROM temp.selected_students);";
+        String sqlDeleteStudents =
+                "DELETE FROM students\n" +
+                "WHERE id IN (SELECT id FROM temp.selected_students);";
+
+        // read inside the write and applied to the enrollment graph, the waitlist and the student name index after the commit
+        int[][] deletedStudentIds = {new int[0]};
+        List<Enrollment> promotedEnrollments = new ArrayList<>();
+        return write(connection -> {
+            int numberOfSelectedStudents = selection.loadInto(connection, ENROLLMENT_BATCH_SIZE);
+            if (numberOfSelectedStudents == 0)
+            {
+                return new StudentDeletionResult(0, 0, 0);
             }
-            classID = res2.getInt(1);
-            connection.close();
-            AddStudentToClass(StudentID, classID);
-            connection.close();
-        } catch (SQLException sqlException) {
-            System.out.println(sqlException.getMessage());
-        }
+            if (enrollmentGraph != null || waitlist != null || studentNameIndex != null)
+            {
+                deletedStudentIds[0] = readStudentIds(connection, numberOfSelectedStudents);
+            }
+
+            ConnectionPool.resetTemporaryTable(connection, "freed_classes", "id INTEGER PRIMARY KEY");
+            executeUpdate(connection, sqlFreedClasses);
+
+            int numberOfEnrollmentsDeleted;
+            int numberOfStudentsDeleted;
+            // enrollments and waitlist entries first, the foreign keys would reject deleting a student who is still referenced
+            executeUpdate(connection, sqlDeleteWaitlistEntries);
+            try (PreparedStatement deleteEnrollments = connection.prepareStatement(sqlDeleteEnrollments))
+            {
+                numberOfEnrollmentsDeleted = deleteEnrollments.executeUpdate();
+            }
+            try (PreparedStatement deleteStudents = connection.prepareStatement(sqlDeleteStudents))
+            {
+                numberOfStudentsDeleted = deleteStudents.executeUpdate();
+            }
+            promotedEnrollments.addAll(promoteFromWaitlists(connection, "SELECT id FROM temp.freed_classes"));
+            return new StudentDeletionResult(numberOfStudentsDeleted, numberOfEnrollmentsDeleted, promotedEnrollments.size());
+        }, result -> {
+            EnrollmentGraph graph = enrollmentGraph;
+            Waitlist loadedWaitlist = waitlist;
+            if (graph != null)
+            {
+                graph.removeStudents(deletedStudentIds[0]);
+            }
+            if (loadedWaitlist != null)
+            {
+                loadedWaitlist.removeStudents(deletedStudentIds[0]);
+            }
+            StudentNameIndex index = studentNameIndex;
+            if (index != null)
+            {
+                index.removeStudents(deletedStudentIds[0]);
+            }
+            applyEnrollmentChanges(promotedEnrollments, List.of());
+        });
     }
-    public void listAllRegisteredStudents()
-    {
-        String sql =
-                "SELECT students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
-                "FROM students\n" +
-                "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
-                "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
-                "ORDER BY students.last_name, students.first_name, classes.code;";
 
+    private static int[] readStudentIds(Connection connection, int numberOfSelectedStudents) throws SQLException
+    {
+        int[] studentIds = new int[numberOfSelectedStudents];
         try
         (
-            Connection connection = getDatabaseConnection();
-            Statement sqlStatement = connection.createStatement();
-            ResultSet resultSet = sqlStatement.executeQuery(sql);
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT id FROM temp.selected_students;");
         )
         {
-            printTableHeader(new String[]{"students.id", "student_full_name", "classes.code", "classes.title"});
-
-            while (resultSet.next())
+            int numberOfStudentIds = 0;
+            while (resultSet.next() && numberOfStudentIds < studentIds.length)
             {
-                int id = resultSet.getInt("id");
-                String studentFullName = resultSet.getString("student_full_name");
-                String code = resultSet.getString("code");
-                String title = resultSet.getString("title");
-
-                System.out.printf("| %d | %s | %s | %s |%n", id, studentFullName, code, title);
+                studentIds[numberOfStudentIds++] = resultSet.getInt(1);
             }
-        }
-        catch (SQLException sqlException)
-        {
-            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
-            System.out.println(sqlException.getMessage());
+            return Arrays.copyOf(studentIds, numberOfStudentIds);
         }
     }
-    public void RemoveStudentFromClass(int StudentID, int classID){
-        Scanner scannerSub = new Scanner(System.in);
-        String sql = "DELETE \n" +
-                "FROM registered_students\n" +
-                "WHERE student_id = ? and class_id = ?";
-        String sql1 = "SELECT id\n" +
-                "FROM students\n" +
-                "WHERE id = ?";
-        String sql2 = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
+
+    public int classSearch(String classCode) {
+        Scanner inputScannersub = new Scanner(System.in);
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-            preparedStatement1.setInt(1, StudentID);
-            ResultSet res = preparedStatement1.executeQuery();
-            if (!res.next()) {
-                System.out.println("No such Student ID, please try again here: \n");
-                StudentID = scannerSub.nextInt();
-                connection.close();
-                RemoveStudentFromClass(StudentID, classID);
-            }
-            PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-            preparedStatement2.setInt(1, classID);
-            ResultSet res2 = preparedStatement2.executeQuery();
-            if (!res2.next()) {
-                System.out.println("No such class ID, please try again here: \n");
-                classID = scannerSub.nextInt();
-                connection.close();
-                RemoveStudentFromClass(StudentID, classID);
+            Class foundClass = findClassByCode(classCode);
+            while (foundClass == null) {
+                System.out.println("No such class, please enter a valid class code here: \n");
+                foundClass = findClassByCode(inputScannersub.nextLine());
             }
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setInt(1, StudentID);
-            preparedStatement.setInt(2, classID);
-            preparedStatement.execute();
-            connection.close();
+            return foundClass.getId();
         } catch (SQLException sqlException) {
             System.out.println(sqlException.getMessage());
+            return 0;
         }
     }
-    public void RemoveStudentFromClass(String First, String Last, int classID) {
-        Scanner scannerSub = new Scanner(System.in);
-        int StudentID;
-        String sql1 = "SELECT id\n" +
-                "FROM students\n" +
-                "WHERE first_name = ? and last_name = ?";
-        String sql2 = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
+    public String classSearch(int classID) {
+        Scanner inputScannersub = new Scanner(System.in);
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-            preparedStatement1.setString(1, First);
-            preparedStatement1.setString(2, Last);
-            ResultSet res = preparedStatement1.executeQuery();
-            if (!res.next()) {
-                System.out.println("Invalid name, try entering a valid student name here: ");
-                String fix = scannerSub.nextLine();
-                String[] fixsplit = fix.split(" ");
-                First = fixsplit[0];
-                First = First.replace(" ", "");
-                Last = fixsplit[1];
-                Last = Last.replace(" ", "");
-                connection.close();
-                RemoveStudentFromClass(First, Last, classID);
-            }
-            StudentID = res.getInt(1);
-            PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-            preparedStatement2.setInt(1, classID);
-            ResultSet res2 = preparedStatement2.executeQuery();
-            if (!res2.next()) {
-                System.out.println("No such class ID, please try again here: \n");
-                classID = scannerSub.nextInt();
-                connection.close();
-                RemoveStudentFromClass(StudentID, classID);
+            Class foundClass = findClassById(classID);
+            while (foundClass == null) {
+                System.out.println("No such class, please enter a valid class id here: \n");
+                foundClass = findClassById(inputScannersub.nextInt());
             }
-            classID = res2.getInt(1);
-            connection.close();
-            RemoveStudentFromClass(StudentID, classID);
+            return foundClass.getCode();
         } catch (SQLException sqlException) {
             System.out.println(sqlException.getMessage());
+            return null;
         }
     }
-    public void RemoveStudentFromClass(String DOB, int classID) {
+    public void AddStudentToClass(int StudentID, int classID) {
         Scanner scannerSub = new Scanner(System.in);
-        int StudentID;
-        String sql1 = "SELECT id\n" +
-                "FROM students\n" +
-                "WHERE birth_date = ?";
-        String sql2 = "SELECT id\n" +
-                "FROM classes\n" +
-                "WHERE id = ?";
         try {
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-            preparedStatement1.setString(1, DOB);
-            ResultSet res = preparedStatement1.executeQuery();
-            if (!res.next()) {
-                System.out.println("Invalid date of birth, try entering a valid student name here: ");
-                DOB = scannerSub.nextLine();
-                connection.close();
-                RemoveStudentFromClass(DOB, classID);
-            }
-            StudentID = res.getInt(1);
-            PreparedStatement preparedStatement2 = connection.prepareStatement(sql2);
-            preparedStatement2.setInt(1, classID);
-            ResultSet res2 = preparedStatement2.executeQuery();
-            if (!res2.next()) {
-                System.out.println("No such class ID, please try again here: \n");
-                classID = scannerSub.nextInt();
-                connection.close();
-                RemoveStudentFromClass(StudentID, classID);
+            EnrollmentStatus status = enrollOrWaitlist(StudentID, classID);
+            switch (status) {
+                case STUDENT_NOT_FOUND:
+                    System.out.println("No such Student ID, please try again here: \n");
+                    StudentID = scannerSub.nextInt();
+                    AddStudentToClass(StudentID, classID);
+                    break;
+                case CLASS_NOT_FOUND:
+                    System.out.println("No such class ID, please try again here: \n");
+                    classID = scannerSub.nextInt();
+                    AddStudentToClass(StudentID, classID);
+                    break;
+                case ENROLLED:
+                    System.out.println("SUCCESSFULLY enrolled the student with id = " + StudentID + " in the class with id = " + classID);
+                    break;
+                case WAITLISTED:
+                    System.out.println("The class with id = " + classID + " is full, the student with id = " + StudentID +
+                            " was put on its waitlist at position " + getWaitlist().getPosition(StudentID, classID));
+                    break;
+                default:
+                    System.out.println("!!! WARNING: failed to enroll the student with id = " + StudentID + " in the class with id = " + classID + ", " + status.getDescription());
             }
-            classID = res2.getInt(1);
-            connection.close();
-            RemoveStudentFromClass(StudentID, classID);
-            connection.close();
         } catch (SQLException sqlException) {
             System.out.println(sqlException.getMessage());
         }
     }
-    public void showAllStudentsInClass(String classCode){
-        Scanner scannersub = new Scanner(System.in);
-        String sql =
-                "SELECT *\n" +
-                        "FROM(\n"+
-                "SELECT students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
-                "FROM students\n" +
-                "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
-                "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
-                "ORDER BY student_id)\n" +
-                        "WHERE code = ?;" ;
-        try{
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, classCode);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if(!resultSet.next()){
-                System.out.println("Either no students are enrolled in this class, or this class ID does not exist, please try again by entering a new classs ID here: \n");
-                classCode = scannersub.nextLine();
-                showAllStudentsInClass(classCode);
+
+    /**
+     * Enrolls a student in a class unless the class already has {@code max_students} students.
+     * <p>
+     * The seat check and the insert are a single conditional INSERT, which SQLite runs atomically under its write lock,
+     * so concurrent registrations can never overfill a class, even from several processes. The seat check reads
+     * the enrolled_count of the class, which triggers on registered_students keep up to date, instead of counting them.
+     * Within this process, registrations run on the {@link GroupCommitWriter} thread and are committed in groups,
+     * instead of every caller contending for the SQLite write lock and paying for its own commit.
+     *
+     * @param studentId the id of the student to enroll
+     * @param classId the id of the class to enroll the student in
+     * @return {@link EnrollmentStatus#ENROLLED} on success, otherwise why the student was not enrolled
+     * @throws SQLException if the enrollment could not be attempted
+     */
+    public EnrollmentStatus enrollStudent(int studentId, int classId) throws SQLException
+    {
+        return write(connection -> enroll(connection, studentId, classId), status -> {
+            if (status == EnrollmentStatus.ENROLLED)
+            {
+                applyEnrollmentChanges(List.of(new Enrollment(classId, studentId)), List.of());
             }
-            printTableHeader(new String[]{"students.id", "student_full_name", "classes.code", "classes.title"});
+        });
+    }
 
-            while (resultSet.next())
+    /**
+     * Like {@link #enrollStudent(int, int)}, but puts the student on the waitlist of the class instead when it is full.
+     * Waitlisted students are promoted in the same transaction that frees a seat, see {@link #dropStudentFromClass(int, int)},
+     * highest priority first and then in the order they joined the waitlist.
+     *
+     * @param priority students with a higher priority are promoted first, e.g. seniors or majors; 0 for everybody else
+     * @return {@link EnrollmentStatus#ENROLLED}, {@link EnrollmentStatus#WAITLISTED}, or why neither happened
+     * @throws SQLException if the enrollment could not be attempted
+     */
+    public EnrollmentStatus enrollOrWaitlist(int studentId, int classId, int priority) throws SQLException
+    {
+        String sql =
+                "INSERT OR IGNORE INTO waitlist (class_id, student_id, priority)\n" +
+                "VALUES (?, ?, ?);";
+
+        // the new waitlist entry, applied to the in-memory waitlist once it has been committed
+        Waitlist.Entry[] addedEntry = {null};
+        return write(connection -> {
+            EnrollmentStatus status = enroll(connection, studentId, classId);
+            if (status != EnrollmentStatus.CLASS_FULL)
             {
-                int id = resultSet.getInt("id");
-                String studentFullName = resultSet.getString("student_full_name");
-                String code = resultSet.getString("code");
-                String title = resultSet.getString("title");
+                return status;
+            }
 
-                System.out.printf("| %d | %s | %s | %s |%n", id, studentFullName, code, title);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+            {
+                preparedStatement.setInt(1, classId);
+                preparedStatement.setInt(2, studentId);
+                preparedStatement.setInt(3, priority);
+                if (preparedStatement.executeUpdate() == 0)
+                {
+                    return EnrollmentStatus.ALREADY_WAITLISTED;
+                }
+                try (ResultSet resultSet = preparedStatement.getGeneratedKeys())
+                {
+                    resultSet.next();
+                    addedEntry[0] = new Waitlist.Entry(classId, studentId, priority, resultSet.getLong(1));
+                }
+                return EnrollmentStatus.WAITLISTED;
             }
-        connection.close();
-        }
-        catch (SQLException sqlException)
-        {
-            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
-            System.out.println(sqlException.getMessage());
-        }
+        }, status -> {
+            Waitlist loadedWaitlist = waitlist;
+            if (status == EnrollmentStatus.ENROLLED)
+            {
+                applyEnrollmentChanges(List.of(new Enrollment(classId, studentId)), List.of());
+            }
+            else if (status == EnrollmentStatus.WAITLISTED && loadedWaitlist != null)
+            {
+                loadedWaitlist.add(addedEntry[0]);
+            }
+        });
+    }
+
+    /**
+     * @see #enrollOrWaitlist(int, int, int)
+     */
+    public EnrollmentStatus enrollOrWaitlist(int studentId, int classId) throws SQLException
+    {
+        return enrollOrWaitlist(studentId, classId, 0);
     }
-    public void showAllStudentClasses(String First, String Last){
-        Scanner scannersub = new Scanner(System.in);
+
+    /**
+     * Takes a student off the waitlist of a class
+     *
+     * @return true if the student was on the waitlist
+     * @throws SQLException if the delete fails
+     */
+    public boolean leaveWaitlist(int studentId, int classId) throws SQLException
+    {
         String sql =
-                "SELECT ALL *\n" +
-                        "FROM(\n"+
-                        "SELECT students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
-                        "FROM students\n" +
-                        "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
-                        "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
-                        "ORDER BY class_id)\n" +
-                        "WHERE student_full_name = ?;" ;
-        try{
-            Connection connection = getDatabaseConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, First +" "+ Last);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if(!resultSet.next()){
-                System.out.println("Either this student is not enrolled in any classes or this student does not exist, please try again by re-entering the student's first and last name separated by a space here:  \n");
-                String fix = scannersub.nextLine();
-                String[] fixsplit = fix.split(" ");
-                First = fixsplit[0];
-                First = First.replace(" ", "");
-                Last = fixsplit[1];
-                Last = Last.replace(" ", "");
-                showAllStudentClasses(First, Last);
-            }
-            preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, First + " " + Last);
-            resultSet = preparedStatement.executeQuery();
-            printTableHeader(new String[]{"students.id", "student_full_name", "classes.code", "classes.title"});
+                "DELETE FROM waitlist\n" +
+                "WHERE class_id = ? AND student_id = ?;";
 
-            while (resultSet.next())
+        return write(connection -> executeUpdate(connection, sql, classId, studentId) > 0, removed -> {
+            Waitlist loadedWaitlist = waitlist;
+            if (removed && loadedWaitlist != null)
             {
-                int id = resultSet.getInt("id");
-                String studentFullName = resultSet.getString("student_full_name");
-                String code = resultSet.getString("code");
-                String title = resultSet.getString("title");
+                loadedWaitlist.remove(classId, studentId);
+            }
+        });
+    }
 
-                System.out.printf("| %d | %s | %s | %s |%n", id, studentFullName, code, title);
+    /**
+     * The enrollment behind {@link #enrollStudent(int, int)}, to be run on the writer thread;
+     * a student who gets enrolled is taken off the waitlist of the class
+     */
+    private static EnrollmentStatus enroll(Connection connection, int studentId, int classId) throws SQLException
+    {
+        String sqlConditionalInsert =
+                "INSERT INTO registered_students (class_id, student_id)\n" +
+                "SELECT classes.id, students.id\n" +
+                "FROM classes, students\n" +
+                "WHERE classes.id = ? AND students.id = ?\n" +
+                "    AND NOT EXISTS (SELECT 1 FROM registered_students WHERE class_id = classes.id AND student_id = students.id)\n" +
+                "    AND (classes.max_students IS NULL OR classes.enrolled_count < classes.max_students);";
+        String sqlWhyNotInserted =
+                "SELECT EXISTS (SELECT 1 FROM students WHERE id = ?),\n" +
+                "       EXISTS (SELECT 1 FROM classes WHERE id = ?),\n" +
+                "       EXISTS (SELECT 1 FROM registered_students WHERE class_id = ? AND student_id = ?);";
+        String sqlLeaveWaitlist =
+                "DELETE FROM waitlist\n" +
+                "WHERE class_id = ? AND student_id = ?;";
+
+        try (PreparedStatement insertStatement = connection.prepareStatement(sqlConditionalInsert))
+        {
+            insertStatement.setInt(1, classId);
+            insertStatement.setInt(2, studentId);
+            if (insertStatement.executeUpdate() > 0)
+            {
+                executeUpdate(connection, sqlLeaveWaitlist, classId, studentId);
+                return EnrollmentStatus.ENROLLED;
             }
-            connection.close();
         }
-        catch (SQLException sqlException)
+
+        try (PreparedStatement whyStatement = connection.prepareStatement(sqlWhyNotInserted))
         {
-            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
-            System.out.println(sqlException.getMessage());
-        }
-    }
-    public void showAllStudentClasses(int studentID){
-        Scanner scannersub = new Scanner(System.in);
-        String First = null;
-        String Last = null;
-        Boolean proceed = false;
-        ResultSet resultSet = null;
-        String sql =
-                "SELECT ALL *\n" +
-                        "FROM(\n"+
-                        "SELECT students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
-                        "FROM students\n" +
-                        "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
-                        "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
-                        "ORDER BY class_id)\n" +
-                        "WHERE student_full_name = ?;" ;
-        String sql1 = "SELECT first_name, last_name\n" +
-                "FROM students\n" +
-                "WHERE students.id = ?";
-        try{
-            Connection connection = getDatabaseConnection();
-            while(!proceed) {
-                PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-                preparedStatement1.setInt(1, studentID);
-                ResultSet resultSet1 = preparedStatement1.executeQuery();
-                if (!resultSet1.next()) {
-                    System.out.println("Either this student is not enrolled in any classes or this student does not exist, please try again by re-entering the student's ID here:  \n");
-                    studentID = scannersub.nextInt();
-                    showAllStudentClasses(studentID);
+            whyStatement.setInt(1, studentId);
+            whyStatement.setInt(2, classId);
+            whyStatement.setInt(3, classId);
+            whyStatement.setInt(4, studentId);
+            try (ResultSet resultSet = whyStatement.executeQuery())
+            {
+                resultSet.next();
+                if (!resultSet.getBoolean(1))
+                {
+                    return EnrollmentStatus.STUDENT_NOT_FOUND;
+                }
+                if (!resultSet.getBoolean(2))
+                {
+                    return EnrollmentStatus.CLASS_NOT_FOUND;
                 }
-                First = resultSet1.getString(1);
-                Last = resultSet1.getString(2);
-                PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                preparedStatement.setString(1, First + " " + Last);
-                resultSet = preparedStatement.executeQuery();
-                if (!resultSet.next()) {
-                    System.out.println("Either this student is not enrolled in any classes or this student does not exist, please try again by re-entering the student's ID here:  \n");
-                    studentID = scannersub.nextInt();
+                if (resultSet.getBoolean(3))
+                {
+                    return EnrollmentStatus.ALREADY_ENROLLED;
                 }
-                proceed = true;
+                return EnrollmentStatus.CLASS_FULL;
             }
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, First + " " + Last);
-            resultSet = preparedStatement.executeQuery();
-            printTableHeader(new String[]{"students.id", "student_full_name", "classes.code", "classes.title"});
-
-            while (resultSet.next())
-            {
-                int id = resultSet.getInt("id");
-                String studentFullName = resultSet.getString("student_full_name");
-                String code = resultSet.getString("code");
-                String title = resultSet.getString("title");
+        }
+    }
 
-                System.out.printf("| %d | %s | %s | %s |%n", id, studentFullName, code, title);
-            }
-            connection.close();
+    public void AddStudentToClass(String First, String Last, int classID) {
+        try {
+            AddStudentToClass(promptForStudent(First, Last, new Scanner(System.in)), classID);
+        } catch (SQLException sqlException) {
+            System.out.println(sqlException.getMessage());
         }
-        catch (SQLException sqlException)
-        {
-            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
+    }
+    public void AddStudentToClass(String DOB, int classID) {
+        Scanner scannerSub = new Scanner(System.in);
+        try {
+            int StudentID;
+            while ((StudentID = findStudentIdByBirthDate(DOB)) == 0) {
+                System.out.println("Invalid date of birth, try entering a valid student date of birth here: ");
+                DOB = scannerSub.nextLine().trim();
+            }
+            // prompts for another class id itself if this one does not exist
+            AddStudentToClass(StudentID, classID);
+        } catch (SQLException sqlException) {
             System.out.println(sqlException.getMessage());
         }
     }
-    public void showAllStudentClasses(String DOB){
-        Scanner scannersub = new Scanner(System.in);
-        String First = null;
-        String Last = null;
-        Boolean proceed = false;
-        ResultSet resultSet = null;
-        String sql =
-                "SELECT ALL *\n" +
-                        "FROM(\n"+
-                        "SELECT students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
-                        "FROM students\n" +
-                        "INNER JOIN registered_students ON students.id = registered_students.student_id\n" +
-                        "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
-                        "ORDER BY class_id)\n" +
-                        "WHERE student_full_name = ?;" ;
-        String sql1 = "SELECT first_name, last_name\n" +
-                "FROM students\n" +
-                "WHERE students.birth_date = ?";
-        try{
-            Connection connection = getDatabaseConnection();
-            while(!proceed) {
-                PreparedStatement preparedStatement1 = connection.prepareStatement(sql1);
-                preparedStatement1.setString(1, DOB);
-                ResultSet resultSet1 = preparedStatement1.executeQuery();
-                if (!resultSet1.next()) {
-                    System.out.println("Either this student is not enrolled in any classes or this student does not exist, please try again by re-entering the student's birth date in YYYY-MM-DD format here:  \n");
-                    DOB = scannersub.nextLine();
-                    showAllStudentClasses(DOB);
+    /**
+     * Enrolls many students at once in a single write on the {@link GroupCommitWriter} thread.
+     * <p>
+     * The student and class ids of the whole batch are validated with a few set-wise queries
+     * against a temporary table instead of two lookups per enrollment,
+     * then the valid enrollments are inserted with JDBC batching.
+     * Enrollments that cannot be inserted are skipped and reported in the result rather than failing the batch.
+     *
+     * @param enrollments the (class id, student id) pairs to insert
+     * @return the number of inserted enrollments and the reason each rejected one was rejected
+     * @throws SQLException if the batch cannot be validated or inserted, in which case nothing is inserted
+     */
+    public EnrollmentBatchResult enrollBatch(Collection<Enrollment> enrollments) throws SQLException
+    {
+        EnrollmentBatchResult result = new EnrollmentBatchResult();
+        if (enrollments.isEmpty())
+        {
+            return result;
+        }
+
+        String sqlInsert =
+                "INSERT INTO registered_students (class_id, student_id)\n" +
+                "VALUES (?, ?);";
+        String sqlMissingStudents =
+                "SELECT DISTINCT student_id\n" +
+                "FROM temp.batch_enrollments\n" +
+                "WHERE student_id NOT IN (SELECT id FROM students);";
+        String sqlMissingClasses =
+                "SELECT DISTINCT class_id\n" +
+                "FROM temp.batch_enrollments\n" +
+                "WHERE class_id NOT IN (SELECT id FROM classes);";
+        String sqlAlreadyEnrolled =
+                "SELECT batch_enrollments.class_id, batch_enrollments.student_id\n" +
+                "FROM temp.batch_enrollments\n" +
+                "INNER JOIN registered_students ON registered_students.class_id = batch_enrollments.class_id\n" +
+                "    AND registered_students.student_id = batch_enrollments.student_id;";
+        String sqlRemainingSeats =
+                "SELECT id, COALESCE(max_students - enrolled_count, 2147483647)\n" +
+                "FROM classes\n" +
+                "WHERE id IN (SELECT class_id FROM temp.batch_enrollments);";
+        // students who got enrolled leave the waitlist of the class
+        String sqlLeaveWaitlists =
+                "DELETE FROM waitlist\n" +
+                "WHERE class_id IN (SELECT class_id FROM temp.batch_enrollments)\n" +
+                "    AND EXISTS (SELECT 1 FROM registered_students\n" +
+                "                WHERE registered_students.class_id = waitlist.class_id AND registered_students.student_id = waitlist.student_id);";
+
+        // applied to the enrollment graph once the batch has been committed
+        List<Enrollment> insertedEnrollments = new ArrayList<>();
+        return write(connection -> {
+            loadBatchEnrollments(connection, enrollments);
+
+            Set<Integer> missingStudentIds = new HashSet<>();
+            Set<Integer> missingClassIds = new HashSet<>();
+            Set<Long> alreadyEnrolled = new HashSet<>();
+            Map<Integer, Integer> remainingSeatsByClassId = new HashMap<>();
+            try (Statement statement = connection.createStatement())
+            {
+                try (ResultSet resultSet = statement.executeQuery(sqlMissingStudents))
+                {
+                    while (resultSet.next())
+                    {
+                        missingStudentIds.add(resultSet.getInt(1));
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery(sqlMissingClasses))
+                {
+                    while (resultSet.next())
+                    {
+                        missingClassIds.add(resultSet.getInt(1));
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery(sqlAlreadyEnrolled))
+                {
+                    while (resultSet.next())
+                    {
+                        alreadyEnrolled.add(enrollmentKey(resultSet.getInt(1), resultSet.getInt(2)));
+                    }
                 }
-                First = resultSet1.getString(1);
-                Last = resultSet1.getString(2);
-                PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                preparedStatement.setString(1, First + " " + Last);
-                resultSet = preparedStatement.executeQuery();
-                if (!resultSet.next()) {
-                    System.out.println("Either this student is not enrolled in any classes or this student does not exist, please try again by re-entering the student's birth date in YYYY-MM-DD format here:  \n");
-                    DOB = scannersub.nextLine();
+                try (ResultSet resultSet = statement.executeQuery(sqlRemainingSeats))
+                {
+                    while (resultSet.next())
+                    {
+                        remainingSeatsByClassId.put(resultSet.getInt(1), resultSet.getInt(2));
+                    }
                 }
-                proceed = true;
             }
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, First + " " + Last);
-            resultSet = preparedStatement.executeQuery();
-            printTableHeader(new String[]{"students.id", "student_full_name", "classes.code", "classes.title"});
 
-            while (resultSet.next())
+            int numberOfEnrollmentsInserted = 0;
+            Set<Long> enrollmentsInBatch = new HashSet<>();
+            try (PreparedStatement insertStatement = connection.prepareStatement(sqlInsert))
             {
-                int id = resultSet.getInt("id");
-                String studentFullName = resultSet.getString("student_full_name");
-                String code = resultSet.getString("code");
-                String title = resultSet.getString("title");
+                int pendingInserts = 0;
+                for (Enrollment enrollment : enrollments)
+                {
+                    int classId = enrollment.getClassId();
+                    long key = enrollmentKey(classId, enrollment.getStudentId());
+
+                    EnrollmentStatus failureStatus = null;
+                    if (missingStudentIds.contains(enrollment.getStudentId()))
+                    {
+                        failureStatus = EnrollmentStatus.STUDENT_NOT_FOUND;
+                    }
+                    else if (missingClassIds.contains(classId))
+                    {
+                        failureStatus = EnrollmentStatus.CLASS_NOT_FOUND;
+                    }
+                    else if (alreadyEnrolled.contains(key))
+                    {
+                        failureStatus = EnrollmentStatus.ALREADY_ENROLLED;
+                    }
+                    else if (!enrollmentsInBatch.add(key))
+                    {
+                        failureStatus = EnrollmentStatus.DUPLICATE_IN_BATCH;
+                    }
+                    else if (remainingSeatsByClassId.getOrDefault(classId, 0) <= 0)
+                    {
+                        failureStatus = EnrollmentStatus.CLASS_FULL;
+                    }
+
+                    if (failureStatus != null)
+                    {
+                        result.addFailure(enrollment, failureStatus);
+                        continue;
+                    }
+
+                    remainingSeatsByClassId.merge(classId, -1, Integer::sum);
+                    insertStatement.setInt(1, classId);
+                    insertStatement.setInt(2, enrollment.getStudentId());
+                    insertStatement.addBatch();
+                    insertedEnrollments.add(enrollment);
+                    numberOfEnrollmentsInserted++;
+
+                    if (++pendingInserts == ENROLLMENT_BATCH_SIZE)
+                    {
+                        insertStatement.executeBatch();
+                        pendingInserts = 0;
+                    }
+                }
+                if (pendingInserts > 0)
+                {
+                    insertStatement.executeBatch();
+                }
+            }
 
-                System.out.printf("| %d | %s | %s | %s |%n", id, studentFullName, code, title);
+            try (Statement statement = connection.createStatement())
+            {
+                if (numberOfEnrollmentsInserted > 0)
+                {
+                    statement.executeUpdate(sqlLeaveWaitlists);
+                }
+                statement.executeUpdate("DELETE FROM temp.batch_enrollments;");
             }
-            connection.close();
-        }
-        catch (SQLException sqlException)
-        {
-            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
-            System.out.println(sqlException.getMessage());
-        }
+            result.setNumberOfEnrollmentsInserted(numberOfEnrollmentsInserted);
+            return result;
+        }, committedResult -> applyEnrollmentChanges(insertedEnrollments, List.of()));
     }
-private void printTableHeader(String[] listOfColumnNames)
-{
-    System.out.print("| ");
-    for (String columnName : listOfColumnNames)
+
+    /**
+     * Copies the batch into a temporary table of the connection, so it can be validated with set-wise queries
+     */
+    private void loadBatchEnrollments(Connection connection, Collection<Enrollment> enrollments) throws SQLException
     {
-        System.out.print(columnName + " | ");
+        ConnectionPool.resetTemporaryTable(connection, "batch_enrollments", "class_id INTEGER NOT NULL, student_id INTEGER NOT NULL");
+
+        String sql =
+                "INSERT INTO temp.batch_enrollments (class_id, student_id)\n" +
+                "VALUES (?, ?);";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            int pendingInserts = 0;
+            for (Enrollment enrollment : enrollments)
+            {
+                preparedStatement.setInt(1, enrollment.getClassId());
+                preparedStatement.setInt(2, enrollment.getStudentId());
+                preparedStatement.addBatch();
+                if (++pendingInserts == ENROLLMENT_BATCH_SIZE)
+                {
+                    preparedStatement.executeBatch();
+                    pendingInserts = 0;
+                }
+            }
+            if (pendingInserts > 0)
+            {
+                preparedStatement.executeBatch();
+            }
+        }
+    }
+
+    private static long enrollmentKey(int classId, int studentId)
+    {
+        return ((long) classId << 32) | (studentId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return every enrollment, ordered by student name and class code
+     * @throws SQLException if the registered_students table cannot be queried
+     */
+    public List<Enrollment> listAllRegisteredStudents() throws SQLException
+    {
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            Statement sqlStatement = connection.createStatement();
+            ResultSet resultSet = sqlStatement.executeQuery(LIST_ALL_REGISTERED_STUDENTS_SQL);
+        )
+        {
+            return readEnrollments(resultSet);
+        }
+    }
+
+    /**
+     * Lists the enrollments one page at a time, in the same order as {@link #listAllRegisteredStudents()}
+     *
+     * @param cursor   null for the first page, otherwise the next or previous cursor of a page returned by this method
+     * @param pageSize the most enrollments in the page
+     * @throws IllegalArgumentException if the cursor was not returned by this method or the page size is out of range
+     */
+    public Page<Enrollment> listRegisteredStudents(String cursor, int pageSize) throws SQLException
+    {
+        return listPage(REGISTERED_STUDENTS_PAGE_QUERY, cursor, pageSize, Database::readEnrollment);
+    }
+
+    /**
+     * Runs one page of a keyset-paginated listing.
+     * <p>
+     * Instead of an OFFSET, which makes SQLite step over every skipped row and shifts the pages when rows are inserted
+     * or deleted, the cursor holds the key of the last (or first) row shown and the page starts right after (or before) it
+     * with a row-value comparison {@code (key columns) > (?, ...)}, which seeks through the index on the key columns.
+     * One row more than the page size is fetched to know whether there is a page after this one.
+     * Going backwards sorts in descending key order and reverses the rows.
+     */
+    private <T> Page<T> listPage(PagedQuery query, String cursor, int pageSize, RowReader<T> rowReader) throws SQLException
+    {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+        {
+            throw new IllegalArgumentException("the page size must be between 1 and " + MAX_PAGE_SIZE + ", got " + pageSize);
+        }
+        PageCursor pageCursor = cursor == null ? null : PageCursor.decode(cursor, query.listing);
+        if (pageCursor != null && pageCursor.getKey().size() != query.keyColumns.length)
+        {
+            throw new IllegalArgumentException("malformed page cursor");
+        }
+        boolean forward = pageCursor == null || pageCursor.isForward();
+
+        List<T> items = new ArrayList<>();
+        List<List<Object>> keys = new ArrayList<>();
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(query.toSql(pageCursor != null, forward));
+        )
+        {
+            int parameterIndex = 1;
+            if (pageCursor != null)
+            {
+                for (Object keyValue : pageCursor.getKey())
+                {
+                    preparedStatement.setObject(parameterIndex++, keyValue);
+                }
+            }
+            preparedStatement.setInt(parameterIndex, pageSize + 1);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                // the key columns are selected after the columns read by the row reader
+                int firstKeyColumn = resultSet.getMetaData().getColumnCount() - query.keyColumns.length + 1;
+                while (resultSet.next())
+                {
+                    items.add(rowReader.read(resultSet));
+                    List<Object> key = new ArrayList<>(query.keyColumns.length);
+                    for (int i = 0; i < query.keyColumns.length; i++)
+                    {
+                        key.add(resultSet.getObject(firstKeyColumn + i));
+                    }
+                    keys.add(key);
+                }
+            }
+        }
+
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore)
+        {
+            items.remove(pageSize);
+            keys.remove(pageSize);
+        }
+        if (!forward)
+        {
+            Collections.reverse(items);
+            Collections.reverse(keys);
+        }
+
+        if (items.isEmpty())
+        {
+            // nothing is left after the cursor, or every row before it was deleted meanwhile and paging starts over
+            return forward
+                    ? new Page<>(items, null, pageCursor == null ? null : new PageCursor(query.listing, false, pageCursor.getKey()).encode())
+                    : listPage(query, null, pageSize, rowReader);
+        }
+        boolean hasNext = forward ? hasMore : true;
+        boolean hasPrevious = forward ? pageCursor != null : hasMore;
+        return new Page<>(
+                items,
+                hasNext ? new PageCursor(query.listing, true, keys.get(keys.size() - 1)).encode() : null,
+                hasPrevious ? new PageCursor(query.listing, false, keys.get(0)).encode() : null
+        );
+    }
+
+    /**
+     * The query behind one paginated listing, see {@link #listPage}
+     */
+    private static class PagedQuery
+    {
+        private final String listing;
+        private final String columns;
+        private final String fromClause;
+        private final String[] keyColumns;
+
+        private PagedQuery(String listing, String columns, String fromClause, String... keyColumns)
+        {
+            this.listing = listing;
+            this.columns = columns;
+            this.fromClause = fromClause;
+            this.keyColumns = keyColumns;
+        }
+
+        private String toSql(boolean afterCursor, boolean forward)
+        {
+            String keyList = String.join(", ", keyColumns);
+            StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(", ").append(keyList).append('\n').append(fromClause);
+            if (afterCursor)
+            {
+                sql.append("\nWHERE (").append(keyList).append(forward ? ") > (" : ") < (")
+                   .append(String.join(", ", Collections.nCopies(keyColumns.length, "?"))).append(')');
+            }
+            sql.append("\nORDER BY ").append(forward ? keyList : String.join(" DESC, ", keyColumns) + " DESC")
+               .append("\nLIMIT ?;");
+            return sql.toString();
+        }
+    }
+
+    /**
+     * Reads one row of a result set into an object, see {@link #listPage}
+     */
+    private interface RowReader<T>
+    {
+        T read(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Writes every class, as listed by {@link #listAllClasses()}, to the given file
+     *
+     * @return the number of rows written
+     */
+    public long exportAllClasses(Path file, ExportFormat format) throws SQLException, IOException
+    {
+        return exportQuery(LIST_ALL_CLASSES_SQL, file, format);
+    }
+
+    /**
+     * Writes every student, as listed by {@link #listAllStudents()}, to the given file
+     *
+     * @return the number of rows written
+     */
+    public long exportAllStudents(Path file, ExportFormat format) throws SQLException, IOException
+    {
+        return exportQuery(LIST_ALL_STUDENTS_SQL, file, format);
+    }
+
+    /**
+     * Writes every enrollment, as listed by {@link #listAllRegisteredStudents()}, to the given file
+     *
+     * @return the number of rows written
+     */
+    public long exportAllRegisteredStudents(Path file, ExportFormat format) throws SQLException, IOException
+    {
+        return exportQuery(LIST_ALL_REGISTERED_STUDENTS_SQL, file, format);
+    }
+
+    /**
+     * Streams the rows returned by the query to the file through a fixed-size buffer,
+     * so the memory used does not grow with the number of rows
+     */
+    private long exportQuery(String sql, Path file, ExportFormat format) throws SQLException, IOException
+    {
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            Statement sqlStatement = connection.createStatement();
+            ResultSet resultSet = sqlStatement.executeQuery(sql);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        )
+        {
+            return new ResultSetExporter(format).export(resultSet, writer);
+        }
+    }
+    public void RemoveStudentFromClass(int StudentID, int classID){
+        Scanner scannerSub = new Scanner(System.in);
+        try {
+            while (!studentExists(StudentID)) {
+                System.out.println("No such Student ID, please try again here: \n");
+                StudentID = scannerSub.nextInt();
+            }
+            while (findClassById(classID) == null) {
+                System.out.println("No such class ID, please try again here: \n");
+                classID = scannerSub.nextInt();
+            }
+            // through the writer thread, so the freed seat goes to the waitlist in the same transaction
+            StudentDropResult result = dropStudentFromClass(StudentID, classID);
+            if (!result.isDropped()) {
+                System.out.println("!!! WARNING: the student with id = " + StudentID + " is not enrolled in the class with id = " + classID);
+                return;
+            }
+            System.out.println("SUCCESSFULLY dropped the student with id = " + StudentID + " from the class with id = " + classID);
+            for (int promotedStudentId : result.getPromotedStudentIds()) {
+                System.out.println("The student with id = " + promotedStudentId + " was promoted from the waitlist into the class");
+            }
+        } catch (SQLException sqlException) {
+            System.out.println(sqlException.getMessage());
+        }
+    }
+    /**
+     * Drops a student from a class, without any prompt or output
+     *
+     * @return true if the student was enrolled in the class and has been dropped
+     * @throws SQLException if the delete fails
+     * @see #dropStudentFromClass(int, int)
+     */
+    public boolean dropStudent(int studentId, int classId) throws SQLException
+    {
+        return dropStudentFromClass(studentId, classId).isDropped();
+    }
+
+    /**
+     * Drops a student from a class and, in the same transaction, gives the freed seat to the next student
+     * on the waitlist of the class
+     *
+     * @return whether the student was dropped and who was promoted
+     * @throws SQLException if the drop fails, in which case nobody is dropped or promoted
+     */
+    public StudentDropResult dropStudentFromClass(int studentId, int classId) throws SQLException
+    {
+        String sql =
+                "DELETE FROM registered_students\n" +
+                "WHERE class_id = ? AND student_id = ?;";
+
+        // applied to the enrollment graph and the waitlist once the drop has been committed
+        List<Enrollment> promotedEnrollments = new ArrayList<>();
+        return write(connection -> {
+            if (executeUpdate(connection, sql, classId, studentId) == 0)
+            {
+                return new StudentDropResult(false, List.of());
+            }
+
+            List<Integer> promotedStudentIds = new ArrayList<>();
+            for (Enrollment promotedEnrollment : promoteFromWaitlists(connection, "?", classId))
+            {
+                promotedEnrollments.add(promotedEnrollment);
+                promotedStudentIds.add(promotedEnrollment.getStudentId());
+            }
+            return new StudentDropResult(true, promotedStudentIds);
+        }, result -> {
+            if (result.isDropped())
+            {
+                applyEnrollmentChanges(promotedEnrollments, List.of(new Enrollment(classId, studentId)));
+            }
+        });
+    }
+
+    /**
+     * Fills the free seats of the given classes with the students at the head of their waitlists,
+     * inside the caller's transaction on the writer thread.
+     * <p>
+     * One query counts the free seats of each class that has a waitlist, then the head of each of those waitlists
+     * is read in promotion order through the (class_id, priority DESC, id) index, LIMITed to the free seats;
+     * the students are then enrolled and taken off the waitlist with one JDBC batch each.
+     *
+     * @param classIdsSql the classes to fill, as a list of ids or a subquery for {@code class_id IN (...)}
+     * @param parameters the parameters of classIdsSql
+     * @return the enrollments of the promoted students, in promotion order within each class
+     */
+    private static List<Enrollment> promoteFromWaitlists(Connection connection, String classIdsSql, long... parameters) throws SQLException
+    {
+        // a class without max_students has unlimited seats, which LIMIT -1 expresses
+        String sqlFreeSeats =
+                "SELECT classes.id,\n" +
+                "       COALESCE(MAX(classes.max_students - classes.enrolled_count, 0), -1)\n" +
+                "FROM classes\n" +
+                "WHERE classes.id IN (" + classIdsSql + ")\n" +
+                "    AND EXISTS (SELECT 1 FROM waitlist WHERE class_id = classes.id);";
+        String sqlNextInLine =
+                "SELECT student_id\n" +
+                "FROM waitlist\n" +
+                "WHERE class_id = ?\n" +
+                "ORDER BY priority DESC, id\n" +
+                "LIMIT ?;";
+        String sqlEnroll =
+                "INSERT OR IGNORE INTO registered_students (class_id, student_id)\n" +
+                "VALUES (?, ?);";
+        String sqlLeaveWaitlist =
+                "DELETE FROM waitlist\n" +
+                "WHERE class_id = ? AND student_id = ?;";
+
+        List<Enrollment> promotedEnrollments = new ArrayList<>();
+        try
+        (
+            PreparedStatement freeSeatsStatement = connection.prepareStatement(sqlFreeSeats);
+            PreparedStatement nextInLineStatement = connection.prepareStatement(sqlNextInLine);
+        )
+        {
+            for (int i = 0; i < parameters.length; i++)
+            {
+                freeSeatsStatement.setLong(i + 1, parameters[i]);
+            }
+            try (ResultSet freeSeats = freeSeatsStatement.executeQuery())
+            {
+                while (freeSeats.next())
+                {
+                    int classId = freeSeats.getInt(1);
+                    int numberOfFreeSeats = freeSeats.getInt(2);
+                    if (numberOfFreeSeats == 0)
+                    {
+                        continue;
+                    }
+                    nextInLineStatement.setInt(1, classId);
+                    nextInLineStatement.setInt(2, numberOfFreeSeats);
+                    try (ResultSet resultSet = nextInLineStatement.executeQuery())
+                    {
+                        while (resultSet.next())
+                        {
+                            promotedEnrollments.add(new Enrollment(classId, resultSet.getInt(1)));
+                        }
+                    }
+                }
+            }
+        }
+        if (promotedEnrollments.isEmpty())
+        {
+            return promotedEnrollments;
+        }
+
+        try
+        (
+            PreparedStatement enrollStatement = connection.prepareStatement(sqlEnroll);
+            PreparedStatement leaveWaitlistStatement = connection.prepareStatement(sqlLeaveWaitlist);
+        )
+        {
+            for (Enrollment promotedEnrollment : promotedEnrollments)
+            {
+                enrollStatement.setInt(1, promotedEnrollment.getClassId());
+                enrollStatement.setInt(2, promotedEnrollment.getStudentId());
+                enrollStatement.addBatch();
+                leaveWaitlistStatement.setInt(1, promotedEnrollment.getClassId());
+                leaveWaitlistStatement.setInt(2, promotedEnrollment.getStudentId());
+                leaveWaitlistStatement.addBatch();
+            }
+            // OR IGNORE: a waitlisted student who is already enrolled just leaves the waitlist
+            enrollStatement.executeBatch();
+            leaveWaitlistStatement.executeBatch();
+        }
+        return promotedEnrollments;
+    }
+    public void RemoveStudentFromClass(String First, String Last, int classID) {
+        try {
+            RemoveStudentFromClass(promptForStudent(First, Last, new Scanner(System.in)), classID);
+        } catch (SQLException sqlException) {
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    /**
+     * Looks the student up by name and, while nobody has that name, shows the closest names from the
+     * {@link StudentNameIndex} and asks again for a name or the id of one of the suggested students
+     *
+     * @return the id of the student (the lowest one if several students share the name)
+     */
+    private int promptForStudent(String firstName, String lastName, Scanner scanner) throws SQLException
+    {
+        int studentId = findStudentIdByName(firstName, lastName);
+        while (studentId == 0)
+        {
+            String typedName = firstName + " " + lastName;
+            List<Student> suggestions = searchStudentsByName(typedName, NAME_SUGGESTIONS);
+            if (suggestions.isEmpty())
+            {
+                System.out.println("No student is named \"" + typedName + "\" or anything close to it.");
+            }
+            else
+            {
+                System.out.println("No student is named \"" + typedName + "\", did you mean:");
+                for (Student suggestion : suggestions)
+                {
+                    System.out.println("  " + suggestion.getId() + " - " + suggestion.getFirstName() + " " + suggestion.getLastName());
+                }
+            }
+            System.out.println("Enter the id of one of these students, or try entering a valid student name here: ");
+
+            String answer = scanner.nextLine().trim();
+            if (answer.matches("\\d+"))
+            {
+                int chosenId = Integer.parseInt(answer);
+                studentId = studentExists(chosenId) ? chosenId : 0;
+                continue;
+            }
+            String[] names = answer.split("\\s+", 2);
+            firstName = names[0];
+            lastName = names.length > 1 ? names[1] : "";
+            studentId = findStudentIdByName(firstName, lastName);
+        }
+        return studentId;
+    }
+    public void RemoveStudentFromClass(String DOB, int classID) {
+        Scanner scannerSub = new Scanner(System.in);
+        try {
+            int StudentID;
+            while ((StudentID = findStudentIdByBirthDate(DOB)) == 0) {
+                System.out.println("Invalid date of birth, try entering a valid student date of birth here: ");
+                DOB = scannerSub.nextLine().trim();
+            }
+            RemoveStudentFromClass(StudentID, classID);
+        } catch (SQLException sqlException) {
+            System.out.println(sqlException.getMessage());
+        }
+    }
+    /**
+     * Returns the students enrolled in a class, ordered by student id.
+     * With the {@link EnrollmentGraph} loaded the student ids come from memory and only their names are read.
+     *
+     * @param classId the id of the class, see {@link #findClassIdByCode(String)}
+     * @return the enrollments of the class, empty if nobody is enrolled or the class does not exist
+     * @throws SQLException if the query fails
+     */
+    public List<Enrollment> getStudentsInClass(int classId) throws SQLException
+    {
+        EnrollmentGraph graph = enrollmentGraph;
+        if (graph != null)
+        {
+            int[] studentIds = graph.getStudentIds(classId);
+            Class rosterClass = studentIds.length == 0 ? null : findClassById(classId);
+            if (rosterClass == null)
+            {
+                return List.of();
+            }
+            Map<Integer, String> studentFullNames = loadStudentFullNames(studentIds);
+            List<Enrollment> roster = new ArrayList<>(studentIds.length);
+            for (int studentId : studentIds)
+            {
+                String studentFullName = studentFullNames.get(studentId);
+                if (studentFullName != null)
+                {
+                    roster.add(new Enrollment(classId, studentId, studentFullName, rosterClass.getCode(), rosterClass.getTitle()));
+                }
+            }
+            return roster;
+        }
+
+        // only the enrollments of the class are read, walking the UNIQUE (class_id, student_id) index
+        // which already returns them sorted by student_id
+        String sql =
+                "SELECT registered_students.class_id, students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
+                "FROM registered_students\n" +
+                "INNER JOIN students ON students.id = registered_students.student_id\n" +
+                "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
+                "WHERE registered_students.class_id = ?\n" +
+                "ORDER BY registered_students.student_id;";
+
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        )
+        {
+            preparedStatement.setInt(1, classId);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                return readEnrollments(resultSet);
+            }
+        }
+    }
+
+    /**
+     * @param classCode the code of the class, e.g. "CS 410"
+     * @return the id of the class, or 0 if there is no class with that code
+     * @throws SQLException if the lookup fails
+     */
+    public int findClassIdByCode(String classCode) throws SQLException
+    {
+        Class foundClass = findClassByCode(classCode);
+        return foundClass == null ? 0 : foundClass.getId();
+    }
+
+    /**
+     * Looks up a class through the {@link ClassCatalogCache}, querying the database only on a cache miss
+     *
+     * @return the class with that id, or null if there is no such class
+     * @throws SQLException if the class has to be loaded and the query fails
+     */
+    public Class findClassById(int classId) throws SQLException
+    {
+        return classCatalogCache.findById(classId, id -> loadClass("id", id));
+    }
+
+    /**
+     * Looks up a class through the {@link ClassCatalogCache}, querying the database only on a cache miss
+     *
+     * @param classCode the code of the class, e.g. "CS 410"
+     * @return the class with that code, or null if there is no such class
+     * @throws SQLException if the class has to be loaded and the query fails
+     */
+    public Class findClassByCode(String classCode) throws SQLException
+    {
+        return classCatalogCache.findByCode(classCode, code -> loadClass("code", code));
+    }
+
+    /**
+     * @param keyColumn id or code, both of which are unique
+     */
+    private Class loadClass(String keyColumn, Object key) throws SQLException
+    {
+        String sql =
+                "SELECT id, code, title, description, max_students\n" +
+                "FROM classes\n" +
+                "WHERE " + keyColumn + " = ?;";
+
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        )
+        {
+            preparedStatement.setObject(1, key);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                if (!resultSet.next())
+                {
+                    return null;
+                }
+                return new Class(
+                        resultSet.getInt("id"),
+                        resultSet.getString("code"),
+                        resultSet.getString("title"),
+                        resultSet.getString("description"),
+                        resultSet.getInt("max_students")
+                );
+            }
+        }
+    }
+
+    /**
+     * @return the id of the student with that name (the lowest one if several students share it),
+     *         or 0 if there is no such student
+     * @throws SQLException if the lookup fails
+     */
+    public int findStudentIdByName(String firstName, String lastName) throws SQLException
+    {
+        try (Connection connection = getDatabaseConnection())
+        {
+            return findStudentIdByName(connection, firstName, lastName);
+        }
+    }
+
+    /**
+     * @param birthDate in the YYYY-MM-DD format
+     * @return the id of the student born on that date (the lowest one if several students share it),
+     *         or 0 if there is no such student
+     * @throws SQLException if the lookup fails
+     */
+    public int findStudentIdByBirthDate(String birthDate) throws SQLException
+    {
+        try (Connection connection = getDatabaseConnection())
+        {
+            return findStudentIdByBirthDate(connection, birthDate);
+        }
+    }
+
+    /**
+     * @return true if there is a student with that id
+     * @throws SQLException if the lookup fails
+     */
+    public boolean studentExists(int studentId) throws SQLException
+    {
+        try (Connection connection = getDatabaseConnection())
+        {
+            return studentExists(connection, studentId);
+        }
+    }
+
+    /**
+     * Returns the classes a student is enrolled in, ordered by class id.
+     * With the {@link EnrollmentGraph} loaded the class ids come from memory, the classes from the
+     * {@link ClassCatalogCache}, and only the student's name is read.
+     *
+     * @param studentId the id of the student
+     * @return the enrollments of the student, empty if the student is not enrolled anywhere or does not exist
+     * @throws SQLException if the query fails
+     */
+    public List<Enrollment> getStudentSchedule(int studentId) throws SQLException
+    {
+        EnrollmentGraph graph = enrollmentGraph;
+        if (graph != null)
+        {
+            int[] classIds = graph.getClassIds(studentId);
+            String studentFullName = classIds.length == 0 ? null : loadStudentFullNames(new int[]{studentId}).get(studentId);
+            if (studentFullName == null)
+            {
+                return List.of();
+            }
+            List<Enrollment> schedule = new ArrayList<>(classIds.length);
+            for (int classId : classIds)
+            {
+                Class scheduledClass = findClassById(classId);
+                if (scheduledClass != null)
+                {
+                    schedule.add(new Enrollment(classId, studentId, studentFullName, scheduledClass.getCode(), scheduledClass.getTitle()));
+                }
+            }
+            return schedule;
+        }
+
+        try (Connection connection = getDatabaseConnection())
+        {
+            return getStudentSchedule(connection, studentId);
+        }
+    }
+
+    /**
+     * Returns the classes both students are enrolled in, ordered by class id.
+     * With the {@link EnrollmentGraph} loaded this intersects two in-memory arrays and reads the classes
+     * through the {@link ClassCatalogCache}, otherwise it intersects the two schedules in SQL.
+     *
+     * @return the shared classes, empty if there are none or a student does not exist
+     * @throws SQLException if the query fails
+     */
+    public List<Class> getClassesSharedBy(int studentId, int otherStudentId) throws SQLException
+    {
+        EnrollmentGraph graph = enrollmentGraph;
+        if (graph != null)
+        {
+            List<Class> sharedClasses = new ArrayList<>();
+            for (int classId : graph.getSharedClassIds(studentId, otherStudentId))
+            {
+                Class sharedClass = findClassById(classId);
+                if (sharedClass != null)
+                {
+                    sharedClasses.add(sharedClass);
+                }
+            }
+            return sharedClasses;
+        }
+
+        String sql =
+                "SELECT id, code, title, description, max_students\n" +
+                "FROM classes\n" +
+                "WHERE id IN (SELECT class_id FROM registered_students WHERE student_id = ?\n" +
+                "             INTERSECT\n" +
+                "             SELECT class_id FROM registered_students WHERE student_id = ?)\n" +
+                "ORDER BY id;";
+
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        )
+        {
+            preparedStatement.setInt(1, studentId);
+            preparedStatement.setInt(2, otherStudentId);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                List<Class> sharedClasses = new ArrayList<>();
+                while (resultSet.next())
+                {
+                    sharedClasses.add(readClass(resultSet));
+                }
+                return sharedClasses;
+            }
+        }
+    }
+
+    /**
+     * Returns how full each class is, the fullest first, classes without a max_students last.
+     * Reads the enrolled_count kept in the classes table, i.e. one row per class instead of every enrollment.
+     *
+     * @throws SQLException if the query fails
+     */
+    public List<ClassFillRate> getClassFillRates() throws SQLException
+    {
+        String sql =
+                "SELECT id, code, title, enrolled_count, max_students\n" +
+                "FROM classes\n" +
+                "ORDER BY CAST(enrolled_count AS REAL) / NULLIF(max_students, 0) DESC NULLS LAST, enrolled_count DESC, id;";
+
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(sql);
+        )
+        {
+            List<ClassFillRate> fillRates = new ArrayList<>();
+            while (resultSet.next())
+            {
+                int maxStudents = resultSet.getInt(5);
+                fillRates.add(new ClassFillRate(
+                        resultSet.getInt(1),
+                        resultSet.getString(2),
+                        resultSet.getString(3),
+                        resultSet.getInt(4),
+                        resultSet.wasNull() ? null : maxStudents
+                ));
+            }
+            return fillRates;
+        }
+    }
+
+    /**
+     * Recounts the enrollments of every class and repairs the enrolled_count of the classes that do not match,
+     * e.g. after registered_students was changed with the triggers dropped.
+     * <p>
+     * The classes are split into id ranges recounted in parallel, each on its own pooled connection and in a single
+     * statement, so the stored and the recounted numbers of a range come from the same snapshot.
+     * The mismatched classes are then recounted and rewritten once more on the writer thread.
+     *
+     * @throws SQLException if a range cannot be recounted or the repair fails
+     */
+    public EnrollmentCountCheckResult checkEnrollmentCounts() throws SQLException
+    {
+        String sqlIdRange =
+                "SELECT MIN(id), MAX(id), COUNT(*)\n" +
+                "FROM classes;";
+        String sqlRepair =
+                "UPDATE classes\n" +
+                "SET enrolled_count = (SELECT COUNT(*) FROM registered_students WHERE class_id = classes.id)\n" +
+                "WHERE id = ? AND enrolled_count <> (SELECT COUNT(*) FROM registered_students WHERE class_id = classes.id);";
+
+        long firstClassId;
+        long lastClassId;
+        int numberOfClasses;
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(sqlIdRange);
+        )
+        {
+            resultSet.next();
+            firstClassId = resultSet.getLong(1);
+            lastClassId = resultSet.getLong(2);
+            numberOfClasses = resultSet.getInt(3);
+        }
+        if (numberOfClasses == 0)
+        {
+            return new EnrollmentCountCheckResult(0, List.of(), 0);
+        }
+
+        // one range per core, as long as the pool has a connection for each
+        int parallelism = Math.min(Runtime.getRuntime().availableProcessors(), connectionPool.getSettings().getMaxPoolSize());
+        long rangeSize = (lastClassId - firstClassId) / parallelism + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Integer> mismatchedClassIds = new ArrayList<>();
+        try
+        {
+            List<Future<List<Integer>>> mismatchesByRange = new ArrayList<>();
+            for (long rangeStart = firstClassId; rangeStart <= lastClassId; rangeStart += rangeSize)
+            {
+                long start = rangeStart;
+                long end = Math.min(lastClassId, rangeStart + rangeSize - 1);
+                mismatchesByRange.add(executor.submit(() -> findMismatchedEnrollmentCounts(start, end)));
+            }
+            for (Future<List<Integer>> mismatches : mismatchesByRange)
+            {
+                mismatchedClassIds.addAll(mismatches.get());
+            }
+        }
+        catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while recounting the enrollments", interruptedException);
+        }
+        catch (ExecutionException executionException)
+        {
+            Throwable cause = executionException.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        if (mismatchedClassIds.isEmpty())
+        {
+            return new EnrollmentCountCheckResult(numberOfClasses, mismatchedClassIds, 0);
+        }
+        int numberOfClassesRepaired = write(connection -> {
+            int numberOfRowsUpdated = 0;
+            for (int classId : mismatchedClassIds)
+            {
+                numberOfRowsUpdated += executeUpdate(connection, sqlRepair, classId);
+            }
+            return numberOfRowsUpdated;
+        });
+        return new EnrollmentCountCheckResult(numberOfClasses, mismatchedClassIds, numberOfClassesRepaired);
+    }
+
+    /**
+     * @return the ids of the classes in the id range whose enrolled_count differs from their rows in registered_students
+     */
+    private List<Integer> findMismatchedEnrollmentCounts(long firstClassId, long lastClassId) throws SQLException
+    {
+        // each class counts its rows through the (class_id, student_id) index of the UNIQUE constraint
+        String sql =
+                "SELECT classes.id\n" +
+                "FROM classes\n" +
+                "WHERE classes.id BETWEEN ? AND ?\n" +
+                "    AND classes.enrolled_count <> (SELECT COUNT(*) FROM registered_students WHERE class_id = classes.id)\n" +
+                "ORDER BY classes.id;";
+
+        try
+        (
+            Connection connection = getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        )
+        {
+            preparedStatement.setLong(1, firstClassId);
+            preparedStatement.setLong(2, lastClassId);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                List<Integer> mismatchedClassIds = new ArrayList<>();
+                while (resultSet.next())
+                {
+                    mismatchedClassIds.add(resultSet.getInt(1));
+                }
+                return mismatchedClassIds;
+            }
+        }
+    }
+
+    /**
+     * @return the "first_name last_name" of each of the students that exist, by student id
+     */
+    private Map<Integer, String> loadStudentFullNames(int[] studentIds) throws SQLException
+    {
+        // bounded chunks stay below SQLite's limit on the number of host parameters
+        int maxIdsPerQuery = 500;
+        Map<Integer, String> studentFullNames = new HashMap<>();
+        try (Connection connection = getDatabaseConnection())
+        {
+            for (int from = 0; from < studentIds.length; from += maxIdsPerQuery)
+            {
+                int to = Math.min(studentIds.length, from + maxIdsPerQuery);
+                String sql =
+                        "SELECT id, first_name || ' ' || last_name\n" +
+                        "FROM students\n" +
+                        "WHERE id IN (" + String.join(", ", Collections.nCopies(to - from, "?")) + ");";
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+                {
+                    for (int i = from; i < to; i++)
+                    {
+                        preparedStatement.setInt(i - from + 1, studentIds[i]);
+                    }
+                    try (ResultSet resultSet = preparedStatement.executeQuery())
+                    {
+                        while (resultSet.next())
+                        {
+                            studentFullNames.put(resultSet.getInt(1), resultSet.getString(2));
+                        }
+                    }
+                }
+            }
+        }
+        return studentFullNames;
+    }
+
+    private List<Enrollment> getStudentSchedule(Connection connection, int studentId) throws SQLException
+    {
+        // filtering on registered_students.student_id walks the (student_id, class_id) index,
+        // which returns the student's enrollments already sorted by class_id
+        String sql =
+                "SELECT registered_students.class_id, students.id, students.first_name || ' ' || students.last_name AS student_full_name, classes.code, classes.title\n" +
+                "FROM registered_students\n" +
+                "INNER JOIN students ON students.id = registered_students.student_id\n" +
+                "INNER JOIN classes ON classes.id = registered_students.class_id\n" +
+                "WHERE registered_students.student_id = ?\n" +
+                "ORDER BY registered_students.class_id;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            preparedStatement.setInt(1, studentId);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                return readEnrollments(resultSet);
+            }
+        }
+    }
+
+    /**
+     * Reads enrollments from a result set with the columns class_id, id (the student id), student_full_name, code and title
+     */
+    private static List<Enrollment> readEnrollments(ResultSet resultSet) throws SQLException
+    {
+        List<Enrollment> enrollments = new ArrayList<>();
+        while (resultSet.next())
+        {
+            enrollments.add(readEnrollment(resultSet));
+        }
+        return enrollments;
+    }
+
+    private static Enrollment readEnrollment(ResultSet resultSet) throws SQLException
+    {
+        return new Enrollment(
+                resultSet.getInt("class_id"),
+                resultSet.getInt("id"),
+                resultSet.getString("student_full_name"),
+                resultSet.getString("code"),
+                resultSet.getString("title")
+        );
+    }
+
+    /**
+     * Looks up the id of a student through the (last_name, first_name) index.
+     * If several students share the name, the one with the lowest id is returned.
+     *
+     * @return the id of the student, or 0 if there is no student with that name
+     */
+    private int findStudentIdByName(Connection connection, String firstName, String lastName) throws SQLException
+    {
+        String sql =
+                "SELECT MIN(id)\n" +
+                "FROM students\n" +
+                "WHERE last_name = ? AND first_name = ?;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            preparedStatement.setString(1, lastName);
+            preparedStatement.setString(2, firstName);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                // MIN() returns NULL when nothing matches, which getInt() reads as 0
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Looks up the id of a student through the birth_date index.
+     * If several students share the birth date, the one with the lowest id is returned.
+     *
+     * @return the id of the student, or 0 if there is no student born on that date
+     */
+    private int findStudentIdByBirthDate(Connection connection, String birthDate) throws SQLException
+    {
+        String sql =
+                "SELECT MIN(id)\n" +
+                "FROM students\n" +
+                "WHERE birth_date = ?;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            preparedStatement.setString(1, birthDate);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        }
+    }
+
+    private boolean studentExists(Connection connection, int studentId) throws SQLException
+    {
+        String sql =
+                "SELECT 1\n" +
+                "FROM students\n" +
+                "WHERE id = ?;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            preparedStatement.setInt(1, studentId);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                return resultSet.next();
+            }
+        }
     }
-    System.out.println();
-    System.out.println(Utils.characterRepeat('-', 80));
-}
 }
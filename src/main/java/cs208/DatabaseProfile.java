@@ -0,0 +1,98 @@
+package cs208;
+
+import org.sqlite.SQLiteConfig;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Sets of SQLite pragmas applied to every connection opened by {@link Database}.
+ * <p>
+ * The profile is chosen at startup with the {@code cs208.db.profile} system property,
+ * e.g. {@code -Dcs208.db.profile=performance}.
+ */
+public enum DatabaseProfile
+{
+    /**
+     * SQLite's own defaults: a rollback journal and {@code synchronous = FULL}, so every commit waits for an fsync
+     * and a writer blocks the readers.
+     * <p>
+     * The journal mode is left untouched, since WAL, once enabled, is stored in the database file.
+     */
+    DEFAULT(null, null, 0, 0, null, 3_000),
+
+    /**
+     * WAL journaling so readers and the writer do not block each other, {@code synchronous = NORMAL} so commits
+     * only append to the write-ahead log (still safe after an application crash, the last commits may be lost on a power loss),
+     * a 256 MiB memory map, a 64 MiB page cache, temporary tables and indexes in memory, and a longer busy timeout.
+     */
+    PERFORMANCE(SQLiteConfig.JournalMode.WAL, SQLiteConfig.SynchronousMode.NORMAL, 256L * 1024 * 1024, 64 * 1024, SQLiteConfig.TempStore.MEMORY, 10_000);
+
+    private final SQLiteConfig.JournalMode journalMode;
+    private final SQLiteConfig.SynchronousMode synchronousMode;
+    private final long mmapSizeBytes;
+    private final int cacheSizeKibibytes;
+    private final SQLiteConfig.TempStore tempStore;
+    private final int busyTimeoutMillis;
+
+    DatabaseProfile(SQLiteConfig.JournalMode journalMode, SQLiteConfig.SynchronousMode synchronousMode,
+                    long mmapSizeBytes, int cacheSizeKibibytes, SQLiteConfig.TempStore tempStore, int busyTimeoutMillis)
+    {
+        this.journalMode = journalMode;
+        this.synchronousMode = synchronousMode;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.cacheSizeKibibytes = cacheSizeKibibytes;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    /**
+     * @return the profile named by the {@code cs208.db.profile} system property, or {@link #DEFAULT} if it is not set
+     * @throws IllegalArgumentException if the property does not name a profile
+     */
+    public static DatabaseProfile fromSystemProperties()
+    {
+        String profileName = System.getProperty("cs208.db.profile");
+        if (profileName == null || profileName.isBlank())
+        {
+            return DEFAULT;
+        }
+        try
+        {
+            return valueOf(profileName.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException illegalArgumentException)
+        {
+            throw new IllegalArgumentException("unknown cs208.db.profile '" + profileName + "', expected one of " + Arrays.toString(values()));
+        }
+    }
+
+    /**
+     * Adds the pragmas of this profile to the given configuration, which SQLite runs whenever a connection is opened
+     */
+    public void applyTo(SQLiteConfig sqLiteConfig)
+    {
+        if (journalMode != null)
+        {
+            sqLiteConfig.setJournalMode(journalMode);
+        }
+        if (synchronousMode != null)
+        {
+            sqLiteConfig.setSynchronous(synchronousMode);
+        }
+        if (mmapSizeBytes > 0)
+        {
+            sqLiteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSizeBytes));
+        }
+        if (cacheSizeKibibytes > 0)
+        {
+            // a negative cache_size is a size in KiB instead of a number of pages
+            sqLiteConfig.setCacheSize(-cacheSizeKibibytes);
+        }
+        if (tempStore != null)
+        {
+            sqLiteConfig.setTempStore(tempStore);
+        }
+        sqLiteConfig.setBusyTimeout(busyTimeoutMillis);
+    }
+}
@@ -0,0 +1,90 @@
+package cs208;
+
+/**
+ * A row of the registered_students table, i.e. one student enrolled in one class,
+ * optionally carrying the student name and class details it was joined with
+ */
+public class Enrollment
+{
+    private int classId;
+    private int studentId;
+    private String studentFullName;
+    private String classCode;
+    private String classTitle;
+
+    public Enrollment(int classId, int studentId)
+    {
+        this.classId = classId;
+        this.studentId = studentId;
+    }
+
+    public Enrollment(int classId, int studentId, String studentFullName, String classCode, String classTitle)
+    {
+        this(classId, studentId);
+        this.studentFullName = studentFullName;
+        this.classCode = classCode;
+        this.classTitle = classTitle;
+    }
+
+    public int getClassId()
+    {
+        return classId;
+    }
+
+    public void setClassId(int classId)
+    {
+        this.classId = classId;
+    }
+
+    public int getStudentId()
+    {
+        return studentId;
+    }
+
+    public void setStudentId(int studentId)
+    {
+        this.studentId = studentId;
+    }
+
+    public String getStudentFullName()
+    {
+        return studentFullName;
+    }
+
+    public void setStudentFullName(String studentFullName)
+    {
+        this.studentFullName = studentFullName;
+    }
+
+    public String getClassCode()
+    {
+        return classCode;
+    }
+
+    public void setClassCode(String classCode)
+    {
+        this.classCode = classCode;
+    }
+
+    public String getClassTitle()
+    {
+        return classTitle;
+    }
+
+    public void setClassTitle(String classTitle)
+    {
+        this.classTitle = classTitle;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Enrollment{" +
+                "classId=" + classId +
+                ", studentId=" + studentId +
+                ", studentFullName='" + studentFullName + '\'' +
+                ", classCode='" + classCode + '\'' +
+                ", classTitle='" + classTitle + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package cs208;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link Database#enrollBatch(java.util.Collection)}:
+ * how many enrollments were inserted and why each of the others was rejected
+ */
+public class EnrollmentBatchResult
+{
+    /**
+     * A rejected enrollment together with the reason it was rejected
+     */
+    public static class Failure
+    {
+        private final Enrollment enrollment;
+        private final EnrollmentStatus status;
+
+        public Failure(Enrollment enrollment, EnrollmentStatus status)
+        {
+            this.enrollment = enrollment;
+            this.status = status;
+        }
+
+        public Enrollment getEnrollment()
+        {
+            return enrollment;
+        }
+
+        public EnrollmentStatus getStatus()
+        {
+            return status;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "class_id = " + enrollment.getClassId() + ", student_id = " + enrollment.getStudentId() + ": " + status.getDescription();
+        }
+    }
+
+    private int numberOfEnrollmentsInserted;
+    private final List<Failure> failures = new ArrayList<>();
+
+    public int getNumberOfEnrollmentsInserted()
+    {
+        return numberOfEnrollmentsInserted;
+    }
+
+    public void setNumberOfEnrollmentsInserted(int numberOfEnrollmentsInserted)
+    {
+        this.numberOfEnrollmentsInserted = numberOfEnrollmentsInserted;
+    }
+
+    public List<Failure> getFailures()
+    {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public void addFailure(Enrollment enrollment, EnrollmentStatus status)
+    {
+        failures.add(new Failure(enrollment, status));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EnrollmentBatchResult{" +
+                "numberOfEnrollmentsInserted=" + numberOfEnrollmentsInserted +
+                ", numberOfFailures=" + failures.size() +
+                '}';
+    }
+}
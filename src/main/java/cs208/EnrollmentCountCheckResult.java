@@ -0,0 +1,59 @@
+package cs208;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link Database#checkEnrollmentCounts()}: how many classes had their enrolled_count recounted,
+ * which ones did not match registered_students and how many of those were repaired
+ */
+public class EnrollmentCountCheckResult
+{
+    private final int numberOfClassesChecked;
+    private final List<Integer> mismatchedClassIds;
+    private final int numberOfClassesRepaired;
+
+    public EnrollmentCountCheckResult(int numberOfClassesChecked, List<Integer> mismatchedClassIds, int numberOfClassesRepaired)
+    {
+        this.numberOfClassesChecked = numberOfClassesChecked;
+        this.mismatchedClassIds = mismatchedClassIds;
+        this.numberOfClassesRepaired = numberOfClassesRepaired;
+    }
+
+    public int getNumberOfClassesChecked()
+    {
+        return numberOfClassesChecked;
+    }
+
+    /**
+     * @return the ids of the classes whose enrolled_count differed from their number of rows in registered_students
+     */
+    public List<Integer> getMismatchedClassIds()
+    {
+        return Collections.unmodifiableList(mismatchedClassIds);
+    }
+
+    /**
+     * @return the number of mismatched classes whose enrolled_count was rewritten, not counting any that was
+     * already right again when the repair ran
+     */
+    public int getNumberOfClassesRepaired()
+    {
+        return numberOfClassesRepaired;
+    }
+
+    public boolean isConsistent()
+    {
+        return mismatchedClassIds.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EnrollmentCountCheckResult{" +
+                "numberOfClassesChecked=" + numberOfClassesChecked +
+                ", mismatchedClassIds=" + mismatchedClassIds +
+                ", numberOfClassesRepaired=" + numberOfClassesRepaired +
+                '}';
+    }
+}
@@ -0,0 +1,451 @@
+package cs208;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory copy of the registered_students table, answering roster, schedule and shared-class questions
+ * without going to SQLite.
+ * <p>
+ * Each class maps to an {@link IntBitmap} of the ids of its students and each student to a sorted {@code int[]}
+ * of the ids of their classes, both held in int-keyed open-addressing tables so that no id is ever boxed.
+ * {@link Database} loads the graph on its writer thread and applies every committed change to registered_students
+ * right after the commit, on the same thread, so the graph follows the table in commit order;
+ * changes made to the database file by other programs are not seen.
+ * Reads take a shared lock and may run concurrently with each other.
+ */
+public class EnrollmentGraph
+{
+    private static final int[] NO_IDS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntObjectTable<IntBitmap> studentsByClass = new IntObjectTable<>();
+    private final IntObjectTable<int[]> classesByStudent = new IntObjectTable<>();
+    private long numberOfEnrollments;
+
+    /**
+     * Reads every enrollment through the connection, which should see a consistent snapshot of the table
+     */
+    static EnrollmentGraph load(Connection connection) throws SQLException
+    {
+        EnrollmentGraph graph = new EnrollmentGraph();
+        try
+        (
+            Statement statement = connection.createStatement();
+            // sorted by student, so each student's classes are appended in order
+            ResultSet resultSet = statement.executeQuery(
+                    "SELECT student_id, class_id\n" +
+                    "FROM registered_students\n" +
+                    "ORDER BY student_id, class_id;");
+        )
+        {
+            while (resultSet.next())
+            {
+                graph.addUnlocked(resultSet.getInt(2), resultSet.getInt(1));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @return the ids of the students enrolled in the class, in increasing order
+     */
+    public int[] getStudentIds(int classId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            IntBitmap students = studentsByClass.get(classId);
+            return students == null ? NO_IDS : students.toArray();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the classes the student is enrolled in, in increasing order
+     */
+    public int[] getClassIds(int studentId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            int[] classes = classesByStudent.get(studentId);
+            return classes == null ? NO_IDS : classes.clone();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the classes both students are enrolled in, in increasing order
+     */
+    public int[] getSharedClassIds(int studentId, int otherStudentId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            int[] classes = classesByStudent.get(studentId);
+            int[] otherClasses = classesByStudent.get(otherStudentId);
+            if (classes == null || otherClasses == null)
+            {
+                return NO_IDS;
+            }
+
+            // merge-style intersection of the two sorted arrays
+            int[] sharedClasses = new int[Math.min(classes.length, otherClasses.length)];
+            int numberOfSharedClasses = 0;
+            for (int i = 0, j = 0; i < classes.length && j < otherClasses.length; )
+            {
+                if (classes[i] < otherClasses[j])
+                {
+                    i++;
+                }
+                else if (classes[i] > otherClasses[j])
+                {
+                    j++;
+                }
+                else
+                {
+                    sharedClasses[numberOfSharedClasses++] = classes[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(sharedClasses, numberOfSharedClasses);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    void add(int classId, int studentId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            addUnlocked(classId, studentId);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int classId, int studentId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            IntBitmap students = studentsByClass.get(classId);
+            if (students == null || !students.remove(studentId))
+            {
+                return;
+            }
+            if (students.isEmpty())
+            {
+                studentsByClass.remove(classId);
+            }
+            removeClassOfStudent(studentId, classId);
+            numberOfEnrollments--;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every enrollment of the students, e.g. after they were deleted
+     */
+    void removeStudents(int[] studentIds)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            for (int studentId : studentIds)
+            {
+                removeStudentUnlocked(studentId);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the enrollments of each old student id to its new id, see {@link Database#remapStudentIds(Map)};
+     * the new ids may be old ids of other students, as long as no two students end up with the same id
+     */
+    void remapStudents(Map<Integer, Integer> newIdsByOldId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // take every moved student out first, so a chain or a cycle of ids never overwrites a student not yet moved
+            IntObjectTable<int[]> movedClasses = new IntObjectTable<>();
+            for (Map.Entry<Integer, Integer> entry : newIdsByOldId.entrySet())
+            {
+                int[] classes = removeStudentUnlocked(entry.getKey());
+                if (classes != null)
+                {
+                    movedClasses.put(entry.getValue(), classes);
+                }
+            }
+            movedClasses.forEach((studentId, classes) -> {
+                for (int classId : classes)
+                {
+                    addUnlocked(classId, studentId);
+                }
+            });
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addUnlocked(int classId, int studentId)
+    {
+        IntBitmap students = studentsByClass.get(classId);
+        if (students == null)
+        {
+            students = new IntBitmap();
+            studentsByClass.put(classId, students);
+        }
+        if (!students.add(studentId))
+        {
+            return;
+        }
+
+        int[] classes = classesByStudent.get(studentId);
+        if (classes == null)
+        {
+            classesByStudent.put(studentId, new int[] {classId});
+        }
+        else
+        {
+            // a student has a handful of classes, so an exact-size copy per change costs less than spare capacity
+            int index = -Arrays.binarySearch(classes, classId) - 1;
+            int[] grown = new int[classes.length + 1];
+            System.arraycopy(classes, 0, grown, 0, index);
+            grown[index] = classId;
+            System.arraycopy(classes, index, grown, index + 1, classes.length - index);
+            classesByStudent.put(studentId, grown);
+        }
+        numberOfEnrollments++;
+    }
+
+    /**
+     * @return the classes the student was enrolled in, or null if none
+     */
+    private int[] removeStudentUnlocked(int studentId)
+    {
+        int[] classes = classesByStudent.remove(studentId);
+        if (classes == null)
+        {
+            return null;
+        }
+        for (int classId : classes)
+        {
+            IntBitmap students = studentsByClass.get(classId);
+            students.remove(studentId);
+            if (students.isEmpty())
+            {
+                studentsByClass.remove(classId);
+            }
+        }
+        numberOfEnrollments -= classes.length;
+        return classes;
+    }
+
+    private void removeClassOfStudent(int studentId, int classId)
+    {
+        int[] classes = classesByStudent.get(studentId);
+        int index = Arrays.binarySearch(classes, classId);
+        if (classes.length == 1)
+        {
+            classesByStudent.remove(studentId);
+            return;
+        }
+        int[] shrunk = new int[classes.length - 1];
+        System.arraycopy(classes, 0, shrunk, 0, index);
+        System.arraycopy(classes, index + 1, shrunk, index, classes.length - index - 1);
+        classesByStudent.put(studentId, shrunk);
+    }
+
+    /**
+     * @return an estimate of the memory held by the graph, in bytes
+     */
+    public long sizeInBytes()
+    {
+        lock.readLock().lock();
+        try
+        {
+            long[] bytes = {studentsByClass.sizeInBytes() + classesByStudent.sizeInBytes()};
+            // roughly 16 bytes of header per bitmap, container and array
+            studentsByClass.forEach((classId, students) -> bytes[0] += students.sizeInBytes() + 64);
+            classesByStudent.forEach((studentId, classes) -> bytes[0] += classes.length * 4L + 16);
+            return bytes[0];
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return String.format("Enrollment graph: %d classes, %d students, %d enrollments, about %.1f MB",
+                    studentsByClass.size(), classesByStudent.size(), numberOfEnrollments, sizeInBytes() / 1_000_000.0);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A hash table from int keys to objects with linear probing, so lookups do not box the key
+     */
+    private static class IntObjectTable<V>
+    {
+        private int[] keys = new int[16];
+        private Object[] values = new Object[16];
+        private int size;
+
+        private interface Visitor<V>
+        {
+            void visit(int key, V value);
+        }
+
+        @SuppressWarnings("unchecked")
+        private V get(int key)
+        {
+            for (int slot = slotOf(key); values[slot] != null; slot = (slot + 1) & (keys.length - 1))
+            {
+                if (keys[slot] == key)
+                {
+                    return (V) values[slot];
+                }
+            }
+            return null;
+        }
+
+        private void put(int key, V value)
+        {
+            int slot = slotOf(key);
+            for (; values[slot] != null; slot = (slot + 1) & (keys.length - 1))
+            {
+                if (keys[slot] == key)
+                {
+                    values[slot] = value;
+                    return;
+                }
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            // keep the table at most half full
+            if (++size * 2 > keys.length)
+            {
+                resize();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V remove(int key)
+        {
+            int slot = slotOf(key);
+            for (; values[slot] != null; slot = (slot + 1) & (keys.length - 1))
+            {
+                if (keys[slot] == key)
+                {
+                    break;
+                }
+            }
+            V removed = (V) values[slot];
+            if (removed == null)
+            {
+                return null;
+            }
+
+            // shift the following entries of the probe run back, so that no lookup stops early at the hole
+            int hole = slot;
+            for (slot = (slot + 1) & (keys.length - 1); values[slot] != null; slot = (slot + 1) & (keys.length - 1))
+            {
+                int home = slotOf(keys[slot]);
+                if (((slot - home) & (keys.length - 1)) >= ((slot - hole) & (keys.length - 1)))
+                {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    hole = slot;
+                }
+            }
+            values[hole] = null;
+            size--;
+            return removed;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void forEach(Visitor<V> visitor)
+        {
+            for (int slot = 0; slot < keys.length; slot++)
+            {
+                if (values[slot] != null)
+                {
+                    visitor.visit(keys[slot], (V) values[slot]);
+                }
+            }
+        }
+
+        private int size()
+        {
+            return size;
+        }
+
+        private long sizeInBytes()
+        {
+            return keys.length * 8L;
+        }
+
+        private int slotOf(int key)
+        {
+            // spread sequential ids, which would otherwise fill neighbouring slots in long runs
+            return (key * 0x9E3779B9 >>> 16 ^ key * 0x9E3779B9) & (keys.length - 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize()
+        {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++)
+            {
+                if (oldValues[slot] != null)
+                {
+                    put(oldKeys[slot], (V) oldValues[slot]);
+                }
+            }
+        }
+    }
+}
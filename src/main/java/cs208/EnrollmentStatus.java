@@ -0,0 +1,28 @@
+package cs208;
+
+/**
+ * The outcome of an attempt to enroll a student in a class
+ */
+public enum EnrollmentStatus
+{
+    ENROLLED("the student was enrolled"),
+    STUDENT_NOT_FOUND("no student with this id"),
+    CLASS_NOT_FOUND("no class with this id"),
+    ALREADY_ENROLLED("the student is already enrolled in this class"),
+    DUPLICATE_IN_BATCH("the same enrollment appears earlier in the batch"),
+    CLASS_FULL("the class has reached its max_students"),
+    WAITLISTED("the class is full, the student was put on its waitlist"),
+    ALREADY_WAITLISTED("the class is full and the student is already on its waitlist");
+
+    private final String description;
+
+    EnrollmentStatus(String description)
+    {
+        this.description = description;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+}
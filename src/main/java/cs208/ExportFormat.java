@@ -0,0 +1,29 @@
+package cs208;
+
+/**
+ * The file formats that reports can be exported to
+ */
+public enum ExportFormat
+{
+    /**
+     * Comma separated values with a header row, quoted as in RFC 4180
+     */
+    CSV("csv"),
+
+    /**
+     * One JSON object per line, keyed by column name (https://jsonlines.org)
+     */
+    JSON_LINES("jsonl");
+
+    private final String fileExtension;
+
+    ExportFormat(String fileExtension)
+    {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension()
+    {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,88 @@
+package cs208;
+
+/**
+ * Tunable settings for the {@link GroupCommitWriter} used by {@link Database}.
+ * <p>
+ * Every setting can be overridden at startup with a system property, e.g.
+ * {@code -Dcs208.writer.maxBatchSize=500 -Dcs208.writer.maxBatchLatencyMillis=5}
+ */
+public class GroupCommitSettings
+{
+    private int maxBatchSize = 256;
+    private long maxBatchLatencyMillis = 2;
+    private int queueCapacity = 10_000;
+
+    /**
+     * @return the default settings, overridden by any {@code cs208.writer.*} system properties that are set
+     */
+    public static GroupCommitSettings fromSystemProperties()
+    {
+        GroupCommitSettings settings = new GroupCommitSettings();
+        settings.setMaxBatchSize(Integer.getInteger("cs208.writer.maxBatchSize", settings.getMaxBatchSize()));
+        settings.setMaxBatchLatencyMillis(Long.getLong("cs208.writer.maxBatchLatencyMillis", settings.getMaxBatchLatencyMillis()));
+        settings.setQueueCapacity(Integer.getInteger("cs208.writer.queueCapacity", settings.getQueueCapacity()));
+        return settings;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize the most operations committed in one transaction, 1 commits every operation on its own
+     */
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1, got " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxBatchLatencyMillis()
+    {
+        return maxBatchLatencyMillis;
+    }
+
+    /**
+     * @param maxBatchLatencyMillis how long the writer waits for more operations after the first one of a batch,
+     *                              0 commits whatever is already queued without waiting
+     */
+    public void setMaxBatchLatencyMillis(long maxBatchLatencyMillis)
+    {
+        if (maxBatchLatencyMillis < 0)
+        {
+            throw new IllegalArgumentException("maxBatchLatencyMillis must not be negative, got " + maxBatchLatencyMillis);
+        }
+        this.maxBatchLatencyMillis = maxBatchLatencyMillis;
+    }
+
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity the most operations waiting for the writer, submitters block while the queue is full
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        if (queueCapacity < 1)
+        {
+            throw new IllegalArgumentException("queueCapacity must be at least 1, got " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GroupCommitSettings{" +
+                "maxBatchSize=" + maxBatchSize +
+                ", maxBatchLatencyMillis=" + maxBatchLatencyMillis +
+                ", queueCapacity=" + queueCapacity +
+                '}';
+    }
+}
@@ -0,0 +1,457 @@
+package cs208;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs every write on a single dedicated thread, committing groups of queued operations in one transaction.
+ * <p>
+ * SQLite allows one writer at a time, so writers on several connections only queue up on its lock
+ * (or fail with SQLITE_BUSY once the busy timeout runs out), and every commit pays for its own journal sync.
+ * Here callers submit {@link WriteOperation}s and get a future; the writer thread takes the first queued operation,
+ * keeps collecting operations for up to {@code maxBatchLatencyMillis} or until it has {@code maxBatchSize} of them,
+ * and runs them in a single transaction, each inside its own savepoint so a failing operation is rolled back alone.
+ * The futures complete once the transaction has been committed.
+ */
+public class GroupCommitWriter implements AutoCloseable
+{
+    private final Database database;
+    private final GroupCommitSettings settings;
+    private final BlockingQueue<QueuedOperation<?>> queue;
+    private final Thread writerThread;
+    private volatile boolean closed;
+    // queued by close() behind the last operation, the writer thread stops when it takes it
+    private final QueuedOperation<Void> stopSignal = new QueuedOperation<>(connection -> null, null);
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LongAdder batchesCommitted = new LongAdder();
+    private final LongAdder batchesFailed = new LongAdder();
+    private final LongAdder operationsCommitted = new LongAdder();
+    private final LongAdder operationsFailed = new LongAdder();
+    private final LongAdder operationsInCommittedBatches = new LongAdder();
+    private final LongAdder totalCommitNanos = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    public GroupCommitWriter(Database database, GroupCommitSettings settings)
+    {
+        this.database = database;
+        this.settings = settings;
+        this.queue = new LinkedBlockingQueue<>(settings.getQueueCapacity());
+        this.writerThread = new Thread(this::runWriter, "cs208-group-commit-writer");
+        // a Database that is never closed must not keep the JVM alive
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues an operation for the writer thread, blocking while the queue is full
+     *
+     * @return a future completed with the result of the operation once its transaction has been committed,
+     *         or completed exceptionally with the SQLException that made it fail
+     */
+    public <T> CompletableFuture<T> submit(WriteOperation<T> operation)
+    {
+        return submit(operation, null);
+    }
+
+    /**
+     * Like {@link #submit(WriteOperation)}, also running {@code afterCommit} with the result of the operation
+     * on the writer thread once the transaction has been committed and before the future completes.
+     * The callbacks of successive operations therefore run in commit order, which lets in-memory state
+     * follow the database exactly. If the callback throws, the future fails although the write stays committed.
+     */
+    public <T> CompletableFuture<T> submit(WriteOperation<T> operation, Consumer<? super T> afterCommit)
+    {
+        QueuedOperation<T> queuedOperation = new QueuedOperation<>(operation, afterCommit);
+        if (closed)
+        {
+            queuedOperation.future.completeExceptionally(new SQLException("the group commit writer is closed"));
+            return queuedOperation.future;
+        }
+
+        try
+        {
+            queue.put(queuedOperation);
+        }
+        catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            queuedOperation.future.completeExceptionally(new SQLException("interrupted while queuing a write", interruptedException));
+            return queuedOperation.future;
+        }
+        if (closed && queue.remove(queuedOperation))
+        {
+            // close() ran between the check above and put(), so the writer thread may already be gone
+            queuedOperation.future.completeExceptionally(new SQLException("the group commit writer is closed"));
+            return queuedOperation.future;
+        }
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        return queuedOperation.future;
+    }
+
+    private void runWriter()
+    {
+        List<QueuedOperation<?>> batch = new ArrayList<>(settings.getMaxBatchSize());
+        boolean stopping = false;
+        while (!stopping)
+        {
+            QueuedOperation<?> first;
+            try
+            {
+                first = queue.take();
+            }
+            catch (InterruptedException interruptedException)
+            {
+                // nothing interrupts the writer on purpose, close() queues the stop signal instead
+                continue;
+            }
+            if (first == stopSignal)
+            {
+                return;
+            }
+
+            batch.add(first);
+            stopping = collectBatch(batch);
+            try
+            {
+                runBatch(batch);
+            }
+            catch (Throwable throwable)
+            {
+                // e.g. an Error or a RuntimeException from rollback(), the writer thread must survive it
+                // and no caller may be left waiting on its future
+                batchesFailed.increment();
+                SQLException sqlException = new SQLException("the write batch failed", throwable);
+                for (QueuedOperation<?> queuedOperation : batch)
+                {
+                    if (queuedOperation.future.completeExceptionally(sqlException))
+                    {
+                        operationsFailed.increment();
+                    }
+                }
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds queued operations to the batch until it is full or maxBatchLatencyMillis have passed
+     *
+     * @return true if the stop signal was taken from the queue, in which case the batch is the last one
+     */
+    private boolean collectBatch(List<QueuedOperation<?>> batch)
+    {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getMaxBatchLatencyMillis());
+        while (batch.size() < settings.getMaxBatchSize())
+        {
+            // take whatever is already waiting without blocking
+            int sizeBeforeDrain = batch.size();
+            if (queue.drainTo(batch, settings.getMaxBatchSize() - batch.size()) > 0)
+            {
+                if (batch.subList(sizeBeforeDrain, batch.size()).remove(stopSignal))
+                {
+                    return true;
+                }
+                continue;
+            }
+
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0)
+            {
+                return false;
+            }
+            QueuedOperation<?> next;
+            try
+            {
+                next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException interruptedException)
+            {
+                return false;
+            }
+            if (next == null)
+            {
+                return false;
+            }
+            if (next == stopSignal)
+            {
+                return true;
+            }
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private void runBatch(List<QueuedOperation<?>> batch)
+    {
+        long startNanos = System.nanoTime();
+        try (Connection connection = database.getDatabaseConnection())
+        {
+            connection.setAutoCommit(false);
+            try
+            {
+                for (QueuedOperation<?> queuedOperation : batch)
+                {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try
+                    {
+                        queuedOperation.run(connection);
+                        connection.releaseSavepoint(savepoint);
+                    }
+                    catch (SQLException | RuntimeException exception)
+                    {
+                        connection.rollback(savepoint);
+                        connection.releaseSavepoint(savepoint);
+                        queuedOperation.failure = exception;
+                    }
+                }
+                connection.commit();
+            }
+            catch (Throwable throwable)
+            {
+                // setAutoCommit(true) below would otherwise commit what the batch has written so far
+                connection.rollback();
+                throw throwable;
+            }
+            finally
+            {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException sqlException)
+        {
+            // nothing of the batch was committed
+            batchesFailed.increment();
+            operationsFailed.add(batch.size());
+            for (QueuedOperation<?> queuedOperation : batch)
+            {
+                queuedOperation.future.completeExceptionally(sqlException);
+            }
+            return;
+        }
+
+        totalCommitNanos.add(System.nanoTime() - startNanos);
+        batchesCommitted.increment();
+        operationsInCommittedBatches.add(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        for (QueuedOperation<?> queuedOperation : batch)
+        {
+            if (queuedOperation.failure == null)
+            {
+                operationsCommitted.increment();
+            }
+            else
+            {
+                operationsFailed.increment();
+            }
+            queuedOperation.complete();
+        }
+    }
+
+    /**
+     * Writes the operations still queued, then stops the writer thread; later submissions fail
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        boolean interrupted = false;
+        boolean stopSignalQueued = false;
+        while (!stopSignalQueued)
+        {
+            try
+            {
+                // behind every operation queued so far, which the writer thread still runs
+                queue.put(stopSignal);
+                stopSignalQueued = true;
+            }
+            catch (InterruptedException interruptedException)
+            {
+                interrupted = true;
+            }
+        }
+        while (writerThread.isAlive())
+        {
+            try
+            {
+                writerThread.join();
+            }
+            catch (InterruptedException interruptedException)
+            {
+                interrupted = true;
+            }
+        }
+
+        // operations that a submit() racing with close() queued behind the stop signal
+        for (QueuedOperation<?> queuedOperation = queue.poll(); queuedOperation != null; queuedOperation = queue.poll())
+        {
+            queuedOperation.future.completeExceptionally(new SQLException("the group commit writer is closed"));
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a snapshot of the queue depth and commit sizes
+     */
+    public Statistics getStatistics()
+    {
+        return new Statistics(queue.size(), maxQueueDepth.get(), batchesCommitted.sum(), batchesFailed.sum(),
+                operationsCommitted.sum(), operationsFailed.sum(), operationsInCommittedBatches.sum(), largestBatch.get(),
+                totalCommitNanos.sum());
+    }
+
+    private static class QueuedOperation<T>
+    {
+        private final WriteOperation<T> operation;
+        private final Consumer<? super T> afterCommit;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Exception failure;
+
+        private QueuedOperation(WriteOperation<T> operation, Consumer<? super T> afterCommit)
+        {
+            this.operation = operation;
+            this.afterCommit = afterCommit;
+        }
+
+        private void run(Connection connection) throws SQLException
+        {
+            result = operation.execute(connection);
+        }
+
+        private void complete()
+        {
+            if (failure == null && afterCommit != null)
+            {
+                try
+                {
+                    afterCommit.accept(result);
+                }
+                catch (RuntimeException runtimeException)
+                {
+                    failure = runtimeException;
+                }
+            }
+            if (failure == null)
+            {
+                future.complete(result);
+            }
+            else
+            {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the writer's queue and of the groups it has committed
+     */
+    public static class Statistics
+    {
+        private final int queueDepth;
+        private final int maxQueueDepth;
+        private final long batchesCommitted;
+        private final long batchesFailed;
+        private final long operationsCommitted;
+        private final long operationsFailed;
+        private final long operationsInCommittedBatches;
+        private final int largestBatch;
+        private final long totalCommitNanos;
+
+        public Statistics(int queueDepth, int maxQueueDepth, long batchesCommitted, long batchesFailed,
+                          long operationsCommitted, long operationsFailed, long operationsInCommittedBatches,
+                          int largestBatch, long totalCommitNanos)
+        {
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.batchesCommitted = batchesCommitted;
+            this.batchesFailed = batchesFailed;
+            this.operationsCommitted = operationsCommitted;
+            this.operationsFailed = operationsFailed;
+            this.operationsInCommittedBatches = operationsInCommittedBatches;
+            this.largestBatch = largestBatch;
+            this.totalCommitNanos = totalCommitNanos;
+        }
+
+        public int getQueueDepth()
+        {
+            return queueDepth;
+        }
+
+        public int getMaxQueueDepth()
+        {
+            return maxQueueDepth;
+        }
+
+        public long getBatchesCommitted()
+        {
+            return batchesCommitted;
+        }
+
+        public long getBatchesFailed()
+        {
+            return batchesFailed;
+        }
+
+        public long getOperationsCommitted()
+        {
+            return operationsCommitted;
+        }
+
+        public long getOperationsFailed()
+        {
+            return operationsFailed;
+        }
+
+        public int getLargestBatch()
+        {
+            return largestBatch;
+        }
+
+        /**
+         * @return the average number of operations per committed transaction, counting the ones rolled back to their savepoint
+         */
+        public double getAverageBatchSize()
+        {
+            return batchesCommitted == 0 ? 0.0 : (double) operationsInCommittedBatches / batchesCommitted;
+        }
+
+        public double getAverageCommitMillis()
+        {
+            return batchesCommitted == 0 ? 0.0 : totalCommitNanos / 1_000_000.0 / batchesCommitted;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(
+                    "write queue depth = %d (max %d)%n" +
+                    "batches committed = %d, failed = %d, avg size = %.1f, largest = %d, avg transaction time = %.3f ms%n" +
+                    "operations committed = %d, failed = %d",
+                    queueDepth, maxQueueDepth,
+                    batchesCommitted, batchesFailed, getAverageBatchSize(), largestBatch, getAverageCommitMillis(),
+                    operationsCommitted, operationsFailed
+            );
+        }
+    }
+}
@@ -0,0 +1,671 @@
+package cs208;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Exposes the class, student and enrollment operations of a {@link Database} as JSON over HTTP,
+ * using the JDK's built-in HTTP server.
+ * <p>
+ * Every request runs on its own virtual thread when the JVM supports them (Java 21 and later), otherwise on a cached
+ * thread pool. Either way the handlers block on the shared connection pool, which bounds the database concurrency.
+ * <pre>
+ * GET    /classes                                 all classes, or one page of them with ?limit=&amp;cursor=
+ * POST   /classes                                 add a class: {"code", "title", "description", "max_students"}
+ * GET    /classes/{classId}                       one class
+ * GET    /classes/{classId}/students              the students enrolled in a class
+ * DELETE /classes/{classId}/students/{studentId}  drop a student from a class, promoting from its waitlist
+ * GET    /classes/{classId}/waitlist              the students waiting for a seat in a class, next to be promoted first
+ * GET    /students                                all students, or one page of them with ?limit=&amp;cursor=
+ * POST   /students                                add a student: {"first_name", "last_name", "birth_date"}
+ * GET    /students/search                         students by a partial or mistyped name, best match first: ?q=&amp;limit=
+ * PATCH  /students/{studentId}                    change some fields of a student: {"first_name", "last_name", "birth_date"}
+ * GET    /students/{studentId}/classes            the classes a student is enrolled in
+ * GET    /students/{studentId}/shared-classes/{otherStudentId}  the classes two students are both enrolled in
+ * GET    /enrollments                             one page of enrollments, by student name: ?limit=&amp;cursor=
+ * POST   /enrollments                             enroll a student: {"class_id", "student_id"}, add "waitlist": true
+ *                                                 (and optionally a "priority") to wait for a seat if the class is full
+ * GET    /stats                                   connection pool and class cache statistics
+ * GET    /metrics                                 latency, rows and errors per SQL statement, and recent slow queries
+ * </pre>
+ * A page is returned as {@code {"items": [...], "next_cursor": ..., "previous_cursor": ...}}, a null cursor meaning
+ * there is no page in that direction; pass a cursor back unchanged to get that page.
+ */
+public class HttpApiServer
+{
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+
+    private static final Pattern CLASS_PATH = Pattern.compile("/classes/(\\d+)");
+    private static final Pattern CLASS_STUDENTS_PATH = Pattern.compile("/classes/(\\d+)/students");
+    private static final Pattern CLASS_STUDENT_PATH = Pattern.compile("/classes/(\\d+)/students/(\\d+)");
+    private static final Pattern CLASS_WAITLIST_PATH = Pattern.compile("/classes/(\\d+)/waitlist");
+    private static final Pattern STUDENT_PATH = Pattern.compile("/students/(\\d+)");
+    private static final Pattern STUDENT_CLASSES_PATH = Pattern.compile("/students/(\\d+)/classes");
+    private static final Pattern SHARED_CLASSES_PATH = Pattern.compile("/students/(\\d+)/shared-classes/(\\d+)");
+
+    private final Database database;
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor;
+
+    /**
+     * @param port the port to listen on, 0 to pick a free one (see {@link #getPort()})
+     */
+    public HttpApiServer(Database database, int port) throws IOException
+    {
+        this.database = database;
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.requestExecutor = newRequestExecutor();
+        httpServer.setExecutor(requestExecutor);
+        httpServer.createContext("/", this::handle);
+    }
+
+    /**
+     * @return an executor starting a virtual thread per request, or a cached thread pool before Java 21
+     */
+    private static ExecutorService newRequestExecutor()
+    {
+        try
+        {
+            // looked up reflectively so the project still compiles and runs on Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException exception)
+        {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start()
+    {
+        httpServer.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to {@code delaySeconds} for the ones in progress, then stops their threads
+     */
+    public void stop(int delaySeconds)
+    {
+        httpServer.stop(delaySeconds);
+        requestExecutor.shutdown();
+        try
+        {
+            requestExecutor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort()
+    {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return true if requests run on virtual threads, false if they run on the thread pool fallback
+     */
+    public boolean usesVirtualThreads()
+    {
+        return !(requestExecutor instanceof java.util.concurrent.ThreadPoolExecutor);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            route(exchange, exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+        }
+        catch (IllegalArgumentException illegalArgumentException)
+        {
+            // e.g. a malformed body or a missing member, see requireMember()
+            sendError(exchange, 400, illegalArgumentException.getMessage());
+        }
+        catch (SQLException sqlException)
+        {
+            sendError(exchange, 500, sqlException.getMessage());
+        }
+        catch (RuntimeException runtimeException)
+        {
+            sendError(exchange, 500, runtimeException.toString());
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String path) throws IOException, SQLException
+    {
+        Matcher matcher;
+        if (path.equals("/classes"))
+        {
+            if (method.equals("GET") && exchange.getRequestURI().getRawQuery() != null)
+            {
+                Map<String, String> query = parseQuery(exchange);
+                sendJson(exchange, 200, toJson(database.listClasses(query.get("cursor"), pageSize(query)), HttpApiServer::toJson));
+            }
+            else if (method.equals("GET"))
+            {
+                sendJson(exchange, 200, toJsonArray(database.listAllClasses(), HttpApiServer::toJson));
+            }
+            else if (method.equals("POST"))
+            {
+                addClass(exchange);
+            }
+            else
+            {
+                sendError(exchange, 405, "use GET or POST");
+            }
+        }
+        else if ((matcher = CLASS_PATH.matcher(path)).matches() && method.equals("GET"))
+        {
+            Class foundClass = database.findClassById(Integer.parseInt(matcher.group(1)));
+            if (foundClass == null)
+            {
+                sendError(exchange, 404, "no class with this id");
+            }
+            else
+            {
+                sendJson(exchange, 200, toJson(foundClass));
+            }
+        }
+        else if ((matcher = CLASS_STUDENTS_PATH.matcher(path)).matches() && method.equals("GET"))
+        {
+            int classId = Integer.parseInt(matcher.group(1));
+            if (database.findClassById(classId) == null)
+            {
+                sendError(exchange, 404, "no class with this id");
+            }
+            else
+            {
+                sendJson(exchange, 200, toJsonArray(database.getStudentsInClass(classId), HttpApiServer::toJson));
+            }
+        }
+        else if ((matcher = CLASS_STUDENT_PATH.matcher(path)).matches() && method.equals("DELETE"))
+        {
+            StudentDropResult result = database.dropStudentFromClass(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(1)));
+            if (result.isDropped())
+            {
+                sendJson(exchange, 200, "{\"dropped\":true,\"promoted_student_ids\":" + result.getPromotedStudentIds() + "}");
+            }
+            else
+            {
+                sendError(exchange, 404, "the student is not enrolled in this class");
+            }
+        }
+        else if ((matcher = CLASS_WAITLIST_PATH.matcher(path)).matches() && method.equals("GET"))
+        {
+            int classId = Integer.parseInt(matcher.group(1));
+            if (database.findClassById(classId) == null)
+            {
+                sendError(exchange, 404, "no class with this id");
+            }
+            else
+            {
+                sendJson(exchange, 200, toJsonArray(database.getWaitlist().getEntries(classId), HttpApiServer::toJson));
+            }
+        }
+        else if (path.equals("/students"))
+        {
+            if (method.equals("GET") && exchange.getRequestURI().getRawQuery() != null)
+            {
+                Map<String, String> query = parseQuery(exchange);
+                sendJson(exchange, 200, toJson(database.listStudents(query.get("cursor"), pageSize(query)), HttpApiServer::toJson));
+            }
+            else if (method.equals("GET"))
+            {
+                sendJson(exchange, 200, toJsonArray(database.listAllStudents(), HttpApiServer::toJson));
+            }
+            else if (method.equals("POST"))
+            {
+                addStudent(exchange);
+            }
+            else
+            {
+                sendError(exchange, 405, "use GET or POST");
+            }
+        }
+        else if (path.equals("/students/search") && method.equals("GET"))
+        {
+            Map<String, String> query = parseQuery(exchange);
+            String name = query.get("q");
+            if (name == null || name.isBlank())
+            {
+                sendError(exchange, 400, "missing the name to search for: ?q=");
+            }
+            else
+            {
+                String limit = query.get("limit");
+                int maxStudents = limit == null || limit.isEmpty() ? DEFAULT_SEARCH_LIMIT : pageSize(query);
+                sendJson(exchange, 200, toJsonArray(database.searchStudentsByName(name, maxStudents), HttpApiServer::toJson));
+            }
+        }
+        else if ((matcher = STUDENT_PATH.matcher(path)).matches() && method.equals("PATCH"))
+        {
+            updateStudent(exchange, Integer.parseInt(matcher.group(1)));
+        }
+        else if ((matcher = STUDENT_CLASSES_PATH.matcher(path)).matches() && method.equals("GET"))
+        {
+            int studentId = Integer.parseInt(matcher.group(1));
+            if (!database.studentExists(studentId))
+            {
+                sendError(exchange, 404, "no student with this id");
+            }
+            else
+            {
+                sendJson(exchange, 200, toJsonArray(database.getStudentSchedule(studentId), HttpApiServer::toJson));
+            }
+        }
+        else if ((matcher = SHARED_CLASSES_PATH.matcher(path)).matches() && method.equals("GET"))
+        {
+            List<Class> sharedClasses = database.getClassesSharedBy(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            sendJson(exchange, 200, toJsonArray(sharedClasses, HttpApiServer::toJson));
+        }
+        else if (path.equals("/enrollments"))
+        {
+            if (method.equals("GET"))
+            {
+                Map<String, String> query = parseQuery(exchange);
+                sendJson(exchange, 200, toJson(database.listRegisteredStudents(query.get("cursor"), pageSize(query)), HttpApiServer::toJson));
+            }
+            else if (method.equals("POST"))
+            {
+                enroll(exchange);
+            }
+            else
+            {
+                sendError(exchange, 405, "use GET or POST");
+            }
+        }
+        else if (path.equals("/stats") && method.equals("GET"))
+        {
+            sendJson(exchange, 200, statisticsJson());
+        }
+        else if (path.equals("/metrics") && method.equals("GET"))
+        {
+            sendJson(exchange, 200, queryMetricsJson());
+        }
+        else
+        {
+            sendError(exchange, 404, "no such endpoint: " + method + " " + path);
+        }
+    }
+
+    private void addClass(HttpExchange exchange) throws IOException, SQLException
+    {
+        Map<String, String> body = readJsonBody(exchange);
+        Class newClass = new Class(
+                requireMember(body, "code"),
+                requireMember(body, "title"),
+                body.get("description"),
+                Integer.parseInt(requireMember(body, "max_students"))
+        );
+
+        try
+        {
+            database.insertClass(newClass);
+        }
+        catch (SQLException sqlException)
+        {
+            if (!isUniqueConstraintViolation(sqlException))
+            {
+                // handle() answers 500 with the message
+                throw sqlException;
+            }
+            sendError(exchange, 409, "a class with the code " + newClass.getCode() + " already exists");
+            return;
+        }
+        sendJson(exchange, 201, toJson(newClass));
+    }
+
+    /**
+     * @return true if the statement failed because a row with the same value in a UNIQUE column already exists
+     */
+    private static boolean isUniqueConstraintViolation(SQLException sqlException)
+    {
+        return sqlException instanceof SQLiteException
+                && ((SQLiteException) sqlException).getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE;
+    }
+
+    private void addStudent(HttpExchange exchange) throws IOException
+    {
+        Map<String, String> body = readJsonBody(exchange);
+        String birthDate = body.get("birth_date");
+        Student newStudent = new Student(
+                requireMember(body, "first_name"),
+                requireMember(body, "last_name"),
+                birthDate == null ? null : Date.valueOf(birthDate)
+        );
+
+        database.addNewStudent(newStudent);
+        if (newStudent.getId() == 0)
+        {
+            sendError(exchange, 500, "the student could not be added");
+        }
+        else
+        {
+            sendJson(exchange, 201, toJson(newStudent));
+        }
+    }
+
+    private void updateStudent(HttpExchange exchange, int studentId) throws IOException, SQLException
+    {
+        Map<String, String> body = readJsonBody(exchange);
+        String birthDate = body.get("birth_date");
+        StudentPatch patch = new StudentPatch(
+                body.get("first_name"),
+                body.get("last_name"),
+                birthDate == null ? null : Date.valueOf(birthDate)
+        );
+
+        if (database.updateStudent(studentId, patch))
+        {
+            sendJson(exchange, 200, "{\"updated\":true}");
+        }
+        else
+        {
+            sendError(exchange, 404, "no student with this id");
+        }
+    }
+
+    private void enroll(HttpExchange exchange) throws IOException, SQLException
+    {
+        Map<String, String> body = readJsonBody(exchange);
+        int classId = Integer.parseInt(requireMember(body, "class_id"));
+        int studentId = Integer.parseInt(requireMember(body, "student_id"));
+        String priority = body.get("priority");
+
+        EnrollmentStatus status = Boolean.parseBoolean(body.get("waitlist"))
+                ? database.enrollOrWaitlist(studentId, classId, priority == null ? 0 : Integer.parseInt(priority))
+                : database.enrollStudent(studentId, classId);
+        int httpStatus;
+        switch (status)
+        {
+            case ENROLLED:
+                httpStatus = 201;
+                break;
+            case WAITLISTED:
+                httpStatus = 202;
+                break;
+            case STUDENT_NOT_FOUND:
+            case CLASS_NOT_FOUND:
+                httpStatus = 404;
+                break;
+            default:
+                // ALREADY_ENROLLED, ALREADY_WAITLISTED or CLASS_FULL
+                httpStatus = 409;
+        }
+
+        StringWriter json = new StringWriter();
+        json.write("{\"class_id\":" + classId + ",\"student_id\":" + studentId + ",\"status\":");
+        writeJsonString(json, status.name());
+        json.write(",\"description\":");
+        writeJsonString(json, status.getDescription());
+        if (status == EnrollmentStatus.WAITLISTED || status == EnrollmentStatus.ALREADY_WAITLISTED)
+        {
+            json.write(",\"waitlist_position\":" + database.getWaitlist().getPosition(studentId, classId));
+        }
+        json.write('}');
+        sendJson(exchange, httpStatus, json.toString());
+    }
+
+    private String statisticsJson()
+    {
+        ConnectionPool.Statistics poolStatistics = database.getConnectionPoolStatistics();
+        ClassCatalogCache classCatalogCache = database.getClassCatalogCache();
+        GroupCommitWriter.Statistics writeStatistics = database.getWriteStatistics();
+        return "{\"connection_pool\":{" +
+                "\"max_pool_size\":" + poolStatistics.getMaxPoolSize() +
+                ",\"saturation\":" + poolStatistics.getSaturation() +
+                ",\"average_borrow_wait_millis\":" + poolStatistics.getAverageBorrowWaitMillis() +
+                ",\"statement_cache_hit_ratio\":" + poolStatistics.getStatementCacheHitRatio() +
+                "},\"class_catalog_cache\":{" +
+                "\"size\":" + classCatalogCache.size() +
+                ",\"hits\":" + classCatalogCache.getHits() +
+                ",\"misses\":" + classCatalogCache.getMisses() +
+                ",\"hit_ratio\":" + classCatalogCache.getHitRatio() +
+                "},\"group_commit_writer\":{" +
+                "\"queue_depth\":" + writeStatistics.getQueueDepth() +
+                ",\"max_queue_depth\":" + writeStatistics.getMaxQueueDepth() +
+                ",\"batches_committed\":" + writeStatistics.getBatchesCommitted() +
+                ",\"average_batch_size\":" + writeStatistics.getAverageBatchSize() +
+                ",\"largest_batch\":" + writeStatistics.getLargestBatch() +
+                ",\"average_commit_millis\":" + writeStatistics.getAverageCommitMillis() +
+                ",\"operations_committed\":" + writeStatistics.getOperationsCommitted() +
+                ",\"operations_failed\":" + writeStatistics.getOperationsFailed() +
+                "}}";
+    }
+
+    private String queryMetricsJson()
+    {
+        QueryMetrics queryMetrics = database.getQueryMetrics();
+        StringWriter json = new StringWriter();
+        json.write("{\"total_executions\":" + queryMetrics.getTotalExecutions() +
+                ",\"total_errors\":" + queryMetrics.getTotalErrors() +
+                ",\"slow_query_threshold_millis\":" + queryMetrics.getSlowQueryThresholdMillis() +
+                ",\"operations\":[");
+        List<QueryMetrics.OperationSnapshot> operations = queryMetrics.getOperations();
+        for (int i = 0; i < operations.size(); i++)
+        {
+            QueryMetrics.OperationSnapshot operation = operations.get(i);
+            json.write(i > 0 ? ",{\"sql\":" : "{\"sql\":");
+            writeJsonString(json, operation.getSql());
+            json.write(",\"executions\":" + operation.getExecutions() +
+                    ",\"errors\":" + operation.getErrors() +
+                    ",\"rows\":" + operation.getRows() +
+                    ",\"mean_millis\":" + operation.getMeanMillis() +
+                    ",\"p50_millis\":" + operation.getP50Millis() +
+                    ",\"p90_millis\":" + operation.getP90Millis() +
+                    ",\"p99_millis\":" + operation.getP99Millis() +
+                    ",\"max_millis\":" + operation.getMaxMillis() + "}");
+        }
+        json.write("],\"slow_queries\":[");
+        List<QueryMetrics.SlowQuery> slowQueries = queryMetrics.getSlowQueries();
+        for (int i = 0; i < slowQueries.size(); i++)
+        {
+            QueryMetrics.SlowQuery slowQuery = slowQueries.get(i);
+            json.write(i > 0 ? ",{\"sql\":" : "{\"sql\":");
+            writeJsonString(json, slowQuery.getSql());
+            json.write(",\"millis\":" + slowQuery.getMillis() +
+                    ",\"rows\":" + slowQuery.getRows() +
+                    ",\"timestamp_millis\":" + slowQuery.getTimestampMillis() +
+                    ",\"query_plan\":");
+            writeJsonString(json, slowQuery.getQueryPlan());
+            json.write('}');
+        }
+        json.write("]}");
+        return json.toString();
+    }
+
+    private static Map<String, String> readJsonBody(HttpExchange exchange) throws IOException
+    {
+        try (InputStream requestBody = exchange.getRequestBody())
+        {
+            return JsonObjectParser.parse(new String(requestBody.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @return the parameters of the query string, URL-decoded
+     */
+    private static Map<String, String> parseQuery(HttpExchange exchange)
+    {
+        Map<String, String> parameters = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null)
+        {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&"))
+        {
+            int separatorIndex = parameter.indexOf('=');
+            if (separatorIndex > 0)
+            {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separatorIndex), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separatorIndex + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static int pageSize(Map<String, String> query)
+    {
+        String limit = query.get("limit");
+        try
+        {
+            return limit == null || limit.isEmpty() ? DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+        }
+        catch (NumberFormatException numberFormatException)
+        {
+            throw new IllegalArgumentException("limit must be an integer, got " + limit);
+        }
+    }
+
+    private static String requireMember(Map<String, String> body, String name)
+    {
+        String value = body.get(name);
+        if (value == null || value.isEmpty())
+        {
+            throw new IllegalArgumentException("missing \"" + name + "\" in the request body");
+        }
+        return value;
+    }
+
+    private static void sendError(HttpExchange exchange, int httpStatus, String message) throws IOException
+    {
+        StringWriter json = new StringWriter();
+        json.write("{\"error\":");
+        writeJsonString(json, message == null ? "" : message);
+        json.write('}');
+        sendJson(exchange, httpStatus, json.toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int httpStatus, String json) throws IOException
+    {
+        byte[] responseBody = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(httpStatus, responseBody.length);
+        try (OutputStream outputStream = exchange.getResponseBody())
+        {
+            outputStream.write(responseBody);
+        }
+    }
+
+    private interface JsonMapper<T>
+    {
+        String toJson(T value);
+    }
+
+    private static <T> String toJsonArray(List<T> values, JsonMapper<T> mapper)
+    {
+        StringBuilder json = new StringBuilder(values.size() * 64 + 2).append('[');
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (i > 0)
+            {
+                json.append(',');
+            }
+            json.append(mapper.toJson(values.get(i)));
+        }
+        return json.append(']').toString();
+    }
+
+    private static <T> String toJson(Page<T> page, JsonMapper<T> mapper)
+    {
+        StringWriter json = new StringWriter();
+        json.write("{\"items\":" + toJsonArray(page.getItems(), mapper) + ",\"next_cursor\":");
+        writeJsonString(json, page.getNextCursor());
+        json.write(",\"previous_cursor\":");
+        writeJsonString(json, page.getPreviousCursor());
+        json.write('}');
+        return json.toString();
+    }
+
+    private static String toJson(Class aClass)
+    {
+        StringWriter json = new StringWriter();
+        json.write("{\"id\":" + aClass.getId() + ",\"code\":");
+        writeJsonString(json, aClass.getCode());
+        json.write(",\"title\":");
+        writeJsonString(json, aClass.getTitle());
+        json.write(",\"description\":");
+        writeJsonString(json, aClass.getDescription());
+        json.write(",\"max_students\":" + aClass.getMaxStudents() + "}");
+        return json.toString();
+    }
+
+    private static String toJson(Student student)
+    {
+        StringWriter json = new StringWriter();
+        json.write("{\"id\":" + student.getId() + ",\"first_name\":");
+        writeJsonString(json, student.getFirstName());
+        json.write(",\"last_name\":");
+        writeJsonString(json, student.getLastName());
+        json.write(",\"birth_date\":");
+        writeJsonString(json, student.getBirthDate() == null ? null : student.getBirthDate().toString());
+        json.write('}');
+        return json.toString();
+    }
+
+    private static String toJson(Waitlist.Entry entry)
+    {
+        return "{\"class_id\":" + entry.getClassId() + ",\"student_id\":" + entry.getStudentId() +
+                ",\"priority\":" + entry.getPriority() + "}";
+    }
+
+    private static String toJson(Enrollment enrollment)
+    {
+        StringWriter json = new StringWriter();
+        json.write("{\"class_id\":" + enrollment.getClassId() + ",\"student_id\":" + enrollment.getStudentId() + ",\"student_full_name\":");
+        writeJsonString(json, enrollment.getStudentFullName());
+        json.write(",\"class_code\":");
+        writeJsonString(json, enrollment.getClassCode());
+        json.write(",\"class_title\":");
+        writeJsonString(json, enrollment.getClassTitle());
+        json.write('}');
+        return json.toString();
+    }
+
+    /**
+     * Writes a JSON string, or null, to a StringWriter, which cannot actually throw an IOException
+     */
+    private static void writeJsonString(StringWriter json, String text)
+    {
+        if (text == null)
+        {
+            json.write("null");
+            return;
+        }
+        try
+        {
+            Utils.writeJsonString(json, text);
+        }
+        catch (IOException ioException)
+        {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package cs208;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative ints, laid out like a Roaring bitmap.
+ * <p>
+ * The values are split into chunks of 65536 by their high 16 bits. A chunk holding few values stores their low 16 bits
+ * in a sorted {@code char[]} (2 bytes per value), a chunk holding more than {@value #ARRAY_CONTAINER_MAX_SIZE} values
+ * switches to a plain 8 KiB bitmap, so a set of a hundred ids scattered over a million costs a few hundred bytes
+ * instead of the 125 KB of a {@link java.util.BitSet}.
+ * <p>
+ * Not thread-safe.
+ */
+class IntBitmap
+{
+    // beyond this many values a sorted char[] takes more room than the 1024 longs of a bitmap
+    private static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+
+    // the high 16 bits of the values of each chunk, sorted, and the chunk holding their low 16 bits
+    private char[] keys = new char[1];
+    private Container[] containers = new Container[1];
+    private int numberOfChunks;
+    private int cardinality;
+
+    /**
+     * @return true if the value was not in the set yet
+     */
+    boolean add(int value)
+    {
+        char high = (char) (value >>> 16);
+        int index = Arrays.binarySearch(keys, 0, numberOfChunks, high);
+        if (index < 0)
+        {
+            index = -index - 1;
+            insertChunk(index, high, new ArrayContainer());
+        }
+
+        Container container = containers[index];
+        int sizeBefore = container.size();
+        containers[index] = container.add((char) value);
+        if (containers[index].size() == sizeBefore)
+        {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    boolean remove(int value)
+    {
+        int index = Arrays.binarySearch(keys, 0, numberOfChunks, (char) (value >>> 16));
+        if (index < 0)
+        {
+            return false;
+        }
+
+        Container container = containers[index];
+        int sizeBefore = container.size();
+        Container shrunk = container.remove((char) value);
+        if (shrunk.size() == sizeBefore)
+        {
+            return false;
+        }
+        cardinality--;
+        if (shrunk.size() == 0)
+        {
+            removeChunk(index);
+        }
+        else
+        {
+            containers[index] = shrunk;
+        }
+        return true;
+    }
+
+    boolean contains(int value)
+    {
+        int index = Arrays.binarySearch(keys, 0, numberOfChunks, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    int cardinality()
+    {
+        return cardinality;
+    }
+
+    boolean isEmpty()
+    {
+        return cardinality == 0;
+    }
+
+    /**
+     * @return the values in increasing order
+     */
+    int[] toArray()
+    {
+        int[] values = new int[cardinality];
+        int offset = 0;
+        for (int i = 0; i < numberOfChunks; i++)
+        {
+            offset = containers[i].copyTo(values, offset, keys[i] << 16);
+        }
+        return values;
+    }
+
+    /**
+     * @return an estimate of the bytes held by the bitmap, not counting object headers
+     */
+    long sizeInBytes()
+    {
+        long bytes = keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < numberOfChunks; i++)
+        {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void insertChunk(int index, char high, Container container)
+    {
+        if (numberOfChunks == keys.length)
+        {
+            keys = Arrays.copyOf(keys, numberOfChunks * 2);
+            containers = Arrays.copyOf(containers, numberOfChunks * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, numberOfChunks - index);
+        System.arraycopy(containers, index, containers, index + 1, numberOfChunks - index);
+        keys[index] = high;
+        containers[index] = container;
+        numberOfChunks++;
+    }
+
+    private void removeChunk(int index)
+    {
+        System.arraycopy(keys, index + 1, keys, index, numberOfChunks - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, numberOfChunks - index - 1);
+        numberOfChunks--;
+        containers[numberOfChunks] = null;
+    }
+
+    /**
+     * The low 16 bits of the values of one chunk; add() and remove() return the container to keep,
+     * which is a different one when the chunk switches between the array and the bitmap layout
+     */
+    private interface Container
+    {
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int size();
+
+        int copyTo(int[] values, int offset, int high);
+
+        long sizeInBytes();
+    }
+
+    private static class ArrayContainer implements Container
+    {
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        public Container add(char value)
+        {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0)
+            {
+                return this;
+            }
+            if (size == ARRAY_CONTAINER_MAX_SIZE)
+            {
+                return toBitmapContainer().add(value);
+            }
+
+            index = -index - 1;
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(size * 2, ARRAY_CONTAINER_MAX_SIZE));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value)
+        {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0)
+            {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public int copyTo(int[] values, int offset, int high)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                values[offset++] = high | this.values[i];
+            }
+            return offset;
+        }
+
+        @Override
+        public long sizeInBytes()
+        {
+            return values.length * 2L;
+        }
+
+        private BitmapContainer toBitmapContainer()
+        {
+            BitmapContainer bitmapContainer = new BitmapContainer();
+            for (int i = 0; i < size; i++)
+            {
+                bitmapContainer.add(values[i]);
+            }
+            return bitmapContainer;
+        }
+    }
+
+    private static class BitmapContainer implements Container
+    {
+        private final long[] words = new long[1 << 10];
+        private int size;
+
+        @Override
+        public Container add(char value)
+        {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0)
+            {
+                words[value >>> 6] |= bit;
+                size++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value)
+        {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0)
+            {
+                words[value >>> 6] &= ~bit;
+                size--;
+                if (size == ARRAY_CONTAINER_MAX_SIZE)
+                {
+                    return toArrayContainer();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public int copyTo(int[] values, int offset, int high)
+        {
+            for (int wordIndex = 0; wordIndex < words.length; wordIndex++)
+            {
+                long word = words[wordIndex];
+                while (word != 0)
+                {
+                    values[offset++] = high | (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                    // clear the lowest set bit
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        public long sizeInBytes()
+        {
+            return words.length * 8L;
+        }
+
+        private ArrayContainer toArrayContainer()
+        {
+            ArrayContainer arrayContainer = new ArrayContainer();
+            arrayContainer.values = new char[size];
+            int[] lowBits = new int[size];
+            copyTo(lowBits, 0, 0);
+            for (int i = 0; i < size; i++)
+            {
+                arrayContainer.values[i] = (char) lowBits[i];
+            }
+            arrayContainer.size = size;
+            return arrayContainer;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package cs208;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses the flat JSON objects sent to the {@link HttpApiServer}, e.g. {@code {"class_id": 3, "student_id": 42}}.
+ * <p>
+ * Values must be strings, numbers, booleans or null; nested objects and arrays are rejected.
+ * Every value is returned as its text (null for a JSON null), and converted by the caller.
+ */
+public class JsonObjectParser
+{
+    private final String json;
+    private int position;
+
+    private JsonObjectParser(String json)
+    {
+        this.json = json;
+    }
+
+    /**
+     * @return the members of the object, in the order they appear
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, String> parse(String json)
+    {
+        return new JsonObjectParser(json).parseObject();
+    }
+
+    private Map<String, String> parseObject()
+    {
+        Map<String, String> members = new LinkedHashMap<>();
+        expect('{');
+        if (peek() == '}')
+        {
+            position++;
+        }
+        else
+        {
+            while (true)
+            {
+                String name = parseString();
+                expect(':');
+                members.put(name, parseValue());
+
+                char next = next();
+                if (next == '}')
+                {
+                    break;
+                }
+                if (next != ',')
+                {
+                    throw error("expected ',' or '}'");
+                }
+            }
+        }
+
+        if (peek() != 0)
+        {
+            throw error("unexpected content after the object");
+        }
+        return members;
+    }
+
+    private String parseValue()
+    {
+        char first = peek();
+        if (first == '"')
+        {
+            return parseString();
+        }
+        if (first == '{' || first == '[')
+        {
+            throw error("nested objects and arrays are not supported");
+        }
+
+        int start = position;
+        while (position < json.length() && ",} \t\r\n".indexOf(json.charAt(position)) < 0)
+        {
+            position++;
+        }
+        String literal = json.substring(start, position);
+        if (literal.isEmpty())
+        {
+            throw error("expected a value");
+        }
+        return literal.equals("null") ? null : literal;
+    }
+
+    private String parseString()
+    {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true)
+        {
+            if (position >= json.length())
+            {
+                throw error("unterminated string");
+            }
+            char character = json.charAt(position++);
+            if (character == '"')
+            {
+                return value.toString();
+            }
+            if (character != '\\')
+            {
+                value.append(character);
+                continue;
+            }
+
+            if (position >= json.length())
+            {
+                throw error("unterminated string");
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped)
+            {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > json.length())
+                    {
+                        throw error("truncated \\u escape");
+                    }
+                    value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    // \" \\ and \/ stand for the character itself
+                    value.append(escaped);
+            }
+        }
+    }
+
+    private void expect(char expected)
+    {
+        if (next() != expected)
+        {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * @return the next character that is not whitespace, consuming it
+     */
+    private char next()
+    {
+        char character = peek();
+        if (character == 0)
+        {
+            throw error("unexpected end of input");
+        }
+        position++;
+        return character;
+    }
+
+    /**
+     * @return the next character that is not whitespace without consuming it, or 0 at the end of the input
+     */
+    private char peek()
+    {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position)))
+        {
+            position++;
+        }
+        return position < json.length() ? json.charAt(position) : 0;
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException("invalid JSON at position " + position + ": " + message);
+    }
+}
@@ -0,0 +1,120 @@
+package cs208;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies with a bounded relative error, in the spirit of HdrHistogram.
+ * <p>
+ * Latencies are counted in microseconds in log-linear buckets: one power of two is split into
+ * {@value #SUB_BUCKETS} equal sub-buckets, so a reported percentile is at most 1/{@value #SUB_BUCKETS}
+ * (about 6%) above the true value, whatever its magnitude. Recording is a single atomic increment,
+ * so many threads can record at once; percentiles are read from a point-in-time copy of the counts.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values up to 2^40 microseconds (about 12 days) get their own bucket, larger ones share the last one
+    private static final int MAX_EXPONENT = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT + 1) * SUB_BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos)
+    {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketIndex(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount()
+    {
+        return totalCount.sum();
+    }
+
+    public double getMeanMillis()
+    {
+        long count = totalCount.sum();
+        return count == 0 ? 0.0 : totalMicros.sum() / 1_000.0 / count;
+    }
+
+    public double getMaxMillis()
+    {
+        return maxMicros.get() / 1_000.0;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99 for the 99th percentile
+     * @return the upper bound of the bucket holding that percentile, capped at the maximum recorded value
+     */
+    public double getPercentileMillis(double percentile)
+    {
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++)
+        {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+        {
+            return 0.0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= rank)
+            {
+                return Math.min(bucketUpperBoundMicros(i), maxMicros.get()) / 1_000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++)
+        {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    private static int bucketIndex(long micros)
+    {
+        if (micros < SUB_BUCKETS)
+        {
+            // exponent 0 holds the values 0 to 15 one by one
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+        if (exponent > MAX_EXPONENT)
+        {
+            return (MAX_EXPONENT + 1) * SUB_BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - 1)) - SUB_BUCKETS;
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBoundMicros(int index)
+    {
+        int exponent = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (exponent == 0)
+        {
+            return subBucket;
+        }
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - 1)) - 1;
+    }
+}
@@ -1,6 +1,14 @@
 package cs208;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
 import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main {
@@ -14,22 +22,78 @@ public class Main {
         String sqliteFileName = "cs208_hw3.sqlite";
 
         database = new Database(sqliteFileName);
-        try {
-            database.getDatabaseConnection();
+        try (Connection connection = database.getDatabaseConnection()) {
+            // the connection goes straight back to the pool, this only checks that we can connect
+            if (!connection.isValid(5)) {
+                throw new SQLException("the database connection is not usable");
+            }
         } catch (Exception exception) {
             // there is really no point in continuing if we cannot connect to the database
             System.err.println("Exiting the program...");
+            database.close();
             return;
 
             // alternatively, we could have used
             // System.exit(1);
         }
 
+        try {
+            database.applyPendingMigrations();
+        } catch (Exception exception) {
+            System.err.println("!!! SQLException: failed to bring the database schema up to date");
+            System.err.println(exception.getMessage());
+            System.err.println("Exiting the program...");
+            database.close();
+            return;
+        }
+
+        if (Boolean.getBoolean("cs208.enrollmentGraph")) {
+            try {
+                long startNanos = System.nanoTime();
+                database.loadEnrollmentGraph();
+                System.out.printf("Loaded the enrollments in memory in %.2f s: %s%n", (System.nanoTime() - startNanos) / 1_000_000_000.0, database.getEnrollmentGraph());
+            } catch (SQLException sqlException) {
+                System.err.println("!!! SQLException: failed to load the enrollment graph, continuing without it");
+                System.err.println(sqlException.getMessage());
+            }
+        }
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("cs208.server.port", 8080);
+            startServer(port);
+            return;
+        }
+
         inputScanner = new Scanner(System.in);
 
         chooseMenuOptions();
 
         inputScanner.close();
+        database.close();
+    }
+
+    /**
+     * Runs headless, serving the Database operations over HTTP until the process is stopped (e.g. with Ctrl+C)
+     */
+    private static void startServer(int port) {
+        HttpApiServer server;
+        try {
+            server = new HttpApiServer(database, port);
+        } catch (IOException ioException) {
+            System.err.println("!!! IOException: failed to listen on port " + port);
+            System.err.println(ioException.getMessage());
+            database.close();
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Stopping the server...");
+            server.stop(5);
+            database.close();
+        }));
+        server.start();
+        System.out.println("Serving the School Management System on http://localhost:" + server.getPort() +
+                (server.usesVirtualThreads() ? " (one virtual thread per request)" : " (thread pool, virtual threads need Java 21)"));
     }
 
     private static void printMenuOptions() {
@@ -39,6 +103,8 @@ public class Main {
         System.out.println(" 0 - Test the database connection");
         System.out.println(" 1 - Print this menu");
         System.out.println(" 2 - Exit the program");
+        System.out.println(" 3 - Show connection pool and class cache statistics");
+        System.out.println(" 4 - Show query metrics and recent slow queries");
         System.out.println("10 - List all classes");
         System.out.println("11 - Add new class");
         System.out.println("12 - Update existing class information");
@@ -47,11 +113,21 @@ public class Main {
         System.out.println("21 - Add new student");
         System.out.println("22 - Update existing student information");
         System.out.println("23 - Delete existing student");
+        System.out.println("24 - Delete many students (ids from a file or a birth date range) and their enrollments");
         System.out.println("30 - List all registered students");
         System.out.println("31 - Add a new student to a class");
         System.out.println("32 - Drop an existing student from a class");
         System.out.println("33 - Show all students that are taking a class");
         System.out.println("34 - Show all classes in which a student is enrolled");
+        System.out.println("35 - Enroll students in classes from a file of class_id,student_id pairs");
+        System.out.println("36 - Import classes, students or enrollments from a CSV file");
+        System.out.println("37 - Export classes, students or registered students to a CSV or JSON Lines file");
+        System.out.println("38 - Browse classes, students or registered students page by page");
+        System.out.println("39 - Show the classes two students are both enrolled in");
+        System.out.println("40 - Show the waitlist of a class");
+        System.out.println("41 - Search students by a partial or mistyped name");
+        System.out.println("42 - Show how full each class is");
+        System.out.println("43 - Check and repair the enrollment count of every class");
     }
 
     public static void chooseMenuOptions() {
@@ -85,6 +161,14 @@ public class Main {
                     System.out.println("Exiting the program...");
                     break;
 
+                case 3:
+                    menuShowConnectionPoolStatistics();
+                    break;
+
+                case 4:
+                    menuShowQueryMetrics();
+                    break;
+
                 case 10:
                     menuListAllClasses();
                     break;
@@ -117,6 +201,10 @@ public class Main {
                     menuDeleteExistingStudent();
                     break;
 
+                case 24:
+                    menuDeleteStudentsInBulk();
+                    break;
+
                 case 30:
                     menuListAllRegisteredStudents();
                     break;
@@ -132,6 +220,33 @@ public class Main {
                 case 34:
                     menuShowAllStudentClasses();
                     break;
+                case 35:
+                    menuEnrollStudentsFromFile();
+                    break;
+                case 36:
+                    menuImportFromCsvFile();
+                    break;
+                case 37:
+                    menuExportToFile();
+                    break;
+                case 38:
+                    menuBrowsePageByPage();
+                    break;
+                case 39:
+                    menuShowSharedClasses();
+                    break;
+                case 40:
+                    menuShowWaitlist();
+                    break;
+                case 41:
+                    menuSearchStudentsByName();
+                    break;
+                case 42:
+                    menuShowClassFillRates();
+                    break;
+                case 43:
+                    menuCheckEnrollmentCounts();
+                    break;
 
                 //TODO: add your code here
 
@@ -149,9 +264,33 @@ public class Main {
 
     }
 
+    private static void menuShowQueryMetrics() {
+        System.out.println("Query metrics...");
+        QueryMetrics queryMetrics = database.getQueryMetrics();
+        System.out.println(queryMetrics);
+        for (QueryMetrics.SlowQuery slowQuery : queryMetrics.getSlowQueries()) {
+            System.out.printf("slow: %.1f ms, %d rows: %s%n", slowQuery.getMillis(), slowQuery.getRows(), slowQuery.getSql());
+        }
+    }
+
+    private static void menuShowConnectionPoolStatistics() {
+        System.out.println("Connection pool statistics...");
+        System.out.println(database.getConnectionPoolStatistics());
+        System.out.println(database.getClassCatalogCache());
+        System.out.println(database.getWriteStatistics());
+        if (database.getEnrollmentGraph() != null) {
+            System.out.println(database.getEnrollmentGraph());
+        }
+    }
+
     public static void menuListAllClasses() {
         System.out.println("Listing all classes...");
-        database.listAllClasses();
+        try {
+            printClasses(database.listAllClasses());
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the classes table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
     }
 
     private static void menuAddNewClass() {
@@ -239,7 +378,12 @@ public class Main {
 
     private static void menuListAllStudents() {
         System.out.println("Listing all students...");
-        database.listAllStudents();
+        try {
+            printStudents(database.listAllStudents());
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the students table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
     }
 
     private static void menuAddNewStudent() {
@@ -545,8 +689,20 @@ public class Main {
                         System.out.println("Invalid choice, please try again.");
                 }
             }
+            int classId = database.findClassIdByCode(classCode);
+            while (classId == 0) {
+                System.out.println("This class code does not exist, please try again by entering a new class code here: \n");
+                classCode = new Scanner(System.in).nextLine();
+                classId = database.findClassIdByCode(classCode);
+            }
+
             System.out.println("Listing all registered students...");
-            database.showAllStudentsInClass(classCode);
+            List<Enrollment> roster = database.getStudentsInClass(classId);
+            if (roster.isEmpty()) {
+                System.out.println("No students are enrolled in " + classCode);
+            } else {
+                printEnrollments(roster);
+            }
         } catch (Exception e) {
             System.out.println(e.getMessage());
             System.out.println("Please try again.");
@@ -564,7 +720,11 @@ public class Main {
                 case 0:
                     System.out.println("Please enter an existing integer Student ID: ");
                     int StudentID = inputScanner.nextInt();
-                    database.showAllStudentClasses(StudentID);
+                    while (!database.studentExists(StudentID)) {
+                        System.out.println("This student does not exist, please try again by re-entering the student's ID here:  \n");
+                        StudentID = inputScanner.nextInt();
+                    }
+                    printStudentSchedule(StudentID);
                     break;
                 case 1:
                     System.out.println("Please enter the student first name and last name separated by a space: ");
@@ -575,27 +735,417 @@ public class Main {
                     First = First.replace(" ", "");
                     String Last = fixsplit[1];
                     Last = Last.replace(" ", "");
-                    database.showAllStudentClasses(First, Last);
+                    int studentIdByName = database.findStudentIdByName(First, Last);
+                    while (studentIdByName == 0) {
+                        System.out.println("This student does not exist, please try again by re-entering the student's first and last name separated by a space here:  \n");
+                        fixsplit = inputScanner2.nextLine().split(" ");
+                        studentIdByName = database.findStudentIdByName(fixsplit[0].trim(), fixsplit[1].trim());
+                    }
+                    printStudentSchedule(studentIdByName);
                     break;
                 case 2:
                     System.out.println("Please enter the student date of birth in YYYY-MM-DD format: ");
                     Scanner inputScanner3 = new Scanner(System.in);
                     String DOB = inputScanner3.next();
-                    database.showAllStudentClasses(DOB);
+                    int studentIdByBirthDate = database.findStudentIdByBirthDate(DOB);
+                    while (studentIdByBirthDate == 0) {
+                        System.out.println("This student does not exist, please try again by re-entering the student's birth date in YYYY-MM-DD format here:  \n");
+                        studentIdByBirthDate = database.findStudentIdByBirthDate(inputScanner3.next());
+                    }
+                    printStudentSchedule(studentIdByBirthDate);
+                    break;
+                default:
+                    System.out.println("Invalid choice, please try again.");
+                    return;
+            }
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        } catch (Exception e) {
+            System.out.println("Invalid input, please try again.");
+            return;
+        }
+    }
+
+    private static void menuShowSharedClasses() {
+        try {
+            System.out.print("Enter the id of the first student: ");
+            int studentId = Integer.parseInt(inputScanner.nextLine().trim());
+            System.out.print("Enter the id of the second student: ");
+            int otherStudentId = Integer.parseInt(inputScanner.nextLine().trim());
+
+            long startNanos = System.nanoTime();
+            List<Class> sharedClasses = database.getClassesSharedBy(studentId, otherStudentId);
+            long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+            printClasses(sharedClasses);
+            System.out.println(sharedClasses.size() + " shared classes, found in " + elapsedMicros + " microseconds" +
+                    (database.getEnrollmentGraph() != null ? " from the in-memory enrollment graph" : ""));
+        } catch (NumberFormatException numberFormatException) {
+            System.out.println("Invalid input, expected an integer student id.");
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void menuShowWaitlist() {
+        try {
+            System.out.print("Enter the id of the class: ");
+            int classId = Integer.parseInt(inputScanner.nextLine().trim());
+
+            Waitlist waitlist = database.getWaitlist();
+            List<Waitlist.Entry> entries = waitlist.getEntries(classId);
+            if (entries.isEmpty()) {
+                System.out.println("Nobody is waiting for a seat in this class");
+                return;
+            }
+            System.out.println("position | student_id | priority");
+            int position = 1;
+            for (Waitlist.Entry entry : entries) {
+                System.out.printf("%8d | %10d | %8d%n", position++, entry.getStudentId(), entry.getPriority());
+            }
+            System.out.println(waitlist);
+        } catch (NumberFormatException numberFormatException) {
+            System.out.println("Invalid input, expected an integer class id.");
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to read the waitlist table. Make sure the database schema is up to date");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void menuSearchStudentsByName() {
+        try {
+            System.out.print("Enter a first name, a last name or both, or the start of one: ");
+            String query = inputScanner.nextLine();
+
+            long startNanos = System.nanoTime();
+            List<Student> students = database.searchStudentsByName(query, 10);
+            long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+            if (students.isEmpty()) {
+                System.out.println("No student has a name close to '" + query.trim() + "'");
+                return;
+            }
+            printStudents(students);
+            System.out.println(students.size() + " students found in " + elapsedMicros + " microseconds");
+            System.out.println(database.getStudentNameIndex());
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the students table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void menuShowClassFillRates() {
+        try {
+            long startNanos = System.nanoTime();
+            List<ClassFillRate> fillRates = database.getClassFillRates();
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+            TableRenderer table = TableRenderer.forStream(System.out, "id", "code", "title", "enrolled", "max_students", "fill");
+            for (ClassFillRate fillRate : fillRates) {
+                double fill = fillRate.getFillRate();
+                table.addRow(fillRate.getClassId(), fillRate.getCode(), fillRate.getTitle(), fillRate.getEnrolledCount(),
+                        fillRate.getMaxStudents(), Double.isNaN(fill) ? "-" : String.format("%.1f%%", fill * 100));
+            }
+            table.finish();
+            System.out.println(fillRates.size() + " classes read in " + elapsedMillis + " ms");
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the classes table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void menuCheckEnrollmentCounts() {
+        try {
+            long startNanos = System.nanoTime();
+            EnrollmentCountCheckResult result = database.checkEnrollmentCounts();
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+            if (result.isConsistent()) {
+                System.out.println("The enrollment counts of all " + result.getNumberOfClassesChecked() + " classes are correct");
+            } else {
+                System.out.println(result.getMismatchedClassIds().size() + " of " + result.getNumberOfClassesChecked() +
+                        " classes had a wrong enrollment count, " + result.getNumberOfClassesRepaired() + " repaired: " +
+                        result.getMismatchedClassIds());
+            }
+            System.out.println("Checked in " + elapsedMillis + " ms");
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to recount the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void printStudentSchedule(int studentId) throws SQLException {
+        List<Enrollment> schedule = database.getStudentSchedule(studentId);
+        if (schedule.isEmpty()) {
+            System.out.println("This student is not enrolled in any classes");
+        } else {
+            printEnrollments(schedule);
+        }
+    }
+    private static void menuDeleteStudentsInBulk() {
+        System.out.println("Deleting students in bulk...");
+        StudentSelection selection;
+        try {
+            System.out.println("Which students would you like to delete?\n" +
+                    "0 - Students whose ids are listed in a file, one per line\n" +
+                    "1 - Students born within a date range");
+            int choice = Integer.parseInt(inputScanner.nextLine().trim());
+            switch (choice) {
+                case 0:
+                    System.out.print("Enter the path of the file of student ids: ");
+                    String path = inputScanner.nextLine().trim();
+                    List<Integer> ids = new ArrayList<>();
+                    try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            line = line.trim();
+                            if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("id")) {
+                                ids.add(Integer.parseInt(line));
+                            }
+                        }
+                    }
+                    selection = StudentSelection.byIds(ids);
+                    break;
+                case 1:
+                    System.out.print("Enter the earliest birth date in YYYY-MM-DD format (empty for no limit): ");
+                    String from = inputScanner.nextLine().trim();
+                    System.out.print("Enter the latest birth date in YYYY-MM-DD format (empty for no limit): ");
+                    String to = inputScanner.nextLine().trim();
+                    selection = StudentSelection.byBirthDateBetween(
+                            from.isEmpty() ? null : Date.valueOf(from),
+                            to.isEmpty() ? null : Date.valueOf(to));
                     break;
                 default:
                     System.out.println("Invalid choice, please try again.");
                     return;
             }
+        } catch (IOException ioException) {
+            System.out.println("!!! IOException: failed to read the file of student ids");
+            System.out.println(ioException.getMessage());
+            return;
         } catch (Exception e) {
             System.out.println("Invalid input, please try again.");
             return;
         }
+
+        try {
+            StudentDeletionResult result = database.deleteStudents(selection);
+            System.out.println("SUCCESSFULLY deleted " + result.getNumberOfStudentsDeleted() + " students and " +
+                    result.getNumberOfEnrollmentsDeleted() + " enrollments (" + selection + ")");
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to delete the students, nothing was deleted");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void menuEnrollStudentsFromFile() {
+        System.out.println("Enrolling students from a file...");
+        System.out.print("Enter the path of a file with one class_id,student_id pair per line: ");
+        String path = inputScanner.nextLine();
+
+        List<Enrollment> enrollments = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("class_id")) {
+                    continue;
+                }
+
+                String[] pair = line.split(",");
+                try {
+                    int classId = Integer.parseInt(pair[0].trim());
+                    int studentId = Integer.parseInt(pair[1].trim());
+                    enrollments.add(new Enrollment(classId, studentId));
+                } catch (Exception e) {
+                    System.out.println("Skipping line " + lineNumber + ", expected class_id,student_id but got: " + line);
+                }
+            }
+        } catch (IOException ioException) {
+            System.out.println("!!! IOException: failed to read " + path);
+            System.out.println(ioException.getMessage());
+            return;
+        }
+
+        try {
+            EnrollmentBatchResult result = database.enrollBatch(enrollments);
+            System.out.println("SUCCESSFULLY enrolled " + result.getNumberOfEnrollmentsInserted() + " of " + enrollments.size() + " students");
+            for (EnrollmentBatchResult.Failure failure : result.getFailures()) {
+                System.out.println("!!! WARNING: skipped " + failure);
+            }
+        } catch (Exception exception) {
+            System.out.println("!!! SQLException: failed to enroll the students, no enrollment was inserted");
+            System.out.println(exception.getMessage());
+        }
+    }
+
+    private static void menuImportFromCsvFile() {
+        int batchSize = Integer.getInteger("cs208.import.batchSize", 10_000);
+        CsvImporter csvImporter = new CsvImporter(database, batchSize);
+        try {
+            System.out.println("What would you like to import?\n" +
+                    "0 - Classes (code,title,description,max_students)\n" +
+                    "1 - Students (first_name,last_name,birth_date)\n" +
+                    "2 - Enrollments (class_id,student_id)");
+            int choice = Integer.parseInt(inputScanner.nextLine().trim());
+            System.out.print("Enter the path of the CSV file: ");
+            java.nio.file.Path csvFile = Paths.get(inputScanner.nextLine().trim());
+
+            System.out.println("Importing " + csvFile + " in batches of " + batchSize + " rows...");
+            CsvImporter.Result result;
+            switch (choice) {
+                case 0:
+                    result = csvImporter.importClasses(csvFile);
+                    break;
+                case 1:
+                    result = csvImporter.importStudents(csvFile);
+                    break;
+                case 2:
+                    result = csvImporter.importEnrollments(csvFile);
+                    break;
+                default:
+                    System.out.println("Invalid choice, please try again.");
+                    return;
+            }
+
+            System.out.println("SUCCESSFULLY " + result);
+            for (String error : result.getErrors()) {
+                System.out.println("!!! WARNING: rejected " + error);
+            }
+        } catch (Exception exception) {
+            System.out.println("!!! Exception: the import stopped, the batches committed so far were kept");
+            System.out.println(exception.getMessage());
+        }
     }
+
+    private static void menuExportToFile() {
+        try {
+            System.out.println("What would you like to export?\n" +
+                    "0 - All classes\n" +
+                    "1 - All students\n" +
+                    "2 - All registered students");
+            int choice = Integer.parseInt(inputScanner.nextLine().trim());
+            System.out.println("In which format?\n" +
+                    "0 - CSV\n" +
+                    "1 - JSON Lines");
+            ExportFormat format = Integer.parseInt(inputScanner.nextLine().trim()) == 0 ? ExportFormat.CSV : ExportFormat.JSON_LINES;
+            System.out.print("Enter the path of the ." + format.getFileExtension() + " file to write: ");
+            java.nio.file.Path file = Paths.get(inputScanner.nextLine().trim());
+
+            long startNanos = System.nanoTime();
+            long numberOfRows;
+            switch (choice) {
+                case 0:
+                    numberOfRows = database.exportAllClasses(file, format);
+                    break;
+                case 1:
+                    numberOfRows = database.exportAllStudents(file, format);
+                    break;
+                case 2:
+                    numberOfRows = database.exportAllRegisteredStudents(file, format);
+                    break;
+                default:
+                    System.out.println("Invalid choice, please try again.");
+                    return;
+            }
+            System.out.printf("SUCCESSFULLY exported %d rows to %s in %.2f s%n", numberOfRows, file, (System.nanoTime() - startNanos) / 1_000_000_000.0);
+        } catch (Exception exception) {
+            System.out.println("!!! Exception: failed to export the rows");
+            System.out.println(exception.getMessage());
+        }
+    }
+
+    /**
+     * Shows one page at a time, with the page size taken from the cs208.page.size system property (20 by default)
+     */
+    private static void menuBrowsePageByPage() {
+        try {
+            System.out.println("What would you like to browse?\n" +
+                    "0 - Classes\n" +
+                    "1 - Students\n" +
+                    "2 - Registered students");
+            int choice = Integer.parseInt(inputScanner.nextLine().trim());
+            if (choice < 0 || choice > 2) {
+                System.out.println("Invalid choice, please try again.");
+                return;
+            }
+            int pageSize = Integer.getInteger("cs208.page.size", 20);
+
+            String cursor = null;
+            while (true) {
+                Page<?> page;
+                switch (choice) {
+                    case 0:
+                        Page<Class> classes = database.listClasses(cursor, pageSize);
+                        printClasses(classes.getItems());
+                        page = classes;
+                        break;
+                    case 1:
+                        Page<Student> students = database.listStudents(cursor, pageSize);
+                        printStudents(students.getItems());
+                        page = students;
+                        break;
+                    default:
+                        Page<Enrollment> enrollments = database.listRegisteredStudents(cursor, pageSize);
+                        printEnrollments(enrollments.getItems());
+                        page = enrollments;
+                        break;
+                }
+
+                if (!page.hasNext() && !page.hasPrevious()) {
+                    return;
+                }
+                System.out.print("Enter " + (page.hasNext() ? "n for the next page, " : "") + (page.hasPrevious() ? "p for the previous page, " : "") + "anything else to stop: ");
+                String answer = inputScanner.nextLine().trim();
+                if (answer.equalsIgnoreCase("n") && page.hasNext()) {
+                    cursor = page.getNextCursor();
+                } else if (answer.equalsIgnoreCase("p") && page.hasPrevious()) {
+                    cursor = page.getPreviousCursor();
+                } else {
+                    return;
+                }
+            }
+        } catch (Exception exception) {
+            System.out.println("!!! Exception: failed to list the rows");
+            System.out.println(exception.getMessage());
+        }
+    }
+
     private static void menuListAllRegisteredStudents()
     {
         System.out.println("Listing all registered students...");
-        database.listAllRegisteredStudents();
+        try {
+            printEnrollments(database.listAllRegisteredStudents());
+        } catch (SQLException sqlException) {
+            System.out.println("!!! SQLException: failed to query the registered_students table. Make sure you executed the schema.sql and seeds.sql scripts");
+            System.out.println(sqlException.getMessage());
+        }
+    }
+
+    private static void printClasses(List<Class> classes) {
+        TableRenderer table = TableRenderer.forStream(System.out, "id", "code", "title", "description", "max_students");
+        for (Class aClass : classes) {
+            table.addRow(aClass.getId(), aClass.getCode(), aClass.getTitle(), aClass.getDescription(), aClass.getMaxStudents());
+        }
+        table.finish();
+    }
+
+    private static void printStudents(List<Student> students) {
+        TableRenderer table = TableRenderer.forStream(System.out, "id", "first_name", "last_name", "birth_date");
+        for (Student student : students) {
+            table.addRow(student.getId(), student.getFirstName(), student.getLastName(), student.getBirthDate());
+        }
+        table.finish();
+    }
+
+    private static void printEnrollments(List<Enrollment> enrollments) {
+        TableRenderer table = TableRenderer.forStream(System.out, "students.id", "student_full_name", "classes.code", "classes.title");
+        for (Enrollment enrollment : enrollments) {
+            table.addRow(enrollment.getStudentId(), enrollment.getStudentFullName(), enrollment.getClassCode(), enrollment.getClassTitle());
+        }
+        table.finish();
     }
 
 }
@@ -0,0 +1,68 @@
+package cs208;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing, such as {@link Database#listClasses(String, int)}.
+ * <p>
+ * The cursors are opaque tokens to pass back to the same listing method to get the following or the preceding page;
+ * they remember the sort key of the last or first row shown rather than an offset,
+ * so rows inserted or deleted meanwhile never make a page repeat or skip rows.
+ *
+ * @param <T> the type of the rows
+ */
+public class Page<T>
+{
+    private final List<T> items;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    public Page(List<T> items, String nextCursor, String previousCursor)
+    {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getItems()
+    {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return the cursor of the page after this one, or null if this is the last page
+     */
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * @return the cursor of the page before this one, or null if this is the first page
+     */
+    public String getPreviousCursor()
+    {
+        return previousCursor;
+    }
+
+    public boolean hasNext()
+    {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious()
+    {
+        return previousCursor != null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Page{" +
+                "items=" + items.size() +
+                ", hasNext=" + hasNext() +
+                ", hasPrevious=" + hasPrevious() +
+                '}';
+    }
+}
@@ -0,0 +1,107 @@
+package cs208;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * The decoded form of a {@link Page} cursor: which listing it belongs to, whether it asks for the rows after
+ * or before its key, and the sort key of the row it starts from.
+ * <p>
+ * Key values are either numbers (stored as longs) or strings.
+ * The token is the URL-safe Base64 encoding of these fields, so callers can pass it around (e.g. in a query string)
+ * but should not build or parse it themselves.
+ */
+class PageCursor
+{
+    private static final int VERSION = 1;
+
+    private final String listing;
+    private final boolean forward;
+    private final List<Object> key;
+
+    PageCursor(String listing, boolean forward, List<Object> key)
+    {
+        this.listing = listing;
+        this.forward = forward;
+        this.key = key;
+    }
+
+    boolean isForward()
+    {
+        return forward;
+    }
+
+    List<Object> getKey()
+    {
+        return key;
+    }
+
+    String encode()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes))
+        {
+            output.writeByte(VERSION);
+            output.writeUTF(listing);
+            output.writeBoolean(forward);
+            output.writeByte(key.size());
+            for (Object value : key)
+            {
+                if (value instanceof Number)
+                {
+                    output.writeByte('L');
+                    output.writeLong(((Number) value).longValue());
+                }
+                else
+                {
+                    output.writeByte('S');
+                    output.writeUTF((String) value);
+                }
+            }
+        }
+        catch (IOException ioException)
+        {
+            // a ByteArrayOutputStream does not throw
+            throw new IllegalStateException(ioException);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param expectedListing the listing the cursor must have been issued by
+     * @throws IllegalArgumentException if the token is not a cursor of that listing
+     */
+    static PageCursor decode(String token, String expectedListing)
+    {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token))))
+        {
+            if (input.readByte() != VERSION)
+            {
+                throw new IllegalArgumentException("unsupported page cursor version");
+            }
+            String listing = input.readUTF();
+            if (!listing.equals(expectedListing))
+            {
+                throw new IllegalArgumentException("the page cursor belongs to the " + listing + " listing, not to " + expectedListing);
+            }
+            boolean forward = input.readBoolean();
+            int keySize = input.readByte();
+            List<Object> key = new ArrayList<>(keySize);
+            for (int i = 0; i < keySize; i++)
+            {
+                key.add(input.readByte() == 'L' ? (Object) input.readLong() : input.readUTF());
+            }
+            return new PageCursor(listing, forward, key);
+        }
+        catch (IOException ioException)
+        {
+            throw new IllegalArgumentException("malformed page cursor", ioException);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package cs208;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least-recently-used cache of compiled prepared statements, keyed by SQL text, for one pooled connection.
+ * <p>
+ * {@link #checkOut(String, int)} hands out a statement whose {@code close()} only resets it and puts it back in the cache,
+ * so the usual try-with-resources blocks reuse the compiled SQLite statement on the next call with the same SQL.
+ * Like the connection it belongs to, a cache must only be used by one thread at a time.
+ */
+public class PreparedStatementCache
+{
+    private final Connection physicalConnection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LinkedHashMap<String, CachedStatement> cachedStatements;
+
+    /**
+     * @param physicalConnection the connection the statements are prepared on
+     * @param capacity the maximum number of statements to keep, 0 disables caching
+     * @param hits counter shared by every cache of the pool
+     * @param misses counter shared by every cache of the pool
+     * @param evictions counter shared by every cache of the pool
+     */
+    public PreparedStatementCache(Connection physicalConnection, int capacity, LongAdder hits, LongAdder misses, LongAdder evictions)
+    {
+        this.physicalConnection = physicalConnection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        // access order turns the LinkedHashMap into an LRU list, the eldest entry is the least recently used one
+        this.cachedStatements = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest)
+            {
+                if (size() <= PreparedStatementCache.this.capacity)
+                {
+                    return false;
+                }
+                PreparedStatementCache.this.evictions.increment();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for the given SQL, preparing and caching it on a miss.
+     * If the cached statement is still in use (the same SQL prepared twice before closing the first one),
+     * an uncached statement is returned instead.
+     *
+     * @param sql the SQL text to prepare
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} or {@link java.sql.Statement#NO_GENERATED_KEYS}
+     * @return a statement whose {@code close()} gives it back to the cache
+     * @throws SQLException if the SQL cannot be prepared
+     */
+    public PreparedStatement checkOut(String sql, int autoGeneratedKeys) throws SQLException
+    {
+        if (capacity == 0)
+        {
+            misses.increment();
+            return physicalConnection.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        String key = autoGeneratedKeys + ":" + sql;
+        CachedStatement cachedStatement = cachedStatements.get(key);
+        if (cachedStatement != null && cachedStatement.evicted)
+        {
+            // its checkIn() failed and closed the physical statement, so it is prepared again below
+            cachedStatements.remove(key);
+            cachedStatement = null;
+        }
+        if (cachedStatement != null && !cachedStatement.checkedOut)
+        {
+            hits.increment();
+            cachedStatement.checkedOut = true;
+            return cachedStatement.logicalStatement;
+        }
+
+        misses.increment();
+        PreparedStatement physicalStatement = physicalConnection.prepareStatement(sql, autoGeneratedKeys);
+        if (cachedStatement != null)
+        {
+            return physicalStatement;
+        }
+
+        cachedStatement = new CachedStatement(physicalStatement);
+        cachedStatement.checkedOut = true;
+        cachedStatements.put(key, cachedStatement);
+        return cachedStatement.logicalStatement;
+    }
+
+    /**
+     * @return the number of statements currently cached
+     */
+    public int size()
+    {
+        return cachedStatements.size();
+    }
+
+    /**
+     * Gives back every statement the borrower of the connection forgot to close
+     */
+    public void checkInAll()
+    {
+        for (CachedStatement cachedStatement : cachedStatements.values().toArray(new CachedStatement[0]))
+        {
+            if (cachedStatement.checkedOut)
+            {
+                try
+                {
+                    cachedStatement.checkIn();
+                }
+                catch (SQLException ignored)
+                {
+                    // checkIn() already discarded the statement
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every cached statement, called right before the physical connection is closed
+     */
+    public void closeAll()
+    {
+        for (CachedStatement cachedStatement : cachedStatements.values())
+        {
+            cachedStatement.closePhysicalQuietly();
+        }
+        cachedStatements.clear();
+    }
+
+    /**
+     * A compiled statement owned by the cache, lent out through a proxy that intercepts {@code close()}
+     */
+    private static class CachedStatement implements InvocationHandler
+    {
+        private final PreparedStatement physicalStatement;
+        private final PreparedStatement logicalStatement;
+        private ResultSet lastResultSet;
+        private boolean checkedOut;
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement physicalStatement)
+        {
+            this.physicalStatement = physicalStatement;
+            this.logicalStatement = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatementCache.class.getClassLoader(),
+                    new java.lang.Class<?>[]{PreparedStatement.class},
+                    this
+            );
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    if (checkedOut)
+                    {
+                        checkIn();
+                    }
+                    return null;
+                case "isClosed":
+                    return !checkedOut;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + physicalStatement + "]";
+                default:
+                    break;
+            }
+
+            if (!checkedOut)
+            {
+                throw new SQLException("The statement has already been closed");
+            }
+
+            try
+            {
+                Object result = method.invoke(physicalStatement, args);
+                if (result instanceof ResultSet)
+                {
+                    lastResultSet = (ResultSet) result;
+                }
+                return result;
+            }
+            catch (InvocationTargetException invocationTargetException)
+            {
+                throw invocationTargetException.getCause();
+            }
+        }
+
+        /**
+         * Resets the statement so the next borrower sees no leftover result set, parameters or batch
+         */
+        private void checkIn() throws SQLException
+        {
+            checkedOut = false;
+            if (evicted)
+            {
+                closePhysicalQuietly();
+                return;
+            }
+
+            try
+            {
+                // closing the result set also resets the underlying SQLite statement, releasing its read lock
+                if (lastResultSet != null)
+                {
+                    lastResultSet.close();
+                    lastResultSet = null;
+                }
+                physicalStatement.clearParameters();
+                physicalStatement.clearBatch();
+            }
+            catch (SQLException sqlException)
+            {
+                evicted = true;
+                closePhysicalQuietly();
+                throw sqlException;
+            }
+        }
+
+        private void evict()
+        {
+            evicted = true;
+            if (!checkedOut)
+            {
+                closePhysicalQuietly();
+            }
+        }
+
+        private void closePhysicalQuietly()
+        {
+            try
+            {
+                physicalStatement.close();
+            }
+            catch (SQLException ignored)
+            {
+                // the statement is being discarded either way
+            }
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package cs208;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, row and error counts of every SQL statement run through the {@link ConnectionPool}, plus a slow-query log.
+ * <p>
+ * The pool hands out statements wrapped by {@link #instrument(PreparedStatement, String)} and
+ * {@link #instrument(Statement)}, which time each execution and record it under its SQL text.
+ * For queries the time runs until the result set is exhausted or closed, since SQLite computes the rows
+ * while they are read. Executions slower than the threshold are printed on {@code System.err}, together with
+ * {@code EXPLAIN QUERY PLAN} the first time a statement is slow, and the most recent ones are kept for
+ * {@link #getSlowQueries()}.
+ */
+public class QueryMetrics implements QueryMetricsMXBean
+{
+    // statements built by string concatenation must not grow the registry without bound
+    private static final int MAX_TRACKED_STATEMENTS = 1_000;
+    private static final String OTHER_STATEMENTS = "(other statements)";
+    private static final int MAX_SLOW_QUERIES_KEPT = 50;
+
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private volatile long slowQueryThresholdMillis;
+
+    /**
+     * @param slowQueryThresholdMillis executions taking longer are logged, a negative value disables the log
+     */
+    public QueryMetrics(long slowQueryThresholdMillis)
+    {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    /**
+     * @return metrics whose slow-query threshold is {@code cs208.metrics.slowQueryMillis} (default 200)
+     */
+    public static QueryMetrics fromSystemProperties()
+    {
+        return new QueryMetrics(Long.getLong("cs208.metrics.slowQueryMillis", 200));
+    }
+
+    public PreparedStatement instrument(PreparedStatement preparedStatement, String sql)
+    {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                QueryMetrics.class.getClassLoader(),
+                new java.lang.Class<?>[]{PreparedStatement.class},
+                new StatementHandler(preparedStatement, sql)
+        );
+    }
+
+    public Statement instrument(Statement statement)
+    {
+        return (Statement) Proxy.newProxyInstance(
+                QueryMetrics.class.getClassLoader(),
+                new java.lang.Class<?>[]{Statement.class},
+                new StatementHandler(statement, null)
+        );
+    }
+
+    /**
+     * @return the metrics of every statement run so far, slowest total time first
+     */
+    @Override
+    public List<OperationSnapshot> getOperations()
+    {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        operations.forEach((sql, metrics) -> snapshots.add(metrics.snapshot(sql)));
+        snapshots.sort(Comparator.comparingDouble(OperationSnapshot::getTotalMillis).reversed());
+        return snapshots;
+    }
+
+    /**
+     * @return the most recent executions slower than the threshold, newest first
+     */
+    @Override
+    public List<SlowQuery> getSlowQueries()
+    {
+        synchronized (slowQueries)
+        {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    @Override
+    public long getTotalExecutions()
+    {
+        long total = 0;
+        for (OperationMetrics metrics : operations.values())
+        {
+            total += metrics.latency.getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors()
+    {
+        long total = 0;
+        for (OperationMetrics metrics : operations.values())
+        {
+            total += metrics.errors.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis()
+    {
+        return slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis)
+    {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void reset()
+    {
+        operations.clear();
+        synchronized (slowQueries)
+        {
+            slowQueries.clear();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder report = new StringBuilder(String.format(
+                "%d executions, %d errors, slow query threshold = %d ms",
+                getTotalExecutions(), getTotalErrors(), slowQueryThresholdMillis));
+        for (OperationSnapshot snapshot : getOperations())
+        {
+            report.append(System.lineSeparator()).append(snapshot);
+        }
+        return report.toString();
+    }
+
+    private OperationMetrics metricsFor(String sql)
+    {
+        OperationMetrics metrics = operations.get(sql);
+        if (metrics != null)
+        {
+            return metrics;
+        }
+        if (operations.size() >= MAX_TRACKED_STATEMENTS)
+        {
+            return operations.computeIfAbsent(OTHER_STATEMENTS, key -> new OperationMetrics());
+        }
+        return operations.computeIfAbsent(sql, key -> new OperationMetrics());
+    }
+
+    private void record(String sql, long elapsedNanos, long rows, boolean failed, Statement statement)
+    {
+        OperationMetrics metrics = metricsFor(sql);
+        metrics.latency.recordNanos(elapsedNanos);
+        metrics.rows.add(rows);
+        if (failed)
+        {
+            metrics.errors.increment();
+        }
+
+        long thresholdMillis = slowQueryThresholdMillis;
+        if (thresholdMillis >= 0 && elapsedNanos > thresholdMillis * 1_000_000)
+        {
+            logSlowQuery(sql, elapsedNanos, rows, metrics, statement);
+        }
+    }
+
+    private void logSlowQuery(String sql, long elapsedNanos, long rows, OperationMetrics metrics, Statement statement)
+    {
+        String queryPlan = metrics.queryPlan;
+        boolean firstTimeSlow = queryPlan == null;
+        if (firstTimeSlow)
+        {
+            queryPlan = explainQueryPlan(sql, statement);
+            metrics.queryPlan = queryPlan;
+        }
+
+        SlowQuery slowQuery = new SlowQuery(normalize(sql), elapsedNanos / 1_000_000.0, rows, queryPlan, System.currentTimeMillis());
+        synchronized (slowQueries)
+        {
+            slowQueries.addFirst(slowQuery);
+            if (slowQueries.size() > MAX_SLOW_QUERIES_KEPT)
+            {
+                slowQueries.removeLast();
+            }
+        }
+
+        System.err.printf("!!! SLOW QUERY: %.1f ms, %d rows: %s%n", slowQuery.getMillis(), rows, slowQuery.getSql());
+        if (firstTimeSlow)
+        {
+            System.err.println(queryPlan);
+        }
+    }
+
+    /**
+     * Runs {@code EXPLAIN QUERY PLAN} on the connection of the statement, with any parameters left unbound
+     */
+    private static String explainQueryPlan(String sql, Statement statement)
+    {
+        try
+        (
+            Statement explainStatement = statement.getConnection().createStatement();
+            ResultSet resultSet = explainStatement.executeQuery("EXPLAIN QUERY PLAN " + sql)
+        )
+        {
+            StringBuilder plan = new StringBuilder("QUERY PLAN");
+            while (resultSet.next())
+            {
+                plan.append(System.lineSeparator()).append("  ").append(resultSet.getString("detail"));
+            }
+            return plan.toString();
+        }
+        catch (SQLException sqlException)
+        {
+            return "QUERY PLAN unavailable: " + sqlException.getMessage();
+        }
+    }
+
+    private static String normalize(String sql)
+    {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    private static long sum(int[] updateCounts)
+    {
+        long total = 0;
+        for (int updateCount : updateCounts)
+        {
+            // SUCCESS_NO_INFO and EXECUTE_FAILED are negative
+            total += Math.max(0, updateCount);
+        }
+        return total;
+    }
+
+    private static long sum(long[] updateCounts)
+    {
+        long total = 0;
+        for (long updateCount : updateCounts)
+        {
+            total += Math.max(0, updateCount);
+        }
+        return total;
+    }
+
+    private static class OperationMetrics
+    {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile String queryPlan;
+
+        private OperationSnapshot snapshot(String sql)
+        {
+            return new OperationSnapshot(normalize(sql), latency.getCount(), errors.sum(), rows.sum(),
+                    latency.getMeanMillis(), latency.getPercentileMillis(50), latency.getPercentileMillis(90),
+                    latency.getPercentileMillis(99), latency.getMaxMillis());
+        }
+    }
+
+    /**
+     * Times the executions of one statement; a query is finished when its result set is exhausted or closed
+     */
+    private class StatementHandler implements InvocationHandler
+    {
+        private final Statement statement;
+        private final String preparedSql;
+        private String runningSql;
+        private long runningSinceNanos;
+        private long rowsRead;
+
+        private StatementHandler(Statement statement, String preparedSql)
+        {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            if (!name.startsWith("execute"))
+            {
+                if (name.equals("close") || name.equals("clearParameters"))
+                {
+                    finishQuery();
+                }
+                if (name.equals("getResultSet"))
+                {
+                    return wrap((ResultSet) invokeOnStatement(method, args));
+                }
+                return invokeOnStatement(method, args);
+            }
+
+            // a new execution implicitly closes the result set of the previous one
+            finishQuery();
+            String sql = preparedSql != null ? preparedSql : args != null && args.length > 0 && args[0] instanceof String
+                    ? (String) args[0] : "(unknown statement)";
+            long startNanos = System.nanoTime();
+            Object result;
+            try
+            {
+                result = invokeOnStatement(method, args);
+            }
+            catch (SQLException sqlException)
+            {
+                record(sql, System.nanoTime() - startNanos, 0, true, statement);
+                throw sqlException;
+            }
+
+            if (result instanceof ResultSet || (result instanceof Boolean && (Boolean) result))
+            {
+                // the rows are produced while they are read, so the query is recorded once the result set is done
+                runningSql = sql;
+                runningSinceNanos = startNanos;
+                rowsRead = 0;
+                return result instanceof ResultSet ? wrap((ResultSet) result) : result;
+            }
+
+            long rows = result instanceof int[] ? sum((int[]) result)
+                    : result instanceof long[] ? sum((long[]) result)
+                    : result instanceof Number ? ((Number) result).longValue()
+                    : statement.getUpdateCount();
+            record(sql, System.nanoTime() - startNanos, Math.max(0, rows), false, statement);
+            return result;
+        }
+
+        private Object invokeOnStatement(Method method, Object[] args) throws Throwable
+        {
+            try
+            {
+                return method.invoke(statement, args);
+            }
+            catch (InvocationTargetException invocationTargetException)
+            {
+                throw invocationTargetException.getCause();
+            }
+        }
+
+        private ResultSet wrap(ResultSet resultSet)
+        {
+            if (resultSet == null)
+            {
+                return null;
+            }
+            return (ResultSet) Proxy.newProxyInstance(
+                    QueryMetrics.class.getClassLoader(),
+                    new java.lang.Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        Object result;
+                        try
+                        {
+                            result = method.invoke(resultSet, args);
+                        }
+                        catch (InvocationTargetException invocationTargetException)
+                        {
+                            throw invocationTargetException.getCause();
+                        }
+                        String name = method.getName();
+                        if (name.equals("next"))
+                        {
+                            if ((Boolean) result)
+                            {
+                                rowsRead++;
+                            }
+                            else
+                            {
+                                finishQuery();
+                            }
+                        }
+                        else if (name.equals("close"))
+                        {
+                            finishQuery();
+                        }
+                        return result;
+                    }
+            );
+        }
+
+        private void finishQuery()
+        {
+            if (runningSql != null)
+            {
+                String sql = runningSql;
+                runningSql = null;
+                record(sql, System.nanoTime() - runningSinceNanos, rowsRead, false, statement);
+            }
+        }
+    }
+
+    /**
+     * The metrics of one SQL statement at the time {@link #getOperations()} was called
+     */
+    public static class OperationSnapshot
+    {
+        private final String sql;
+        private final long executions;
+        private final long errors;
+        private final long rows;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        public OperationSnapshot(String sql, long executions, long errors, long rows, double meanMillis,
+                                 double p50Millis, double p90Millis, double p99Millis, double maxMillis)
+        {
+            this.sql = sql;
+            this.executions = executions;
+            this.errors = errors;
+            this.rows = rows;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public String getSql()
+        {
+            return sql;
+        }
+
+        public long getExecutions()
+        {
+            return executions;
+        }
+
+        public long getErrors()
+        {
+            return errors;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public double getMeanMillis()
+        {
+            return meanMillis;
+        }
+
+        public double getP50Millis()
+        {
+            return p50Millis;
+        }
+
+        public double getP90Millis()
+        {
+            return p90Millis;
+        }
+
+        public double getP99Millis()
+        {
+            return p99Millis;
+        }
+
+        public double getMaxMillis()
+        {
+            return maxMillis;
+        }
+
+        public double getTotalMillis()
+        {
+            return meanMillis * executions;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%8d x  mean %8.3f  p50 %8.3f  p90 %8.3f  p99 %8.3f  max %9.3f ms  %9d rows  %4d errors  %s",
+                    executions, meanMillis, p50Millis, p90Millis, p99Millis, maxMillis, rows, errors,
+                    sql.length() > 120 ? sql.substring(0, 117) + "..." : sql);
+        }
+    }
+
+    /**
+     * One execution that took longer than the slow-query threshold
+     */
+    public static class SlowQuery
+    {
+        private final String sql;
+        private final double millis;
+        private final long rows;
+        private final String queryPlan;
+        private final long timestampMillis;
+
+        public SlowQuery(String sql, double millis, long rows, String queryPlan, long timestampMillis)
+        {
+            this.sql = sql;
+            this.millis = millis;
+            this.rows = rows;
+            this.queryPlan = queryPlan;
+            this.timestampMillis = timestampMillis;
+        }
+
+        public String getSql()
+        {
+            return sql;
+        }
+
+        public double getMillis()
+        {
+            return millis;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public String getQueryPlan()
+        {
+            return queryPlan;
+        }
+
+        public long getTimestampMillis()
+        {
+            return timestampMillis;
+        }
+    }
+}
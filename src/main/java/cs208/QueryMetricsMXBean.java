@@ -0,0 +1,24 @@
+package cs208;
+
+import java.util.List;
+
+/**
+ * The JMX view of {@link QueryMetrics}, registered by {@link Database} as {@code cs208:type=QueryMetrics,database=<file>}
+ * so it can be read with JConsole or VisualVM while the application runs
+ */
+public interface QueryMetricsMXBean
+{
+    List<QueryMetrics.OperationSnapshot> getOperations();
+
+    List<QueryMetrics.SlowQuery> getSlowQueries();
+
+    long getTotalExecutions();
+
+    long getTotalErrors();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long slowQueryThresholdMillis);
+
+    void reset();
+}
@@ -0,0 +1,146 @@
+package cs208;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Writes the rows of a ResultSet to a Writer as CSV or JSON Lines while they are being read,
+ * so no row is kept in memory after it has been written.
+ * <p>
+ * The writer is expected to be buffered (e.g. a {@link java.io.BufferedWriter}), since the values are
+ * written a few characters at a time.
+ */
+public class ResultSetExporter
+{
+    private final ExportFormat format;
+
+    public ResultSetExporter(ExportFormat format)
+    {
+        this.format = format;
+    }
+
+    /**
+     * Writes every remaining row of the result set, preceded by a header row for CSV
+     *
+     * @return the number of rows written
+     */
+    public long export(ResultSet resultSet, Writer writer) throws SQLException, IOException
+    {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int numberOfColumns = metaData.getColumnCount();
+        String[] columnNames = new String[numberOfColumns];
+        for (int i = 0; i < numberOfColumns; i++)
+        {
+            columnNames[i] = metaData.getColumnLabel(i + 1);
+        }
+
+        if (format == ExportFormat.CSV)
+        {
+            for (int i = 0; i < numberOfColumns; i++)
+            {
+                if (i > 0)
+                {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, columnNames[i]);
+            }
+            writer.write('\n');
+        }
+
+        long numberOfRows = 0;
+        while (resultSet.next())
+        {
+            if (format == ExportFormat.CSV)
+            {
+                writeCsvRow(resultSet, columnNames, writer);
+            }
+            else
+            {
+                writeJsonRow(resultSet, columnNames, writer);
+            }
+            numberOfRows++;
+        }
+        return numberOfRows;
+    }
+
+    private static void writeCsvRow(ResultSet resultSet, String[] columnNames, Writer writer) throws SQLException, IOException
+    {
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            if (i > 0)
+            {
+                writer.write(',');
+            }
+            Object value = resultSet.getObject(i + 1);
+            if (value != null)
+            {
+                writeCsvValue(writer, value.toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void writeJsonRow(ResultSet resultSet, String[] columnNames, Writer writer) throws SQLException, IOException
+    {
+        writer.write('{');
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            if (i > 0)
+            {
+                writer.write(',');
+            }
+            Utils.writeJsonString(writer, columnNames[i]);
+            writer.write(':');
+
+            Object value = resultSet.getObject(i + 1);
+            if (value == null)
+            {
+                writer.write("null");
+            }
+            else if (value instanceof Number)
+            {
+                writer.write(value.toString());
+            }
+            else
+            {
+                Utils.writeJsonString(writer, value.toString());
+            }
+        }
+        writer.write("}\n");
+    }
+
+    /**
+     * Writes the value as is, or between double quotes (with embedded double quotes doubled)
+     * if it contains a comma, a double quote, a line break or leading/trailing spaces
+     */
+    private static void writeCsvValue(Writer writer, String value) throws IOException
+    {
+        boolean needsQuotes = !value.isEmpty() && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ');
+        for (int i = 0; i < value.length() && !needsQuotes; i++)
+        {
+            char character = value.charAt(i);
+            needsQuotes = character == ',' || character == '"' || character == '\n' || character == '\r';
+        }
+
+        if (!needsQuotes)
+        {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char character = value.charAt(i);
+            if (character == '"')
+            {
+                writer.write('"');
+            }
+            writer.write(character);
+        }
+        writer.write('"');
+    }
+}
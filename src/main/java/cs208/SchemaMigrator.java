@@ -0,0 +1,195 @@
+package cs208;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date by applying, in order, the migration scripts listed in
+ * {@code src/main/resources/sql/migrations/index.txt} that are not yet recorded in the {@code schema_version} table.
+ * <p>
+ * Script names follow the {@code V<version>__<description>.sql} convention, e.g. {@code V002__add_lookup_indexes.sql}.
+ * Each script runs in its own transaction together with the insert of its {@code schema_version} row,
+ * so a failed script leaves the database at the previous version.
+ */
+public class SchemaMigrator
+{
+    private static final String MIGRATIONS_DIRECTORY = "/sql/migrations/";
+
+    private final Database database;
+
+    public SchemaMigrator(Database database)
+    {
+        this.database = database;
+    }
+
+    /**
+     * Applies every pending migration
+     *
+     * @return the number of migrations that were applied
+     * @throws SQLException if a migration fails, in which case the remaining ones are not applied
+     */
+    public int applyPendingMigrations() throws SQLException
+    {
+        List<String> scriptNames = readMigrationIndex();
+
+        try (Connection connection = database.getDatabaseConnection())
+        {
+            try (Statement statement = connection.createStatement())
+            {
+                statement.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS schema_version\n" +
+                        "(\n" +
+                        "    version     INTEGER PRIMARY KEY,\n" +
+                        "    description VARCHAR(100) NOT NULL,\n" +
+                        "    applied_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP\n" +
+                        ");");
+            }
+
+            int currentVersion = getCurrentVersion(connection);
+            int numberOfMigrationsApplied = 0;
+            for (String scriptName : scriptNames)
+            {
+                int version = parseVersion(scriptName);
+                if (version <= currentVersion)
+                {
+                    continue;
+                }
+
+                applyMigration(connection, version, parseDescription(scriptName), readScript(scriptName));
+                System.out.println("SUCCESSFULLY applied schema migration " + scriptName);
+                currentVersion = version;
+                numberOfMigrationsApplied++;
+            }
+            return numberOfMigrationsApplied;
+        }
+    }
+
+    private int getCurrentVersion(Connection connection) throws SQLException
+    {
+        try
+        (
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version;");
+        )
+        {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void applyMigration(Connection connection, int version, String description, String script) throws SQLException
+    {
+        connection.setAutoCommit(false);
+        try
+        (
+            Statement statement = connection.createStatement();
+            PreparedStatement insertVersion = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description)\n" +
+                    "VALUES (?, ?);");
+        )
+        {
+            // a plain Statement runs every statement of a multi-statement script, not just the first one
+            statement.executeUpdate(script);
+
+            insertVersion.setInt(1, version);
+            insertVersion.setString(2, description);
+            insertVersion.executeUpdate();
+
+            connection.commit();
+        }
+        catch (SQLException sqlException)
+        {
+            connection.rollback();
+            throw new SQLException("failed to apply schema migration V" + version + " (" + description + "): " + sqlException.getMessage(), sqlException);
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static List<String> readMigrationIndex() throws SQLException
+    {
+        List<String> scriptNames = new ArrayList<>();
+        int previousVersion = 0;
+        for (String line : readResource("index.txt").split("\n"))
+        {
+            String scriptName = line.trim();
+            if (scriptName.isEmpty() || scriptName.startsWith("#"))
+            {
+                continue;
+            }
+
+            int version = parseVersion(scriptName);
+            if (version <= previousVersion)
+            {
+                throw new SQLException("schema migrations must be listed in increasing version order, found " + scriptName + " after V" + previousVersion);
+            }
+            previousVersion = version;
+            scriptNames.add(scriptName);
+        }
+        return scriptNames;
+    }
+
+    private static String readScript(String scriptName) throws SQLException
+    {
+        return readResource(scriptName);
+    }
+
+    private static String readResource(String fileName) throws SQLException
+    {
+        try (InputStream inputStream = SchemaMigrator.class.getResourceAsStream(MIGRATIONS_DIRECTORY + fileName))
+        {
+            if (inputStream == null)
+            {
+                throw new SQLException("missing schema migration resource " + MIGRATIONS_DIRECTORY + fileName);
+            }
+
+            StringBuilder content = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                content.append(line).append('\n');
+            }
+            return content.toString();
+        }
+        catch (IOException ioException)
+        {
+            throw new SQLException("failed to read schema migration resource " + MIGRATIONS_DIRECTORY + fileName, ioException);
+        }
+    }
+
+    private static int parseVersion(String scriptName) throws SQLException
+    {
+        int separatorIndex = scriptName.indexOf("__");
+        if (!scriptName.startsWith("V") || separatorIndex < 2 || !scriptName.endsWith(".sql"))
+        {
+            throw new SQLException("schema migration '" + scriptName + "' does not follow the V<version>__<description>.sql naming convention");
+        }
+
+        try
+        {
+            return Integer.parseInt(scriptName.substring(1, separatorIndex));
+        }
+        catch (NumberFormatException numberFormatException)
+        {
+            throw new SQLException("schema migration '" + scriptName + "' does not start with a numeric version");
+        }
+    }
+
+    private static String parseDescription(String scriptName)
+    {
+        return scriptName.substring(scriptName.indexOf("__") + 2, scriptName.length() - ".sql".length()).replace('_', ' ');
+    }
+}
@@ -0,0 +1,45 @@
+package cs208;
+
+/**
+ * The outcome of {@link Database#deleteStudents(StudentSelection)}:
+ * how many students and how many of their enrollments were deleted,
+ * and how many waitlisted students were promoted into the freed seats
+ */
+public class StudentDeletionResult
+{
+    private final int numberOfStudentsDeleted;
+    private final int numberOfEnrollmentsDeleted;
+    private final int numberOfStudentsPromoted;
+
+    public StudentDeletionResult(int numberOfStudentsDeleted, int numberOfEnrollmentsDeleted, int numberOfStudentsPromoted)
+    {
+        this.numberOfStudentsDeleted = numberOfStudentsDeleted;
+        this.numberOfEnrollmentsDeleted = numberOfEnrollmentsDeleted;
+        this.numberOfStudentsPromoted = numberOfStudentsPromoted;
+    }
+
+    public int getNumberOfStudentsDeleted()
+    {
+        return numberOfStudentsDeleted;
+    }
+
+    public int getNumberOfEnrollmentsDeleted()
+    {
+        return numberOfEnrollmentsDeleted;
+    }
+
+    public int getNumberOfStudentsPromoted()
+    {
+        return numberOfStudentsPromoted;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StudentDeletionResult{" +
+                "numberOfStudentsDeleted=" + numberOfStudentsDeleted +
+                ", numberOfEnrollmentsDeleted=" + numberOfEnrollmentsDeleted +
+                ", numberOfStudentsPromoted=" + numberOfStudentsPromoted +
+                '}';
+    }
+}
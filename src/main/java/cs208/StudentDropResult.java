@@ -0,0 +1,45 @@
+package cs208;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link Database#dropStudentFromClass(int, int)}:
+ * whether the student was dropped and which waitlisted students got the freed seat
+ */
+public class StudentDropResult
+{
+    private final boolean dropped;
+    private final List<Integer> promotedStudentIds;
+
+    public StudentDropResult(boolean dropped, List<Integer> promotedStudentIds)
+    {
+        this.dropped = dropped;
+        this.promotedStudentIds = promotedStudentIds;
+    }
+
+    /**
+     * @return true if the student was enrolled in the class and has been dropped
+     */
+    public boolean isDropped()
+    {
+        return dropped;
+    }
+
+    /**
+     * @return the ids of the students moved from the waitlist into the class, in promotion order
+     */
+    public List<Integer> getPromotedStudentIds()
+    {
+        return Collections.unmodifiableList(promotedStudentIds);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StudentDropResult{" +
+                "dropped=" + dropped +
+                ", promotedStudentIds=" + promotedStudentIds +
+                '}';
+    }
+}
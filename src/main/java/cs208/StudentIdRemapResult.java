@@ -0,0 +1,70 @@
+package cs208;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link Database#remapStudentIds(java.util.Map)}: either how many students and enrollments were
+ * rewritten, or the old ids that do not exist and the new ids that are already taken, in which case nothing was changed
+ */
+public class StudentIdRemapResult
+{
+    private final int numberOfStudentsRemapped;
+    private final int numberOfEnrollmentsRemapped;
+    private final List<Integer> missingStudentIds;
+    private final List<Integer> takenStudentIds;
+
+    public StudentIdRemapResult(int numberOfStudentsRemapped, int numberOfEnrollmentsRemapped,
+                                List<Integer> missingStudentIds, List<Integer> takenStudentIds)
+    {
+        this.numberOfStudentsRemapped = numberOfStudentsRemapped;
+        this.numberOfEnrollmentsRemapped = numberOfEnrollmentsRemapped;
+        this.missingStudentIds = missingStudentIds;
+        this.takenStudentIds = takenStudentIds;
+    }
+
+    /**
+     * @return true if the ids were rewritten, false if the mapping was rejected
+     */
+    public boolean isApplied()
+    {
+        return missingStudentIds.isEmpty() && takenStudentIds.isEmpty();
+    }
+
+    public int getNumberOfStudentsRemapped()
+    {
+        return numberOfStudentsRemapped;
+    }
+
+    public int getNumberOfEnrollmentsRemapped()
+    {
+        return numberOfEnrollmentsRemapped;
+    }
+
+    /**
+     * @return old ids of the mapping that are not the id of any student
+     */
+    public List<Integer> getMissingStudentIds()
+    {
+        return Collections.unmodifiableList(missingStudentIds);
+    }
+
+    /**
+     * @return new ids of the mapping that already belong to a student who is not remapped
+     */
+    public List<Integer> getTakenStudentIds()
+    {
+        return Collections.unmodifiableList(takenStudentIds);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StudentIdRemapResult{" +
+                "numberOfStudentsRemapped=" + numberOfStudentsRemapped +
+                ", numberOfEnrollmentsRemapped=" + numberOfEnrollmentsRemapped +
+                ", missingStudentIds=" + missingStudentIds +
+                ", takenStudentIds=" + takenStudentIds +
+                '}';
+    }
+}
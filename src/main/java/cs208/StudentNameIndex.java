@@ -0,0 +1,952 @@
+package cs208;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of the first and last names of the students, finding students from a partial or mistyped name.
+ * <p>
+ * Each of the two names goes into a trie of its lowercased characters, the ids of the students with a name held
+ * at the node where it ends, and every node counting the students below it. A query word matches a name exactly,
+ * as a prefix (the subtree under the word), or within a small edit distance, found by walking the trie with one
+ * edit distance row per level and leaving every branch whose row is already over the distance; the walks only run
+ * when the exact and prefix matches are not enough.
+ * <p>
+ * Matches are collected cheapest first and the search stops as soon as it has enough of them, so a one-letter prefix
+ * costs no more than a full name. For a first and a last name, each cost level walks the students of the side that
+ * has fewer of them and checks the other name of each student through the trie node it is stored under, reading
+ * that name back from the node rather than walking the other trie when there are only a few students to check.
+ * <p>
+ * {@link Database} loads the index on its writer thread and applies every committed insert, rename, remap and delete
+ * of a student after the commit, the same way as for the {@link EnrollmentGraph}.
+ */
+public class StudentNameIndex
+{
+    // the cost of each way a query word can match a name, the cheapest first; each edit from the word costs one more
+    private static final int EXACT_MATCH = 0;
+    private static final int PREFIX_MATCH = 1;
+    private static final int TWO_EDITS_MATCH = 3;
+    // checking this many names one by one costs about as much as walking a large trie for one and for two edits
+    private static final int[] MAX_STUDENTS_CHECKED_BY_NAME = {0, 256, 2048};
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NameTrie firstNames = new NameTrie();
+    private final NameTrie lastNames = new NameTrie();
+    // the trie nodes of the first and the last name of each student, see nodesOf()
+    private final IntLongTable namesByStudent = new IntLongTable();
+
+    private interface StudentVisitor
+    {
+        /**
+         * @return false to stop the walk
+         */
+        boolean visit(int studentId);
+    }
+
+    static StudentNameIndex load(Connection connection) throws SQLException
+    {
+        StudentNameIndex index = new StudentNameIndex();
+        try
+        (
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT id, first_name, last_name FROM students;");
+        )
+        {
+            while (resultSet.next())
+            {
+                index.addUnlocked(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds the students whose name matches the query, case-insensitively.
+     * Exact matches come first, then names starting with the query, then names within one edit
+     * (for words of 3 letters or more) and two edits (for words of 6 letters or more) of it, an edit being a letter
+     * added, removed, changed or swapped with the next one, and at most two edits over a first and a last name;
+     * students matching equally well come in alphabetical order of the name that is walked.
+     *
+     * @param query a first or last name, or a first name and a last name separated by whitespace
+     * @param limit the most ids to return
+     * @return the ids of the best matching students, best first
+     */
+    public int[] search(String query, int limit)
+    {
+        String[] words = normalize(query).split(" ", 2);
+        if (words[0].isEmpty() || limit < 1)
+        {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        try
+        {
+            Set<Integer> studentIds = new LinkedHashSet<>();
+            StudentVisitor collector = studentId -> {
+                studentIds.add(studentId);
+                return studentIds.size() < limit;
+            };
+
+            WordMatch firstNameMatch = new WordMatch(firstNames, words[0]);
+            if (words.length == 1)
+            {
+                WordMatch lastNameMatch = new WordMatch(lastNames, words[0]);
+                for (int cost = EXACT_MATCH; cost <= TWO_EDITS_MATCH && studentIds.size() < limit; cost++)
+                {
+                    if (firstNameMatch.forEachStudent(cost, collector))
+                    {
+                        lastNameMatch.forEachStudent(cost, collector);
+                    }
+                }
+            }
+            else
+            {
+                WordMatch lastNameMatch = new WordMatch(lastNames, words[1]);
+                for (int cost = EXACT_MATCH; cost <= 2 * TWO_EDITS_MATCH && studentIds.size() < limit; cost++)
+                {
+                    for (int firstNameCost = Math.max(EXACT_MATCH, cost - TWO_EDITS_MATCH);
+                         firstNameCost <= Math.min(cost, TWO_EDITS_MATCH) && studentIds.size() < limit; firstNameCost++)
+                    {
+                        int lastNameCost = cost - firstNameCost;
+                        // two edits in all, a name with a typo in each word is still found, one with three is noise
+                        if (edits(firstNameCost) + edits(lastNameCost) <= 2)
+                        {
+                            forEachStudent(firstNameMatch, firstNameCost, lastNameMatch, lastNameCost, collector);
+                        }
+                    }
+                }
+            }
+
+            int[] result = new int[studentIds.size()];
+            int i = 0;
+            for (int studentId : studentIds)
+            {
+                result[i++] = studentId;
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the students whose first name matches at firstNameCost and last name at lastNameCost,
+     * walking the side with fewer students and checking the other name of each.
+     * Counting the students within an edit distance walks the trie, so a side with only a few students
+     * is walked without counting the other, whose names are then checked one by one.
+     */
+    private void forEachStudent(WordMatch firstNameMatch, int firstNameCost, WordMatch lastNameMatch, int lastNameCost,
+                                StudentVisitor visitor)
+    {
+        // -1 until counted; last names are usually fewer, so their trie is the cheaper one to walk first
+        int numberOfFirstNameStudents = firstNameMatch.isCounted(firstNameCost) ? firstNameMatch.countStudents(firstNameCost) : -1;
+        int numberOfLastNameStudents = lastNameMatch.isCounted(lastNameCost) ? lastNameMatch.countStudents(lastNameCost) : -1;
+        if (numberOfLastNameStudents < 0 && (numberOfFirstNameStudents < 0 || numberOfFirstNameStudents > MAX_STUDENTS_CHECKED_BY_NAME[edits(lastNameCost)]))
+        {
+            numberOfLastNameStudents = lastNameMatch.countStudents(lastNameCost);
+        }
+        if (numberOfFirstNameStudents < 0 && numberOfLastNameStudents > MAX_STUDENTS_CHECKED_BY_NAME[edits(firstNameCost)])
+        {
+            numberOfFirstNameStudents = firstNameMatch.countStudents(firstNameCost);
+        }
+        if (numberOfFirstNameStudents == 0 || numberOfLastNameStudents == 0)
+        {
+            return;
+        }
+
+        if (numberOfFirstNameStudents >= 0 && (numberOfLastNameStudents < 0 || numberOfFirstNameStudents <= numberOfLastNameStudents))
+        {
+            firstNameMatch.forEachStudent(firstNameCost, studentId ->
+                    !lastNameMatch.matches(lastNameNode(studentId), lastNameCost) || visitor.visit(studentId));
+        }
+        else
+        {
+            lastNameMatch.forEachStudent(lastNameCost, studentId ->
+                    !firstNameMatch.matches(firstNameNode(studentId), firstNameCost) || visitor.visit(studentId));
+        }
+    }
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return namesByStudent.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(int studentId, String firstName, String lastName)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            removeUnlocked(studentId);
+            addUnlocked(studentId, firstName, lastName);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the student to their new names, a null name staying as it is
+     */
+    void rename(int studentId, String firstName, String lastName)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            long nodes = namesByStudent.get(studentId);
+            if (nodes == IntLongTable.MISSING)
+            {
+                return;
+            }
+            int oldFirstNameNode = (int) (nodes >>> 32);
+            int oldLastNameNode = (int) nodes;
+            int firstNameNode = firstName == null ? oldFirstNameNode : firstNames.add(normalize(firstName), studentId);
+            int lastNameNode = lastName == null ? oldLastNameNode : lastNames.add(normalize(lastName), studentId);
+            if (firstNameNode != oldFirstNameNode)
+            {
+                firstNames.remove(oldFirstNameNode, studentId);
+            }
+            if (lastNameNode != oldLastNameNode)
+            {
+                lastNames.remove(oldLastNameNode, studentId);
+            }
+            namesByStudent.put(studentId, nodesOf(firstNameNode, lastNameNode));
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the students, e.g. after they were deleted
+     */
+    void removeStudents(int[] studentIds)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            for (int studentId : studentIds)
+            {
+                removeUnlocked(studentId);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves each old student id to its new id, see {@link Database#remapStudentIds(Map)}
+     */
+    void remapStudents(Map<Integer, Integer> newIdsByOldId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // take every moved student out first, so a chain or a cycle of ids never overwrites a student not yet moved
+            IntLongTable movedStudents = new IntLongTable();
+            for (Map.Entry<Integer, Integer> entry : newIdsByOldId.entrySet())
+            {
+                long nodes = namesByStudent.get(entry.getKey());
+                if (nodes != IntLongTable.MISSING)
+                {
+                    removeUnlocked(entry.getKey());
+                    movedStudents.put(entry.getValue(), nodes);
+                }
+            }
+            movedStudents.forEach((studentId, nodes) -> {
+                firstNames.addAt((int) (nodes >>> 32), studentId);
+                lastNames.addAt((int) nodes, studentId);
+                namesByStudent.put(studentId, nodes);
+            });
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int edits(int cost)
+    {
+        return Math.max(0, cost - PREFIX_MATCH);
+    }
+
+    private void addUnlocked(int studentId, String firstName, String lastName)
+    {
+        int firstNameNode = firstNames.add(normalize(firstName), studentId);
+        int lastNameNode = lastNames.add(normalize(lastName), studentId);
+        namesByStudent.put(studentId, nodesOf(firstNameNode, lastNameNode));
+    }
+
+    private void removeUnlocked(int studentId)
+    {
+        long nodes = namesByStudent.remove(studentId);
+        if (nodes != IntLongTable.MISSING)
+        {
+            firstNames.remove((int) (nodes >>> 32), studentId);
+            lastNames.remove((int) nodes, studentId);
+        }
+    }
+
+    private int firstNameNode(int studentId)
+    {
+        return (int) (namesByStudent.get(studentId) >>> 32);
+    }
+
+    private int lastNameNode(int studentId)
+    {
+        return (int) namesByStudent.get(studentId);
+    }
+
+    private static long nodesOf(int firstNameNode, int lastNameNode)
+    {
+        return (long) firstNameNode << 32 | lastNameNode;
+    }
+
+    private static String normalize(String name)
+    {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return an estimate of the memory held by the index, in bytes
+     */
+    public long sizeInBytes()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return firstNames.sizeInBytes() + lastNames.sizeInBytes() + namesByStudent.sizeInBytes();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return String.format("Student name index: %d students, %d distinct first names, %d distinct last names, about %.1f MB",
+                    namesByStudent.size(), firstNames.countNames(), lastNames.countNames(), sizeInBytes() / 1_000_000.0);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The names one query word matches in a trie, by cost: the node of the word itself, the subtree under it,
+     * and the nodes at one and at two edits from the word outside that subtree, each found the first time it is needed
+     */
+    private static class WordMatch
+    {
+        private final NameTrie trie;
+        private final String word;
+        private final int exactNode;
+        // by edit distance: the nodes at that distance in alphabetical order of their names, and the same nodes sorted
+        private final int[][] fuzzyNodes = new int[3][];
+        private final int[][] sortedFuzzyNodes = new int[3][];
+        // the edit distance rows of distanceTo(), reused across the names checked by one search
+        private int[][] rows;
+
+        private WordMatch(NameTrie trie, String word)
+        {
+            this.trie = trie;
+            this.word = word;
+            exactNode = trie.find(word);
+        }
+
+        private boolean matches(int node, int cost)
+        {
+            switch (cost)
+            {
+                case EXACT_MATCH:
+                    return exactNode != NameTrie.NO_NODE && node == exactNode;
+                case PREFIX_MATCH:
+                    return exactNode != NameTrie.NO_NODE && trie.isBelow(node, exactNode);
+                default:
+                    int distance = edits(cost);
+                    if (sortedFuzzyNodes[distance] != null)
+                    {
+                        return Arrays.binarySearch(sortedFuzzyNodes[distance], node) >= 0;
+                    }
+                    return distance <= maxDistance()
+                            && (exactNode == NameTrie.NO_NODE || node != exactNode && !trie.isBelow(node, exactNode))
+                            && distanceTo(node) == distance;
+            }
+        }
+
+        /**
+         * @return true if the students at this cost can be counted without walking the trie
+         */
+        private boolean isCounted(int cost)
+        {
+            return cost <= PREFIX_MATCH || fuzzyNodes[edits(cost)] != null;
+        }
+
+        private int countStudents(int cost)
+        {
+            switch (cost)
+            {
+                case EXACT_MATCH:
+                    return exactNode == NameTrie.NO_NODE ? 0 : trie.countStudentsAt(exactNode);
+                case PREFIX_MATCH:
+                    return exactNode == NameTrie.NO_NODE ? 0 : trie.countStudentsBelow(exactNode) - trie.countStudentsAt(exactNode);
+                default:
+                    int count = 0;
+                    for (int node : fuzzyNodes(cost))
+                    {
+                        count += trie.countStudentsAt(node);
+                    }
+                    return count;
+            }
+        }
+
+        /**
+         * @return false if the visitor stopped the walk
+         */
+        private boolean forEachStudent(int cost, StudentVisitor visitor)
+        {
+            switch (cost)
+            {
+                case EXACT_MATCH:
+                    return exactNode == NameTrie.NO_NODE || trie.forEachStudentAt(exactNode, visitor);
+                case PREFIX_MATCH:
+                    return exactNode == NameTrie.NO_NODE || trie.forEachStudentBelow(exactNode, visitor);
+                default:
+                    for (int node : fuzzyNodes(cost))
+                    {
+                        if (!trie.forEachStudentAt(node, visitor))
+                        {
+                            return false;
+                        }
+                    }
+                    return true;
+            }
+        }
+
+        private int[] fuzzyNodes(int cost)
+        {
+            int distance = edits(cost);
+            if (fuzzyNodes[distance] == null)
+            {
+                fuzzyNodes[distance] = distance > maxDistance() ? new int[0] : trie.findAtDistance(word, distance, exactNode);
+                sortedFuzzyNodes[distance] = fuzzyNodes[distance].clone();
+                Arrays.sort(sortedFuzzyNodes[distance]);
+            }
+            return fuzzyNodes[distance];
+        }
+
+        /**
+         * @return the edit distance between the word and the name ending at the node, as the walk computes it,
+         * or more than maxDistance() as soon as it is known to be over it
+         */
+        private int distanceTo(int node)
+        {
+            int maxDistance = maxDistance();
+            if (rows == null)
+            {
+                rows = new int[word.length() + maxDistance + 2][word.length() + 1];
+                for (int i = 0; i <= word.length(); i++)
+                {
+                    rows[0][i] = i;
+                }
+            }
+
+            // the distance between two names is the one between them read backwards, so the name is read
+            // from its last letter while climbing to the root, and most names are dropped after a few letters
+            int depth = 0;
+            char nextCharacter = 0;
+            for (int current = node; current != NameTrie.ROOT; current = trie.parent[current])
+            {
+                char character = trie.characters[current];
+                depth++;
+                int[] previousRow = rows[depth - 1];
+                int[] row = rows[depth];
+                row[0] = depth;
+                int rowMinimum = row[0];
+                for (int i = 1; i <= word.length(); i++)
+                {
+                    char wordCharacter = word.charAt(word.length() - i);
+                    int substitution = previousRow[i - 1] + (wordCharacter == character ? 0 : 1);
+                    row[i] = Math.min(substitution, Math.min(row[i - 1], previousRow[i]) + 1);
+                    if (i > 1 && depth > 1 && wordCharacter == nextCharacter && word.charAt(word.length() - i + 1) == character)
+                    {
+                        row[i] = Math.min(row[i], rows[depth - 2][i - 2] + 1);
+                    }
+                    rowMinimum = Math.min(rowMinimum, row[i]);
+                }
+                // the next rows can only be further off; this stops at the latest once the name is longer than the word plus maxDistance
+                if (rowMinimum > maxDistance)
+                {
+                    return maxDistance + 1;
+                }
+                nextCharacter = character;
+            }
+            return rows[depth][word.length()];
+        }
+
+        private int maxDistance()
+        {
+            // a typo is only guessed in words long enough for the guess to mean something
+            return word.length() < 3 ? 0 : word.length() < 6 ? 1 : 2;
+        }
+    }
+
+    /**
+     * A trie of names held in parallel arrays, one slot per node, the children of a node chained through
+     * nextSibling in alphabetical order; node 0 is the root and ends the empty name
+     */
+    private static class NameTrie
+    {
+        private static final int NO_NODE = -1;
+        private static final int ROOT = 0;
+        private static final int[] NO_IDS = new int[0];
+
+        private char[] characters = new char[1024];
+        private int[] parent = new int[1024];
+        private int[] firstChild = new int[1024];
+        private int[] nextSibling = new int[1024];
+        // the number of students whose name ends at the node or below it
+        private int[] studentsBelow = new int[1024];
+        // the sorted ids of the students whose name ends at the node, or null
+        private int[][] studentIds = new int[1024][];
+        private int numberOfNodes = 1;
+
+        private NameTrie()
+        {
+            firstChild[ROOT] = NO_NODE;
+            nextSibling[ROOT] = NO_NODE;
+            parent[ROOT] = NO_NODE;
+        }
+
+        /**
+         * @return the node where the name ends
+         */
+        private int add(String name, int studentId)
+        {
+            int node = ROOT;
+            for (int i = 0; i < name.length(); i++)
+            {
+                node = child(node, name.charAt(i), true);
+            }
+            addAt(node, studentId);
+            return node;
+        }
+
+        private void addAt(int node, int studentId)
+        {
+            int[] ids = studentIds[node] == null ? NO_IDS : studentIds[node];
+            int index = Arrays.binarySearch(ids, studentId);
+            if (index >= 0)
+            {
+                return;
+            }
+            index = -index - 1;
+            int[] grown = new int[ids.length + 1];
+            System.arraycopy(ids, 0, grown, 0, index);
+            grown[index] = studentId;
+            System.arraycopy(ids, index, grown, index + 1, ids.length - index);
+            studentIds[node] = grown;
+            for (int ancestor = node; ancestor != NO_NODE; ancestor = parent[ancestor])
+            {
+                studentsBelow[ancestor]++;
+            }
+        }
+
+        /**
+         * Takes the student off the node; the nodes stay, to be reused by the next name that passes by
+         */
+        private void remove(int node, int studentId)
+        {
+            int[] ids = studentIds[node];
+            int index = ids == null ? -1 : Arrays.binarySearch(ids, studentId);
+            if (index < 0)
+            {
+                return;
+            }
+            if (ids.length == 1)
+            {
+                studentIds[node] = null;
+            }
+            else
+            {
+                int[] shrunk = new int[ids.length - 1];
+                System.arraycopy(ids, 0, shrunk, 0, index);
+                System.arraycopy(ids, index + 1, shrunk, index, ids.length - index - 1);
+                studentIds[node] = shrunk;
+            }
+            for (int ancestor = node; ancestor != NO_NODE; ancestor = parent[ancestor])
+            {
+                studentsBelow[ancestor]--;
+            }
+        }
+
+        /**
+         * @return the nodes ending a name at exactly the edit distance from the word, in alphabetical order,
+         * leaving out the subtree of the word itself, whose names already match as a prefix
+         */
+        private int[] findAtDistance(String word, int distance, int exactNode)
+        {
+            // one edit distance row per trie level; no name longer than the word plus the distance can be within it
+            int[][] rows = new int[word.length() + distance + 1][word.length() + 1];
+            for (int i = 0; i <= word.length(); i++)
+            {
+                rows[0][i] = i;
+            }
+            int[][] found = {new int[16]};
+            int[] size = {0};
+            for (int child = firstChild[ROOT]; child != NO_NODE; child = nextSibling[child])
+            {
+                walkWithin(word, distance, exactNode, rows, child, 1, found, size);
+            }
+            return Arrays.copyOf(found[0], size[0]);
+        }
+
+        /**
+         * Walks the trie depth first, computing the distance between the word and the name of each node one row
+         * at a time, and skips every subtree whose row has no cell within the distance: the distance to any longer
+         * name can only be higher. Swapping two neighbouring letters counts as one edit, the most common typo.
+         */
+        private void walkWithin(String word, int distance, int exactNode, int[][] rows, int node, int depth,
+                                int[][] found, int[] size)
+        {
+            if (node == exactNode || studentsBelow[node] == 0)
+            {
+                return;
+            }
+            int[] previousRow = rows[depth - 1];
+            int[] row = rows[depth];
+            char character = characters[node];
+            char previousCharacter = depth > 1 ? characters[parent[node]] : 0;
+            row[0] = depth;
+            int rowMinimum = row[0];
+            for (int i = 1; i <= word.length(); i++)
+            {
+                int substitution = previousRow[i - 1] + (word.charAt(i - 1) == character ? 0 : 1);
+                row[i] = Math.min(substitution, Math.min(row[i - 1], previousRow[i]) + 1);
+                if (i > 1 && depth > 1 && word.charAt(i - 1) == previousCharacter && word.charAt(i - 2) == character)
+                {
+                    row[i] = Math.min(row[i], rows[depth - 2][i - 2] + 1);
+                }
+                rowMinimum = Math.min(rowMinimum, row[i]);
+            }
+
+            if (row[word.length()] == distance && studentIds[node] != null)
+            {
+                if (size[0] == found[0].length)
+                {
+                    found[0] = Arrays.copyOf(found[0], size[0] * 2);
+                }
+                found[0][size[0]++] = node;
+            }
+            if (rowMinimum <= distance && depth + 1 < rows.length)
+            {
+                for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child])
+                {
+                    walkWithin(word, distance, exactNode, rows, child, depth + 1, found, size);
+                }
+            }
+        }
+
+        private int countStudentsAt(int node)
+        {
+            return studentIds[node] == null ? 0 : studentIds[node].length;
+        }
+
+        private int countStudentsBelow(int node)
+        {
+            return studentsBelow[node];
+        }
+
+        private boolean forEachStudentAt(int node, StudentVisitor visitor)
+        {
+            if (studentIds[node] != null)
+            {
+                for (int studentId : studentIds[node])
+                {
+                    if (!visitor.visit(studentId))
+                    {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Visits the students of the subtree under the node, not counting the node itself, in alphabetical order
+         */
+        private boolean forEachStudentBelow(int node, StudentVisitor visitor)
+        {
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child])
+            {
+                if (studentsBelow[child] > 0 && (!forEachStudentAt(child, visitor) || !forEachStudentBelow(child, visitor)))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return true if the node is in the subtree under the ancestor, names being short enough to walk up
+         */
+        private boolean isBelow(int node, int ancestor)
+        {
+            for (int current = parent[node]; current != NO_NODE; current = parent[current])
+            {
+                if (current == ancestor)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the node where the name ends, or NO_NODE if no indexed name passes through it
+         */
+        private int find(String name)
+        {
+            int node = ROOT;
+            for (int i = 0; i < name.length() && node != NO_NODE; i++)
+            {
+                node = child(node, name.charAt(i), false);
+            }
+            return node;
+        }
+
+        private int child(int node, char character, boolean create)
+        {
+            int previous = NO_NODE;
+            int child = firstChild[node];
+            for (; child != NO_NODE && characters[child] < character; child = nextSibling[child])
+            {
+                previous = child;
+            }
+            if (child != NO_NODE && characters[child] == character)
+            {
+                return child;
+            }
+            if (!create)
+            {
+                return NO_NODE;
+            }
+
+            int newChild = newNode(node, character);
+            nextSibling[newChild] = child;
+            if (previous == NO_NODE)
+            {
+                firstChild[node] = newChild;
+            }
+            else
+            {
+                nextSibling[previous] = newChild;
+            }
+            return newChild;
+        }
+
+        private int newNode(int parentNode, char character)
+        {
+            if (numberOfNodes == characters.length)
+            {
+                int capacity = numberOfNodes * 2;
+                characters = Arrays.copyOf(characters, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                studentsBelow = Arrays.copyOf(studentsBelow, capacity);
+                studentIds = Arrays.copyOf(studentIds, capacity);
+            }
+            int node = numberOfNodes++;
+            characters[node] = character;
+            parent[node] = parentNode;
+            firstChild[node] = NO_NODE;
+            return node;
+        }
+
+        private int countNames()
+        {
+            int numberOfNames = 0;
+            for (int node = 0; node < numberOfNodes; node++)
+            {
+                if (studentIds[node] != null)
+                {
+                    numberOfNames++;
+                }
+            }
+            return numberOfNames;
+        }
+
+        private long sizeInBytes()
+        {
+            // 2 bytes of character, 4 ints and a reference per node, and about 16 bytes of header per list of student ids
+            long bytes = characters.length * 22L;
+            for (int node = 0; node < numberOfNodes; node++)
+            {
+                if (studentIds[node] != null)
+                {
+                    bytes += 16 + studentIds[node].length * 4L;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * A hash table from int keys to long values with linear probing, so that a million students are not boxed
+     */
+    private static class IntLongTable
+    {
+        private static final long MISSING = -1L;
+
+        private int[] keys = new int[16];
+        private long[] values = new long[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        private interface Visitor
+        {
+            void visit(int key, long value);
+        }
+
+        private long get(int key)
+        {
+            for (int slot = slotOf(key); used[slot]; slot = (slot + 1) & (keys.length - 1))
+            {
+                if (keys[slot] == key)
+                {
+                    return values[slot];
+                }
+            }
+            return MISSING;
+        }
+
+        private void put(int key, long value)
+        {
+            int slot = slotOf(key);
+            for (; used[slot]; slot = (slot + 1) & (keys.length - 1))
+            {
+                if (keys[slot] == key)
+                {
+                    values[slot] = value;
+                    return;
+                }
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            used[slot] = true;
+            // keep the table at most half full
+            if (++size * 2 > keys.length)
+            {
+                resize();
+            }
+        }
+
+        private long remove(int key)
+        {
+            int slot = slotOf(key);
+            for (; used[slot]; slot = (slot + 1) & (keys.length - 1))
+            {
+                if (keys[slot] == key)
+                {
+                    break;
+                }
+            }
+            if (!used[slot])
+            {
+                return MISSING;
+            }
+            long removed = values[slot];
+
+            // shift the following entries of the probe run back, so that no lookup stops early at the hole
+            int hole = slot;
+            for (slot = (slot + 1) & (keys.length - 1); used[slot]; slot = (slot + 1) & (keys.length - 1))
+            {
+                int home = slotOf(keys[slot]);
+                if (((slot - home) & (keys.length - 1)) >= ((slot - hole) & (keys.length - 1)))
+                {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    hole = slot;
+                }
+            }
+            used[hole] = false;
+            size--;
+            return removed;
+        }
+
+        private void forEach(Visitor visitor)
+        {
+            for (int slot = 0; slot < keys.length; slot++)
+            {
+                if (used[slot])
+                {
+                    visitor.visit(keys[slot], values[slot]);
+                }
+            }
+        }
+
+        private int size()
+        {
+            return size;
+        }
+
+        private long sizeInBytes()
+        {
+            return keys.length * 13L;
+        }
+
+        private int slotOf(int key)
+        {
+            // spread sequential ids, which would otherwise fill neighbouring slots in long runs
+            return (key * 0x9E3779B9 >>> 16 ^ key * 0x9E3779B9) & (keys.length - 1);
+        }
+
+        private void resize()
+        {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new long[oldValues.length * 2];
+            used = new boolean[oldUsed.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++)
+            {
+                if (oldUsed[slot])
+                {
+                    put(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+    }
+}
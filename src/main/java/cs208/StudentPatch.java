@@ -0,0 +1,73 @@
+package cs208;
+
+import java.sql.Date;
+
+/**
+ * The fields of a student to change with {@link Database#updateStudent(int, StudentPatch)};
+ * fields left null keep their current value.
+ */
+public class StudentPatch
+{
+    private String firstName;
+    private String lastName;
+    private Date birthDate;
+
+    public StudentPatch()
+    {
+    }
+
+    public StudentPatch(String firstName, String lastName, Date birthDate)
+    {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.birthDate = birthDate;
+    }
+
+    public String getFirstName()
+    {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName)
+    {
+        this.firstName = firstName;
+    }
+
+    public String getLastName()
+    {
+        return lastName;
+    }
+
+    public void setLastName(String lastName)
+    {
+        this.lastName = lastName;
+    }
+
+    public Date getBirthDate()
+    {
+        return birthDate;
+    }
+
+    public void setBirthDate(Date birthDate)
+    {
+        this.birthDate = birthDate;
+    }
+
+    /**
+     * @return true if the patch does not change any field
+     */
+    public boolean isEmpty()
+    {
+        return firstName == null && lastName == null && birthDate == null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StudentPatch{" +
+                "firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                ", birthDate=" + birthDate +
+                '}';
+    }
+}
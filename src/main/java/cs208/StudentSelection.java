@@ -0,0 +1,179 @@
+package cs208;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which students a bulk operation such as {@link Database#deleteStudents(StudentSelection)} applies to:
+ * a set of ids, everyone with a given first and last name, or everyone born within a date range.
+ */
+public class StudentSelection
+{
+    private final List<Integer> ids;
+    private final String firstName;
+    private final String lastName;
+    private final Date bornOnOrAfter;
+    private final Date bornOnOrBefore;
+
+    private StudentSelection(List<Integer> ids, String firstName, String lastName, Date bornOnOrAfter, Date bornOnOrBefore)
+    {
+        this.ids = ids;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.bornOnOrAfter = bornOnOrAfter;
+        this.bornOnOrBefore = bornOnOrBefore;
+    }
+
+    /**
+     * @param ids the ids of the students, ids that do not exist are ignored
+     */
+    public static StudentSelection byIds(Collection<Integer> ids)
+    {
+        return new StudentSelection(new ArrayList<>(ids), null, null, null, null);
+    }
+
+    public static StudentSelection byName(String firstName, String lastName)
+    {
+        return new StudentSelection(null, firstName, lastName, null, null);
+    }
+
+    /**
+     * @param bornOnOrAfter the earliest birth date selected, or null for no lower bound
+     * @param bornOnOrBefore the latest birth date selected, or null for no upper bound
+     */
+    public static StudentSelection byBirthDateBetween(Date bornOnOrAfter, Date bornOnOrBefore)
+    {
+        if (bornOnOrAfter == null && bornOnOrBefore == null)
+        {
+            throw new IllegalArgumentException("at least one bound of the birth date range is required");
+        }
+        return new StudentSelection(null, null, null, bornOnOrAfter, bornOnOrBefore);
+    }
+
+    public List<Integer> getIds()
+    {
+        return ids == null ? null : Collections.unmodifiableList(ids);
+    }
+
+    public String getFirstName()
+    {
+        return firstName;
+    }
+
+    public String getLastName()
+    {
+        return lastName;
+    }
+
+    public Date getBornOnOrAfter()
+    {
+        return bornOnOrAfter;
+    }
+
+    public Date getBornOnOrBefore()
+    {
+        return bornOnOrBefore;
+    }
+
+    /**
+     * Replaces the content of the temporary table {@code temp.selected_students} with the ids of the selected students,
+     * so the statements of a bulk operation can join against it instead of repeating the predicate
+     *
+     * @return the number of selected students
+     */
+    int loadInto(Connection connection, int batchSize) throws SQLException
+    {
+        ConnectionPool.resetTemporaryTable(connection, "selected_students", "id INTEGER PRIMARY KEY");
+
+        if (ids != null)
+        {
+            return loadIds(connection, batchSize);
+        }
+
+        String sql;
+        if (firstName != null)
+        {
+            sql = "INSERT INTO temp.selected_students (id)\n" +
+                  "SELECT id FROM students WHERE first_name = ? AND last_name = ?;";
+        }
+        else
+        {
+            sql = "INSERT INTO temp.selected_students (id)\n" +
+                  "SELECT id FROM students WHERE birth_date BETWEEN ? AND ?;";
+        }
+        try (PreparedStatement insertStatement = connection.prepareStatement(sql))
+        {
+            if (firstName != null)
+            {
+                insertStatement.setString(1, firstName);
+                insertStatement.setString(2, lastName);
+            }
+            else
+            {
+                // birth dates are stored as yyyy-mm-dd text, which sorts like the dates themselves
+                insertStatement.setString(1, bornOnOrAfter == null ? "0000-01-01" : bornOnOrAfter.toString());
+                insertStatement.setString(2, bornOnOrBefore == null ? "9999-12-31" : bornOnOrBefore.toString());
+            }
+            return insertStatement.executeUpdate();
+        }
+    }
+
+    private int loadIds(Connection connection, int batchSize) throws SQLException
+    {
+        // OR IGNORE skips ids listed twice, the SELECT skips ids that do not exist
+        String sql =
+                "INSERT OR IGNORE INTO temp.selected_students (id)\n" +
+                "SELECT id FROM students WHERE id = ?;";
+        int numberOfStudentsSelected = 0;
+        try (PreparedStatement insertStatement = connection.prepareStatement(sql))
+        {
+            int pendingInserts = 0;
+            for (int id : ids)
+            {
+                insertStatement.setInt(1, id);
+                insertStatement.addBatch();
+                if (++pendingInserts == batchSize)
+                {
+                    numberOfStudentsSelected += sum(insertStatement.executeBatch());
+                    pendingInserts = 0;
+                }
+            }
+            if (pendingInserts > 0)
+            {
+                numberOfStudentsSelected += sum(insertStatement.executeBatch());
+            }
+        }
+        return numberOfStudentsSelected;
+    }
+
+    private static int sum(int[] updateCounts)
+    {
+        int total = 0;
+        for (int updateCount : updateCounts)
+        {
+            total += updateCount;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString()
+    {
+        if (ids != null)
+        {
+            return ids.size() + " student ids";
+        }
+        if (firstName != null)
+        {
+            return "students named " + firstName + " " + lastName;
+        }
+        return "students born between " + (bornOnOrAfter == null ? "any date" : bornOnOrAfter) +
+                " and " + (bornOnOrBefore == null ? "any date" : bornOnOrBefore);
+    }
+}
@@ -0,0 +1,189 @@
+package cs208;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders rows as an aligned text table through a single buffered writer.
+ * <p>
+ * The first {@code sampleSize} rows are held back to compute the column widths, then the header, the sampled rows
+ * and every following row are written with those widths, so a table of any length can be streamed.
+ * A later value wider than its column is written in full and only that row loses its alignment.
+ * Numbers are right-aligned, everything else is left-aligned.
+ * <p>
+ * Output reaches the underlying stream in blocks of {@link #BUFFER_SIZE} characters, and once more in {@link #finish()}.
+ */
+public class TableRenderer
+{
+    public static final int BUFFER_SIZE = 1 << 16;
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+
+    private final Writer writer;
+    private final String[] columnNames;
+    private final int sampleSize;
+    private final int[] columnWidths;
+    private final boolean[] rightAligned;
+    private List<String[]> sampledRows = new ArrayList<>();
+    private long numberOfRows;
+
+    /**
+     * @param writer where to write the table, ideally buffered
+     * @param sampleSize the number of rows used to compute the column widths
+     * @param columnNames the names shown in the header
+     */
+    public TableRenderer(Writer writer, int sampleSize, String... columnNames)
+    {
+        if (sampleSize < 1)
+        {
+            throw new IllegalArgumentException("sampleSize must be at least 1, got " + sampleSize);
+        }
+        this.writer = writer;
+        this.sampleSize = sampleSize;
+        this.columnNames = columnNames.clone();
+        this.columnWidths = new int[columnNames.length];
+        this.rightAligned = new boolean[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++)
+        {
+            columnWidths[i] = columnNames[i].length();
+        }
+    }
+
+    /**
+     * @return a renderer writing to the given stream, e.g. System.out, through a {@link #BUFFER_SIZE} buffer
+     */
+    public static TableRenderer forStream(PrintStream printStream, String... columnNames)
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(printStream), BUFFER_SIZE);
+        return new TableRenderer(writer, DEFAULT_SAMPLE_SIZE, columnNames);
+    }
+
+    /**
+     * Adds a row with one value per column, null values are shown as "null"
+     */
+    public void addRow(Object... values)
+    {
+        if (values.length != columnNames.length)
+        {
+            throw new IllegalArgumentException("expected " + columnNames.length + " values, got " + values.length);
+        }
+
+        String[] row = new String[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            row[i] = String.valueOf(values[i]);
+        }
+        numberOfRows++;
+
+        if (sampledRows == null)
+        {
+            writeRow(row);
+            return;
+        }
+
+        for (int i = 0; i < row.length; i++)
+        {
+            columnWidths[i] = Math.max(columnWidths[i], row[i].length());
+            // a column is right-aligned when every sampled value is a number
+            rightAligned[i] = (numberOfRows == 1 || rightAligned[i]) && values[i] instanceof Number;
+        }
+        sampledRows.add(row);
+        if (sampledRows.size() == sampleSize)
+        {
+            writeHeaderAndSample();
+        }
+    }
+
+    /**
+     * Writes the rows still held back and flushes the writer, without closing it
+     *
+     * @return the number of rows rendered
+     */
+    public long finish()
+    {
+        if (sampledRows != null)
+        {
+            writeHeaderAndSample();
+        }
+        try
+        {
+            writer.flush();
+        }
+        catch (IOException ioException)
+        {
+            throw new UncheckedIOException(ioException);
+        }
+        return numberOfRows;
+    }
+
+    private void writeHeaderAndSample()
+    {
+        writeCells(columnNames, new boolean[columnNames.length]);
+
+        StringBuilder separator = new StringBuilder("|");
+        for (int columnWidth : columnWidths)
+        {
+            separator.append(Utils.characterRepeat('-', columnWidth + 2)).append('|');
+        }
+        write(separator.append(System.lineSeparator()).toString());
+
+        for (String[] row : sampledRows)
+        {
+            writeRow(row);
+        }
+        sampledRows = null;
+    }
+
+    private void writeRow(String[] row)
+    {
+        writeCells(row, rightAligned);
+    }
+
+    private void writeCells(String[] cells, boolean[] alignRight)
+    {
+        StringBuilder line = new StringBuilder(128);
+        line.append('|');
+        for (int i = 0; i < cells.length; i++)
+        {
+            int padding = Math.max(columnWidths[i] - cells[i].length(), 0);
+            line.append(' ');
+            if (alignRight[i])
+            {
+                appendSpaces(line, padding);
+                line.append(cells[i]);
+            }
+            else
+            {
+                line.append(cells[i]);
+                appendSpaces(line, padding);
+            }
+            line.append(" |");
+        }
+        write(line.append(System.lineSeparator()).toString());
+    }
+
+    private static void appendSpaces(StringBuilder line, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            line.append(' ');
+        }
+    }
+
+    private void write(String text)
+    {
+        try
+        {
+            writer.write(text);
+        }
+        catch (IOException ioException)
+        {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+}
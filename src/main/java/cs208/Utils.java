@@ -1,5 +1,8 @@
 package cs208;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * Utility class containing static methods that are used in multiple places
  */
@@ -15,11 +18,54 @@ public class Utils
      */
     public static String characterRepeat(Character character, int numberOfRepeats)
     {
-        String buffer = "";
-        for (int i = 0; i < numberOfRepeats; i++)
+        // String.repeat() allocates the result once, instead of a new string per character
+        return String.valueOf(character).repeat(numberOfRepeats);
+    }
+
+    /**
+     * Writes the given text as a JSON string literal, i.e. between double quotes and with
+     * double quotes, backslashes and control characters escaped
+     *
+     * @param writer where to write the string literal
+     * @param text the text to write, such as "Jane \"JJ\" Doe"
+     */
+    public static void writeJsonString(Writer writer, String text) throws IOException
+    {
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++)
         {
-            buffer += character;
+            char character = text.charAt(i);
+            if (character != '"' && character != '\\' && character >= 0x20)
+            {
+                continue;
+            }
+
+            // write the run of characters that did not need escaping in one call
+            writer.write(text, start, i - start);
+            start = i + 1;
+            switch (character)
+            {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write(String.format("\\u%04x", (int) character));
+            }
         }
-        return buffer;
+        writer.write(text, start, text.length() - start);
+        writer.write('"');
     }
 }
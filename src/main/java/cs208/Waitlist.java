@@ -0,0 +1,290 @@
+package cs208;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory copy of the waitlist table: a priority queue per class, ordered like the promotions,
+ * highest priority first and then first come first served.
+ * <p>
+ * The waitlist table decides who is promoted, inside the transaction that frees the seat; {@link Database} applies every
+ * committed change to this copy right after the commit on its writer thread, the same way as for the {@link EnrollmentGraph},
+ * so waitlists and positions can be shown without querying SQLite.
+ */
+public class Waitlist
+{
+    private static final Comparator<Entry> PROMOTION_ORDER =
+            Comparator.comparingInt(Entry::getPriority).reversed().thenComparingLong(Entry::getSequence);
+
+    /**
+     * A student waiting for a seat in a class
+     */
+    public static class Entry
+    {
+        private final int classId;
+        private final int studentId;
+        private final int priority;
+        private final long sequence;
+
+        public Entry(int classId, int studentId, int priority, long sequence)
+        {
+            this.classId = classId;
+            this.studentId = studentId;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public int getClassId()
+        {
+            return classId;
+        }
+
+        public int getStudentId()
+        {
+            return studentId;
+        }
+
+        public int getPriority()
+        {
+            return priority;
+        }
+
+        /**
+         * @return the id of the waitlist row, which increases in the order the students joined
+         */
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        private Entry withStudentId(int newStudentId)
+        {
+            return new Entry(classId, newStudentId, priority, sequence);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Entry{" +
+                    "classId=" + classId +
+                    ", studentId=" + studentId +
+                    ", priority=" + priority +
+                    ", sequence=" + sequence +
+                    '}';
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, NavigableSet<Entry>> entriesByClass = new HashMap<>();
+    // the same entries by (class id, student id), see key()
+    private final Map<Long, Entry> entriesByKey = new HashMap<>();
+
+    static Waitlist load(Connection connection) throws SQLException
+    {
+        Waitlist waitlist = new Waitlist();
+        try
+        (
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT class_id, student_id, priority, id FROM waitlist;");
+        )
+        {
+            while (resultSet.next())
+            {
+                waitlist.addUnlocked(new Entry(resultSet.getInt(1), resultSet.getInt(2), resultSet.getInt(3), resultSet.getLong(4)));
+            }
+        }
+        return waitlist;
+    }
+
+    /**
+     * @return the students waiting for a seat in the class, the next one to be promoted first
+     */
+    public List<Entry> getEntries(int classId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            NavigableSet<Entry> entries = entriesByClass.get(classId);
+            return entries == null ? List.of() : new ArrayList<>(entries);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the 1-based place of the student in the waitlist of the class, or 0 if the student is not on it
+     */
+    public int getPosition(int studentId, int classId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Entry entry = entriesByKey.get(key(classId, studentId));
+            return entry == null ? 0 : entriesByClass.get(classId).headSet(entry).size() + 1;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size(int classId)
+    {
+        lock.readLock().lock();
+        try
+        {
+            NavigableSet<Entry> entries = entriesByClass.get(classId);
+            return entries == null ? 0 : entries.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(Entry entry)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            addUnlocked(entry);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int classId, int studentId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Entry entry = entriesByKey.remove(key(classId, studentId));
+            if (entry != null)
+            {
+                removeFromClass(entry);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every entry of the students, e.g. after they were deleted
+     */
+    void removeStudents(int[] studentIds)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // waitlists are short, so walking every entry costs less than keeping an index by student
+            Set<Integer> removedStudentIds = new HashSet<>();
+            for (int studentId : studentIds)
+            {
+                removedStudentIds.add(studentId);
+            }
+            for (Iterator<Entry> iterator = entriesByKey.values().iterator(); iterator.hasNext(); )
+            {
+                Entry entry = iterator.next();
+                if (removedStudentIds.contains(entry.getStudentId()))
+                {
+                    iterator.remove();
+                    removeFromClass(entry);
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the entries of each old student id to its new id, keeping their place, see {@link Database#remapStudentIds(Map)}
+     */
+    void remapStudents(Map<Integer, Integer> newIdsByOldId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            List<Entry> movedEntries = new ArrayList<>();
+            for (Iterator<Entry> iterator = entriesByKey.values().iterator(); iterator.hasNext(); )
+            {
+                Entry entry = iterator.next();
+                Integer newStudentId = newIdsByOldId.get(entry.getStudentId());
+                if (newStudentId != null)
+                {
+                    iterator.remove();
+                    removeFromClass(entry);
+                    movedEntries.add(entry.withStudentId(newStudentId));
+                }
+            }
+            for (Entry movedEntry : movedEntries)
+            {
+                addUnlocked(movedEntry);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addUnlocked(Entry entry)
+    {
+        Entry replacedEntry = entriesByKey.put(key(entry.getClassId(), entry.getStudentId()), entry);
+        if (replacedEntry != null)
+        {
+            removeFromClass(replacedEntry);
+        }
+        entriesByClass.computeIfAbsent(entry.getClassId(), classId -> new TreeSet<>(PROMOTION_ORDER)).add(entry);
+    }
+
+    private void removeFromClass(Entry entry)
+    {
+        NavigableSet<Entry> entries = entriesByClass.get(entry.getClassId());
+        entries.remove(entry);
+        if (entries.isEmpty())
+        {
+            entriesByClass.remove(entry.getClassId());
+        }
+    }
+
+    private static long key(int classId, int studentId)
+    {
+        return ((long) classId << 32) | (studentId & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public String toString()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return "Waitlist: " + entriesByKey.size() + " students waiting for " + entriesByClass.size() + " classes";
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package cs208;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of work run by the {@link GroupCommitWriter} inside the transaction of its group.
+ * <p>
+ * The operation must not commit, roll back or change the auto-commit mode of the connection;
+ * if it throws, only its own changes are rolled back.
+ *
+ * @param <T> the type of the result handed back to the caller
+ */
+public interface WriteOperation<T>
+{
+    T execute(Connection connection) throws SQLException;
+}
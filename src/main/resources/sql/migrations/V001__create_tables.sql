@@ -0,0 +1,28 @@
+-- Baseline schema, identical to schema.sql but safe to run against a database that already has the tables
+
+CREATE TABLE IF NOT EXISTS classes
+(
+    id           INTEGER PRIMARY KEY AUTOINCREMENT,
+    code         VARCHAR(10) UNIQUE,
+    title        VARCHAR(50) NOT NULL,
+    description  VARCHAR(200),
+    max_students INTEGER DEFAULT 10
+);
+
+CREATE TABLE IF NOT EXISTS students
+(
+    id         INTEGER PRIMARY KEY AUTOINCREMENT,
+    first_name VARCHAR(30) NOT NULL,
+    last_name  VARCHAR(50) NOT NULL,
+    birth_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS registered_students
+(
+    class_id   INTEGER NOT NULL,
+    student_id INTEGER NOT NULL,
+    signup_date DATE DEFAULT CURRENT_DATE,
+    FOREIGN KEY (class_id) REFERENCES classes (id),
+    FOREIGN KEY (student_id) REFERENCES students (id),
+    UNIQUE (class_id, student_id)
+);
@@ -0,0 +1,15 @@
+-- Indexes for the lookups done by cs208.Database that were full table scans before.
+-- The rowid (students.id) is stored in every index entry, so these cover "SELECT id ... WHERE ..." lookups.
+
+-- students looked up by first and last name (AddStudentToClass, RemoveStudentFromClass, DeleteExistingStudent, ...)
+CREATE INDEX IF NOT EXISTS idx_students_last_name_first_name ON students (last_name, first_name);
+
+-- students looked up by date of birth
+CREATE INDEX IF NOT EXISTS idx_students_birth_date ON students (birth_date);
+
+-- enrollments looked up by student alone (RemoveStudentFromClass, DeleteExistingStudent, showAllStudentClasses);
+-- lookups by class are already covered by the UNIQUE (class_id, student_id) constraint
+CREATE INDEX IF NOT EXISTS idx_registered_students_student_id_class_id ON registered_students (student_id, class_id);
+
+-- refresh the statistics the query planner uses to choose between the indexes
+ANALYZE;
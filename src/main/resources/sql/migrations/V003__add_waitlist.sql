@@ -0,0 +1,20 @@
+-- Students waiting for a seat in a full class, promoted into registered_students when a seat frees up:
+-- highest priority first, then in the order they joined (AUTOINCREMENT never hands out a lower id again)
+
+CREATE TABLE IF NOT EXISTS waitlist
+(
+    id         INTEGER PRIMARY KEY AUTOINCREMENT,
+    class_id   INTEGER NOT NULL,
+    student_id INTEGER NOT NULL,
+    priority   INTEGER NOT NULL DEFAULT 0,
+    added_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (class_id) REFERENCES classes (id),
+    FOREIGN KEY (student_id) REFERENCES students (id),
+    UNIQUE (class_id, student_id)
+);
+
+-- the waitlist of a class in promotion order, its first entry being the next student to promote
+CREATE INDEX IF NOT EXISTS idx_waitlist_class_id_priority_id ON waitlist (class_id, priority DESC, id);
+
+-- the waitlist entries of a student (DeleteExistingStudent, remapStudentIds)
+CREATE INDEX IF NOT EXISTS idx_waitlist_student_id ON waitlist (student_id);
@@ -0,0 +1,28 @@
+-- The number of students enrolled in each class, kept next to max_students by the triggers below,
+-- so seat checks and fill rates read one row per class instead of counting registered_students
+
+ALTER TABLE classes ADD COLUMN enrolled_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE classes
+SET enrolled_count = (SELECT COUNT(*) FROM registered_students WHERE class_id = classes.id);
+
+CREATE TRIGGER IF NOT EXISTS trg_registered_students_insert_count
+AFTER INSERT ON registered_students
+BEGIN
+    UPDATE classes SET enrolled_count = enrolled_count + 1 WHERE id = NEW.class_id;
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_registered_students_delete_count
+AFTER DELETE ON registered_students
+BEGIN
+    UPDATE classes SET enrolled_count = enrolled_count - 1 WHERE id = OLD.class_id;
+END;
+
+-- only fires when class_id is assigned, so remapping student ids does not touch classes
+CREATE TRIGGER IF NOT EXISTS trg_registered_students_update_count
+AFTER UPDATE OF class_id ON registered_students
+WHEN OLD.class_id IS NOT NEW.class_id
+BEGIN
+    UPDATE classes SET enrolled_count = enrolled_count - 1 WHERE id = OLD.class_id;
+    UPDATE classes SET enrolled_count = enrolled_count + 1 WHERE id = NEW.class_id;
+END;
@@ -5,6 +5,11 @@
 -- TODO: execute all SQL statements, in sequential order, from the top of this file
 --       to create the tables or to "reset" the database to the expected structure
 
+-- NOTE: the indexes and later schema changes are applied by the scripts under sql/migrations
+--       when the application starts, dropping schema_version makes them run again after a reset
+
+DROP TABLE IF EXISTS schema_version;
+DROP TABLE IF EXISTS waitlist;
 DROP TABLE IF EXISTS registered_students;
 DROP TABLE IF EXISTS classes;
 DROP TABLE IF EXISTS students;
@@ -0,0 +1,169 @@
+package cs208;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads enrolling into the same class at once must never push it over its max_students
+ */
+class ConcurrentEnrollmentTest
+{
+    private static final int MAX_STUDENTS = 10;
+    private static final int NUMBER_OF_STUDENTS = 200;
+    private static final int NUMBER_OF_THREADS = 16;
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private Database database;
+    private int classId;
+    private final List<Integer> studentIds = new ArrayList<>();
+
+    @BeforeEach
+    void createClassAndStudents() throws SQLException
+    {
+        database = new Database(temporaryDirectory.resolve("enrollments.sqlite").toString());
+        database.applyPendingMigrations();
+
+        Class newClass = new Class("CS 999", "Capacity test", "a class with few seats", MAX_STUDENTS);
+        database.addNewClass(newClass);
+        classId = newClass.getId();
+        for (int i = 0; i < NUMBER_OF_STUDENTS; i++)
+        {
+            Student newStudent = new Student("Student" + i, "Concurrent", Date.valueOf("2000-01-01"));
+            database.addNewStudent(newStudent);
+            studentIds.add(newStudent.getId());
+        }
+    }
+
+    @AfterEach
+    void closeDatabase()
+    {
+        database.close();
+    }
+
+    @Test
+    void concurrentEnrollmentsNeverExceedMaxStudents() throws Exception
+    {
+        List<Callable<EnrollmentStatus>> enrollments = new ArrayList<>();
+        for (int studentId : studentIds)
+        {
+            enrollments.add(() -> database.enrollStudent(studentId, classId));
+        }
+
+        int numberOfEnrolled = 0;
+        for (EnrollmentStatus status : runAtOnce(enrollments))
+        {
+            assertTrue(status == EnrollmentStatus.ENROLLED || status == EnrollmentStatus.CLASS_FULL, "unexpected status " + status);
+            if (status == EnrollmentStatus.ENROLLED)
+            {
+                numberOfEnrolled++;
+            }
+        }
+
+        assertEquals(MAX_STUDENTS, numberOfEnrolled);
+        assertEnrolledCount(MAX_STUDENTS);
+    }
+
+    @Test
+    void concurrentBatchesNeverExceedMaxStudents() throws Exception
+    {
+        List<Callable<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < studentIds.size(); from += 5)
+        {
+            List<Enrollment> batch = new ArrayList<>();
+            for (int studentId : studentIds.subList(from, Math.min(studentIds.size(), from + 5)))
+            {
+                batch.add(new Enrollment(classId, studentId));
+            }
+            batches.add(() -> database.enrollBatch(batch).getNumberOfEnrollmentsInserted());
+        }
+
+        int numberOfEnrolled = 0;
+        for (int numberOfEnrollmentsInserted : runAtOnce(batches))
+        {
+            numberOfEnrolled += numberOfEnrollmentsInserted;
+        }
+
+        assertEquals(MAX_STUDENTS, numberOfEnrolled);
+        assertEnrolledCount(MAX_STUDENTS);
+    }
+
+    /**
+     * Starts every task on its own thread of a pool, all released together, and returns their results in order
+     */
+    private static <T> List<T> runAtOnce(List<Callable<T>> tasks) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try
+        {
+            CountDownLatch startSignal = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks)
+            {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    return task.call();
+                }));
+            }
+            startSignal.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures)
+            {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks both the rows in registered_students and the enrolled_count the triggers keep for the class
+     */
+    private void assertEnrolledCount(int expectedCount) throws SQLException
+    {
+        String sql =
+                "SELECT (SELECT COUNT(*) FROM registered_students WHERE class_id = classes.id), enrolled_count\n" +
+                "FROM classes\n" +
+                "WHERE id = ?;";
+
+        try
+        (
+            Connection connection = database.getDatabaseConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        )
+        {
+            preparedStatement.setInt(1, classId);
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                assertTrue(resultSet.next());
+                assertEquals(expectedCount, resultSet.getInt(1));
+                assertEquals(expectedCount, resultSet.getInt(2));
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cs208;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Closing the writer must complete every future it handed out: written if it was queued in time, failed otherwise
+ */
+class GroupCommitWriterTest
+{
+    private static final int NUMBER_OF_ROUNDS = 20;
+    private static final int NUMBER_OF_SUBMITTERS = 8;
+    private static final int MAX_SUBMISSIONS_PER_SUBMITTER = 2000;
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private Database database;
+
+    @BeforeEach
+    void createTable() throws SQLException
+    {
+        database = new Database(temporaryDirectory.resolve("writer.sqlite").toString());
+        try
+        (
+            Connection connection = database.getDatabaseConnection();
+            Statement statement = connection.createStatement();
+        )
+        {
+            statement.executeUpdate("CREATE TABLE written_rows (id INTEGER PRIMARY KEY);");
+        }
+    }
+
+    @AfterEach
+    void closeDatabase()
+    {
+        database.close();
+    }
+
+    @Test
+    void closeWritesTheBatchBeingCollected() throws Exception
+    {
+        GroupCommitSettings settings = new GroupCommitSettings();
+        settings.setMaxBatchLatencyMillis(2000);
+        GroupCommitWriter writer = new GroupCommitWriter(database, settings);
+
+        CompletableFuture<Integer> future = writer.submit(GroupCommitWriterTest::insertRow);
+        // the writer now waits for more operations to join the batch
+        Thread.sleep(200);
+        writer.close();
+
+        assertEquals(1, future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, countWrittenRows());
+    }
+
+    @Test
+    void everySubmissionRacingWithCloseCompletes() throws Exception
+    {
+        int numberOfWrittenRows = 0;
+        for (int round = 0; round < NUMBER_OF_ROUNDS; round++)
+        {
+            GroupCommitWriter writer = new GroupCommitWriter(database, new GroupCommitSettings());
+            ConcurrentLinkedQueue<CompletableFuture<Integer>> futures = new ConcurrentLinkedQueue<>();
+            CountDownLatch submittersStarted = new CountDownLatch(NUMBER_OF_SUBMITTERS);
+
+            List<Thread> submitters = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_SUBMITTERS; i++)
+            {
+                Thread submitter = new Thread(() -> {
+                    submittersStarted.countDown();
+                    for (int j = 0; j < MAX_SUBMISSIONS_PER_SUBMITTER; j++)
+                    {
+                        CompletableFuture<Integer> future = writer.submit(GroupCommitWriterTest::insertRow);
+                        futures.add(future);
+                        if (future.isCompletedExceptionally())
+                        {
+                            // the writer is closed, later submissions would fail the same way
+                            break;
+                        }
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            submittersStarted.await();
+            Thread.sleep(5);
+
+            // the submitters keep going while close() runs
+            writer.close();
+            for (Thread submitter : submitters)
+            {
+                submitter.join();
+            }
+
+            for (CompletableFuture<Integer> future : futures)
+            {
+                try
+                {
+                    numberOfWrittenRows += future.get(5, TimeUnit.SECONDS);
+                }
+                catch (ExecutionException executionException)
+                {
+                    assertInstanceOf(SQLException.class, executionException.getCause());
+                }
+            }
+        }
+
+        // a future completed normally exactly when its row was committed
+        assertEquals(numberOfWrittenRows, countWrittenRows());
+    }
+
+    private static int insertRow(Connection connection) throws SQLException
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            return statement.executeUpdate("INSERT INTO written_rows DEFAULT VALUES;");
+        }
+    }
+
+    private int countWrittenRows() throws SQLException
+    {
+        try
+        (
+            Connection connection = database.getDatabaseConnection();
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM written_rows;");
+        )
+        {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}